@@ -0,0 +1,174 @@
+package wood.mike.bitmanipulation;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The bit layout of a packed word: one bit per constant of a flag enum, in ordinal order from bit 0,
+ * followed by any multi-bit fields such as a zone. Shifts and masks are worked out once when the
+ * layout is built, so reading and writing a word is a table lookup plus shifts and masks.
+ * <p>
+ * Words are longs; an int word widens on the way in and can be cast back when {@link #bitWidth()} is 32 or less.
+ * <pre>{@code
+ * BitLayout<PassFeature> layout = BitLayout.builder(PassFeature.class).field("zone", 3).build();
+ * BitLayout.Field zone = layout.field("zone");
+ * int pass = (int) layout.with(layout.set(0, PassFeature.IS_OAP), zone, 3);
+ * }</pre>
+ */
+public final class BitLayout<E extends Enum<E>> {
+
+    private final Class<E> flagType;
+    private final E[] flags;
+    private final long[] flagMasks;
+    private final long allFlags;
+    private final Field[] fields;
+    private final int bitWidth;
+
+    /**
+     * A multi-bit field, resolve it once with {@link #field(String)} and keep it
+     */
+    public record Field(String name, int shift, int width, long mask) {
+
+        long max() {
+            return mask >>> shift;
+        }
+    }
+
+    private BitLayout(Class<E> flagType, List<Field> fields, int bitWidth) {
+        this.flagType = flagType;
+        this.flags = flagType.getEnumConstants();
+        this.flagMasks = new long[flags.length];
+        for (int i = 0; i < flags.length; i++) {
+            flagMasks[i] = 1L << i;
+        }
+        this.allFlags = flags.length == 64 ? -1L : (1L << flags.length) - 1;
+        this.fields = fields.toArray(new Field[0]);
+        this.bitWidth = bitWidth;
+    }
+
+    public static <E extends Enum<E>> Builder<E> builder(Class<E> flagType) {
+        return new Builder<>(flagType);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the layout has no such field
+     */
+    public Field field(String name) {
+        for (Field field : fields) {
+            if (field.name().equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("No field " + name + " in " + flagType.getSimpleName() + " layout");
+    }
+
+    /**
+     * Number of bits used, flags and fields together
+     */
+    public int bitWidth() {
+        return bitWidth;
+    }
+
+    public long mask(E flag) {
+        return flagMasks[flag.ordinal()];
+    }
+
+    public boolean isSet(long word, E flag) {
+        return (word & flagMasks[flag.ordinal()]) != 0;
+    }
+
+    public long set(long word, E flag) {
+        return word | flagMasks[flag.ordinal()];
+    }
+
+    public long clear(long word, E flag) {
+        return word & ~flagMasks[flag.ordinal()];
+    }
+
+    public long with(long word, E flag, boolean on) {
+        return on ? set(word, flag) : clear(word, flag);
+    }
+
+    public long get(long word, Field field) {
+        return (word & field.mask()) >>> field.shift();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value does not fit the field
+     */
+    public long with(long word, Field field, long value) {
+        if ((value & ~field.max()) != 0) {
+            throw new IllegalArgumentException(field.name() + " must be 0-" + field.max());
+        }
+        return (word & ~field.mask()) | (value << field.shift());
+    }
+
+    /**
+     * The flag bits of word, with the fields cleared
+     */
+    public long flagBits(long word) {
+        return word & allFlags;
+    }
+
+    public EnumSet<E> toEnumSet(long word) {
+        EnumSet<E> set = EnumSet.noneOf(flagType);
+        for (long bits = word & allFlags; bits != 0; bits &= bits - 1) {
+            set.add(flags[Long.numberOfTrailingZeros(bits)]);
+        }
+        return set;
+    }
+
+    /**
+     * The word with just the given flags set and every field zero
+     */
+    public long encode(Set<E> flags) {
+        long word = 0;
+        for (E flag : flags) {
+            word |= flagMasks[flag.ordinal()];
+        }
+        return word;
+    }
+
+    public static final class Builder<E extends Enum<E>> {
+        private final Class<E> flagType;
+        private final List<Field> fields = new ArrayList<>();
+        private int nextBit;
+
+        private Builder(Class<E> flagType) {
+            this.flagType = flagType;
+            this.nextBit = flagType.getEnumConstants().length;
+            requireFits(nextBit);
+        }
+
+        /**
+         * Adds a field of width bits after the flags and any earlier fields
+         */
+        public Builder<E> field(String name, int width) {
+            if (width < 1) {
+                throw new IllegalArgumentException("Field " + name + " needs at least one bit");
+            }
+            for (Field field : fields) {
+                if (field.name().equals(name)) {
+                    throw new IllegalArgumentException("Field " + name + " is already defined");
+                }
+            }
+            requireFits(nextBit + width);
+            long mask = (width == 64 ? -1L : (1L << width) - 1) << nextBit;
+            fields.add(new Field(name, nextBit, width, mask));
+            nextBit += width;
+            return this;
+        }
+
+        public BitLayout<E> build() {
+            return new BitLayout<>(flagType, fields, nextBit);
+        }
+
+        private void requireFits(int bits) {
+            if (bits > Long.SIZE) {
+                throw new IllegalArgumentException(flagType.getSimpleName() + " layout needs " + bits + " bits, a word has " + Long.SIZE);
+            }
+        }
+    }
+}
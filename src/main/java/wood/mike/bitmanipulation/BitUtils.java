@@ -53,4 +53,178 @@ public final class BitUtils {
     public static boolean isBitSet(int num, int bit) {
         return ((num & (1 << bit)) != 0);
     }
+
+    // Bulk operations over long[] bitsets, bit i lives in words[i >>> 6] at position i & 63 as in java.util.BitSet.
+    // Each works a whole word at a time, so a range of n bits costs about n / 64 steps rather than n.
+
+    private static final long ALL_ONES = -1L;
+
+    public static boolean isBitSet(long[] words, int bit) {
+        return (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Sets bits from (inclusive) to to (exclusive).
+     * The partial words at either end are handled with masks, e.g. from = 3 gives
+     * ALL_ONES << 3 = 0b...11111000, and every word in between is simply set to all ones.
+     * Java masks the shift distance to 6 bits, so 1L << 67 is 1L << 3, which saves the & 63.
+     */
+    public static void setRange(long[] words, int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = ALL_ONES << from;
+        long lastMask = ALL_ONES >>> -to;
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+            return;
+        }
+        words[first] |= firstMask;
+        for (int i = first + 1; i < last; i++) {
+            words[i] = ALL_ONES;
+        }
+        words[last] |= lastMask;
+    }
+
+    /**
+     * Clears bits from (inclusive) to to (exclusive), the inverse masks of {@link #setRange(long[], int, int)}
+     */
+    public static void clearRange(long[] words, int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = ALL_ONES << from;
+        long lastMask = ALL_ONES >>> -to;
+        if (first == last) {
+            words[first] &= ~(firstMask & lastMask);
+            return;
+        }
+        words[first] &= ~firstMask;
+        for (int i = first + 1; i < last; i++) {
+            words[i] = 0;
+        }
+        words[last] &= ~lastMask;
+    }
+
+    /**
+     * Number of set bits from (inclusive) to to (exclusive), one Long.bitCount, a single POPCNT
+     * instruction on most CPUs, per word
+     */
+    public static int popcount(long[] words, int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return 0;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = ALL_ONES << from;
+        long lastMask = ALL_ONES >>> -to;
+        if (first == last) {
+            return Long.bitCount(words[first] & firstMask & lastMask);
+        }
+        int count = Long.bitCount(words[first] & firstMask);
+        for (int i = first + 1; i < last; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count + Long.bitCount(words[last] & lastMask);
+    }
+
+    /**
+     * Index of the first set bit at or after from, or -1.
+     * Masking off the bits below from leaves the answer as the lowest set bit of the first non-zero word,
+     * which Long.numberOfTrailingZeros finds in one instruction.
+     */
+    public static int nextSetBit(long[] words, int from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("from < 0: " + from);
+        }
+        int i = from >>> 6;
+        if (i >= words.length) {
+            return -1;
+        }
+        long word = words[i] & (ALL_ONES << from);
+        while (word == 0) {
+            if (++i == words.length) {
+                return -1;
+            }
+            word = words[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Index of the last set bit at or before from, or -1, the mirror image of {@link #nextSetBit(long[], int)}
+     */
+    public static int prevSetBit(long[] words, int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int i = from >>> 6;
+        if (i >= words.length) {
+            i = words.length - 1;
+            from = (words.length << 6) - 1;
+            if (i < 0) {
+                return -1;
+            }
+        }
+        long word = words[i] & (ALL_ONES >>> -(from + 1));
+        while (word == 0) {
+            if (i-- == 0) {
+                return -1;
+            }
+            word = words[i];
+        }
+        return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+    }
+
+    /**
+     * target &= other, words of target past the end of other are cleared
+     */
+    public static void and(long[] target, long[] other) {
+        int common = Math.min(target.length, other.length);
+        for (int i = 0; i < common; i++) {
+            target[i] &= other[i];
+        }
+        for (int i = common; i < target.length; i++) {
+            target[i] = 0;
+        }
+    }
+
+    /**
+     * target |= other, other must not be longer than target
+     */
+    public static void or(long[] target, long[] other) {
+        requireFits(target, other);
+        for (int i = 0; i < other.length; i++) {
+            target[i] |= other[i];
+        }
+    }
+
+    /**
+     * target ^= other, other must not be longer than target
+     */
+    public static void xor(long[] target, long[] other) {
+        requireFits(target, other);
+        for (int i = 0; i < other.length; i++) {
+            target[i] ^= other[i];
+        }
+    }
+
+    private static void checkRange(int from, int to) {
+        if (from < 0 || to < from) {
+            throw new IndexOutOfBoundsException("Bad range " + from + " to " + to);
+        }
+    }
+
+    private static void requireFits(long[] target, long[] other) {
+        if (other.length > target.length) {
+            throw new IllegalArgumentException("Bitset of " + other.length + " words does not fit in " + target.length);
+        }
+    }
 }
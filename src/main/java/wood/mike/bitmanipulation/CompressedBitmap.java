@@ -0,0 +1,533 @@
+package wood.mike.bitmanipulation;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative ints laid out like a roaring bitmap. Values are split on their high
+ * 16 bits into chunks of 65536, and each chunk is held in whichever container is smaller:
+ * <ul>
+ *     <li>sparse chunks, up to 4096 values, as a sorted char[] of the low 16 bits</li>
+ *     <li>dense chunks as a 1024 word long[] bitmap</li>
+ * </ul>
+ * AND, OR and ANDNOT pair up chunks by key. Two dense chunks are combined a whole word at a time with
+ * one popcount per word, and the sparse cases merge or probe sorted arrays, so the cost follows the
+ * data rather than the range of ids.
+ * <p>
+ * Not thread-safe. The static operations leave their arguments unchanged and return new bitmaps.
+ */
+public final class CompressedBitmap {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int WORDS = 1 << (CHUNK_BITS - 6);
+    // Past this many values a sorted char[] takes more room than the 8KB bitmap
+    private static final int ARRAY_MAX = 4096;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public CompressedBitmap() {
+        this(4);
+    }
+
+    private CompressedBitmap(int capacity) {
+        keys = new char[capacity];
+        containers = new Container[capacity];
+    }
+
+    /**
+     * A bitmap of the given values, which need not be sorted
+     */
+    public static CompressedBitmap of(int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        Builder builder = new Builder();
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                builder.add(sorted[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return true if the value was not already present
+     */
+    public boolean add(int value) {
+        requireNonNegative(value);
+        char key = (char) (value >>> CHUNK_BITS);
+        int i = indexOfKey(key);
+        if (i < 0) {
+            i = -i - 1;
+            insert(i, key, new Container());
+        }
+        return containers[i].add((char) value);
+    }
+
+    /**
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = indexOfKey((char) (value >>> CHUNK_BITS));
+        if (i < 0 || !containers[i].remove((char) value)) {
+            return false;
+        }
+        if (containers[i].cardinality == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+            containers[--size] = null;
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = indexOfKey((char) (value >>> CHUNK_BITS));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visits the values in ascending order
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << CHUNK_BITS, action);
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[Math.toIntExact(cardinality())];
+        int[] next = {0};
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    public CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap(Math.max(1, size));
+        for (int i = 0; i < size; i++) {
+            copy.append(keys[i], containers[i].copy());
+        }
+        return copy;
+    }
+
+    public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, Math.min(a.size, b.size)));
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.append(a.keys[i], Container.and(a.containers[i++], b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    public static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, a.size + b.size));
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.append(a.keys[i], a.containers[i++].copy());
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j++].copy());
+            } else {
+                result.append(a.keys[i], Container.or(a.containers[i++], b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The values of a that are not in b
+     */
+    public static CompressedBitmap andNot(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, a.size));
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            result.append(a.keys[i], j < b.size && b.keys[j] == a.keys[i]
+                    ? Container.andNot(a.containers[i], b.containers[j])
+                    : a.containers[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * The cardinality of {@link #and(CompressedBitmap, CompressedBitmap)} without building it
+     */
+    public static long andCardinality(CompressedBitmap a, CompressedBitmap b) {
+        long cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                cardinality += Container.andCardinality(a.containers[i++], b.containers[j++]);
+            }
+        }
+        return cardinality;
+    }
+
+    private int indexOfKey(char key) {
+        // Appends and ascending scans hit the last chunk, so try it before searching
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Adds a chunk after the existing ones, dropping it if empty
+     */
+    private void append(char key, Container container) {
+        if (container != null) {
+            insert(size, key, container);
+        }
+    }
+
+    private static void requireNonNegative(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Bitmap values must not be negative: " + value);
+        }
+    }
+
+    /**
+     * Builds a bitmap from values added in ascending order, setting bits in one reused chunk and only
+     * compressing it when the values move on to the next, so a bulk build costs a shift and an OR per value.
+     */
+    public static final class Builder {
+        private final CompressedBitmap bitmap = new CompressedBitmap();
+        private final long[] words = new long[WORDS];
+        private int key = -1;
+        private int last = -1;
+
+        public Builder add(int value) {
+            if (value <= last) {
+                requireNonNegative(value);
+                throw new IllegalArgumentException("Values must be added in ascending order: " + value + " after " + last);
+            }
+            int valueKey = value >>> CHUNK_BITS;
+            if (valueKey != key) {
+                flush();
+                key = valueKey;
+            }
+            words[(value >>> 6) & (WORDS - 1)] |= 1L << value;
+            last = value;
+            return this;
+        }
+
+        public CompressedBitmap build() {
+            flush();
+            key = -1;
+            last = Integer.MAX_VALUE;  // Further adds are rejected
+            return bitmap;
+        }
+
+        private void flush() {
+            if (key >= 0) {
+                bitmap.append((char) key, Container.ofWords(words, true));
+                Arrays.fill(words, 0);
+            }
+        }
+    }
+
+    /**
+     * One chunk's low 16 bits, as a sorted array while sparse and a bitmap once dense
+     */
+    private static final class Container {
+        private char[] values;
+        private long[] words;
+        private int cardinality;
+
+        Container() {
+            values = new char[4];
+        }
+
+        private Container(char[] values, long[] words, int cardinality) {
+            this.values = values;
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * The container for a chunk's bitmap, or null if it is empty
+         * @param copy whether words is reused by the caller and must be copied if kept
+         */
+        static Container ofWords(long[] words, boolean copy) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality == 0) {
+                return null;
+            }
+            if (cardinality > ARRAY_MAX) {
+                return new Container(null, copy ? words.clone() : words, cardinality);
+            }
+            return new Container(toValues(words, cardinality), null, cardinality);
+        }
+
+        private static char[] toValues(long[] words, int cardinality) {
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                }
+            }
+            return values;
+        }
+
+        private static Container ofValues(char[] values, int cardinality) {
+            return cardinality == 0 ? null : new Container(values, null, cardinality);
+        }
+
+        boolean contains(char low) {
+            return words != null
+                    ? (words[low >>> 6] & (1L << low)) != 0
+                    : Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before | (1L << low);
+                if (before == words[low >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before & ~(1L << low);
+                if (before == words[low >>> 6]) {
+                    return false;
+                }
+                if (--cardinality <= ARRAY_MAX) {
+                    values = toValues(words, cardinality);
+                    words = null;
+                }
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+            return true;
+        }
+
+        private void toBitmap() {
+            words = wordsOf(this);
+            values = null;
+        }
+
+        Container copy() {
+            return words != null
+                    ? new Container(null, words.clone(), cardinality)
+                    : new Container(Arrays.copyOf(values, cardinality), null, cardinality);
+        }
+
+        void forEach(int high, IntConsumer action) {
+            if (words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        action.accept(high | (w << 6) + Long.numberOfTrailingZeros(word));
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | values[i]);
+                }
+            }
+        }
+
+        /**
+         * A fresh bitmap of the container's values
+         */
+        private static long[] wordsOf(Container c) {
+            if (c.words != null) {
+                return c.words.clone();
+            }
+            long[] words = new long[WORDS];
+            for (int i = 0; i < c.cardinality; i++) {
+                words[c.values[i] >>> 6] |= 1L << c.values[i];
+            }
+            return words;
+        }
+
+        static Container and(Container a, Container b) {
+            if (a.words != null && b.words != null) {
+                long[] words = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] = a.words[w] & b.words[w];
+                }
+                return ofWords(words, false);
+            }
+            if (a.words != null) {
+                return probe(b, a, true);
+            }
+            if (b.words != null) {
+                return probe(a, b, true);
+            }
+            char[] values = new char[Math.min(a.cardinality, b.cardinality)];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < a.cardinality && j < b.cardinality) {
+                if (a.values[i] < b.values[j]) {
+                    i++;
+                } else if (a.values[i] > b.values[j]) {
+                    j++;
+                } else {
+                    values[n++] = a.values[i++];
+                    j++;
+                }
+            }
+            return ofValues(values, n);
+        }
+
+        static Container or(Container a, Container b) {
+            if (a.words == null && b.words == null && a.cardinality + b.cardinality <= ARRAY_MAX) {
+                char[] values = new char[a.cardinality + b.cardinality];
+                int n = 0;
+                int i = 0;
+                int j = 0;
+                while (i < a.cardinality || j < b.cardinality) {
+                    if (j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) {
+                        values[n++] = a.values[i++];
+                    } else if (i == a.cardinality || a.values[i] > b.values[j]) {
+                        values[n++] = b.values[j++];
+                    } else {
+                        values[n++] = a.values[i++];
+                        j++;
+                    }
+                }
+                return ofValues(values, n);
+            }
+            long[] words = wordsOf(a.words != null ? a : b);
+            Container other = a.words != null ? b : a;
+            if (other.words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] |= other.words[w];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    words[other.values[i] >>> 6] |= 1L << other.values[i];
+                }
+            }
+            return ofWords(words, false);
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a.words == null) {
+                return probe(a, b, false);
+            }
+            long[] words = a.words.clone();
+            if (b.words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] &= ~b.words[w];
+                }
+            } else {
+                for (int i = 0; i < b.cardinality; i++) {
+                    words[b.values[i] >>> 6] &= ~(1L << b.values[i]);
+                }
+            }
+            return ofWords(words, false);
+        }
+
+        /**
+         * The values of the array container that are, or are not, in the other container
+         */
+        private static Container probe(Container array, Container other, boolean keep) {
+            char[] values = new char[array.cardinality];
+            int n = 0;
+            for (int i = 0; i < array.cardinality; i++) {
+                if (other.contains(array.values[i]) == keep) {
+                    values[n++] = array.values[i];
+                }
+            }
+            return ofValues(values, n);
+        }
+
+        static int andCardinality(Container a, Container b) {
+            if (a.words != null && b.words != null) {
+                int cardinality = 0;
+                for (int w = 0; w < WORDS; w++) {
+                    cardinality += Long.bitCount(a.words[w] & b.words[w]);
+                }
+                return cardinality;
+            }
+            Container array = a.words == null ? a : b;
+            Container other = array == a ? b : a;
+            int cardinality = 0;
+            for (int i = 0; i < array.cardinality; i++) {
+                if (other.contains(array.values[i])) {
+                    cardinality++;
+                }
+            }
+            return cardinality;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package wood.mike.bitmanipulation;
+
+import java.util.Arrays;
+
+/**
+ * Rank and select over a long[] bitset, e.g. "how many seats before seat 812 are taken" and
+ * "which is the 100th free entitlement", without scanning from the start each time.
+ * <p>
+ * The running count of set bits is sampled every {@value #BLOCK_WORDS} words, so rank is one lookup plus at most
+ * {@value #BLOCK_WORDS} popcounts. Select also samples which block holds every {@value #SELECT_SAMPLE}th set bit,
+ * narrowing its binary search over the blocks to the span between two samples.
+ * <p>
+ * The index describes the words as they were when it was built, rebuild it after changing them.
+ */
+public final class RankSelectIndex {
+
+    private static final int BLOCK_WORDS = 8;
+    private static final int SELECT_SAMPLE = 4096;
+
+    private final long[] words;
+    // Set bits before each block, with a final entry for the total
+    private final int[] blockRanks;
+    // Block holding set bit k * SELECT_SAMPLE
+    private final int[] selectSamples;
+
+    public RankSelectIndex(long[] words) {
+        this.words = words;
+        int blocks = (words.length + BLOCK_WORDS - 1) / BLOCK_WORDS;
+        this.blockRanks = new int[blocks + 1];
+        int rank = 0;
+        for (int b = 0; b < blocks; b++) {
+            blockRanks[b] = rank;
+            int end = Math.min(words.length, (b + 1) * BLOCK_WORDS);
+            for (int w = b * BLOCK_WORDS; w < end; w++) {
+                rank += Long.bitCount(words[w]);
+            }
+        }
+        blockRanks[blocks] = rank;
+
+        this.selectSamples = new int[(rank + SELECT_SAMPLE - 1) / SELECT_SAMPLE];
+        int block = 0;
+        for (int s = 0; s < selectSamples.length; s++) {
+            while (blockRanks[block + 1] <= s * SELECT_SAMPLE) {
+                block++;
+            }
+            selectSamples[s] = block;
+        }
+    }
+
+    /**
+     * Total number of set bits
+     */
+    public int cardinality() {
+        return blockRanks[blockRanks.length - 1];
+    }
+
+    /**
+     * Number of set bits before the given bit, i.e. in [0, bit)
+     */
+    public int rank(int bit) {
+        if (bit < 0) {
+            throw new IndexOutOfBoundsException("bit < 0: " + bit);
+        }
+        int word = bit >>> 6;
+        if (word >= words.length) {
+            return cardinality();
+        }
+        int block = word / BLOCK_WORDS;
+        int rank = blockRanks[block];
+        for (int w = block * BLOCK_WORDS; w < word; w++) {
+            rank += Long.bitCount(words[w]);
+        }
+        // Bits of the final word below bit, none when bit is word aligned
+        return rank + Long.bitCount(words[word] & ((1L << bit) - 1));
+    }
+
+    /**
+     * Index of the set bit with the given rank, counting from 0, so select(rank(i)) == i for any set bit i
+     *
+     * @throws IndexOutOfBoundsException unless 0 <= rank < cardinality()
+     */
+    public int select(int rank) {
+        if (rank < 0 || rank >= cardinality()) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + cardinality() + " set bits");
+        }
+        int sample = rank / SELECT_SAMPLE;
+        int low = selectSamples[sample];
+        int high = sample + 1 < selectSamples.length ? selectSamples[sample + 1] : blockRanks.length - 2;
+        // Last block whose running count is <= rank
+        int found = Arrays.binarySearch(blockRanks, low, high + 1, rank);
+        int block = found >= 0 ? lastBlockWithRank(found) : -found - 2;
+
+        int remaining = rank - blockRanks[block];
+        int w = block * BLOCK_WORDS;
+        int count;
+        while (remaining >= (count = Long.bitCount(words[w]))) {
+            remaining -= count;
+            w++;
+        }
+        return (w << 6) + selectInWord(words[w], remaining);
+    }
+
+    /**
+     * Empty blocks repeat a running count, the one we want is the last of them as it holds the bit
+     */
+    private int lastBlockWithRank(int block) {
+        while (block + 1 < blockRanks.length - 1 && blockRanks[block + 1] == blockRanks[block]) {
+            block++;
+        }
+        return block;
+    }
+
+    /**
+     * Position of the n-th (from 0) set bit of word, dropping the lowest set bit n times
+     */
+    private static int selectInWord(long word, int n) {
+        for (int i = 0; i < n; i++) {
+            word &= word - 1;
+        }
+        return Long.numberOfTrailingZeros(word);
+    }
+}
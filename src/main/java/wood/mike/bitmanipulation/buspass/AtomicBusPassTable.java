@@ -0,0 +1,106 @@
+package wood.mike.bitmanipulation.buspass;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A fixed size table of encoded passes that many threads can update in place without locks,
+ * instead of replacing an immutable {@link BusPass} each time an entitlement changes.
+ * <p>
+ * Granting and revoking a feature only touch one bit, so they are a single atomic OR or AND through a
+ * VarHandle over the int[], which cannot fail and never retries. Changing the zone rewrites three bits
+ * that depend on the old value, so it is a compare-and-set loop, as is {@link #update(int, IntUnaryOperator)}.
+ */
+public class AtomicBusPassTable {
+
+    private static final VarHandle PASSES = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int[] passes;
+
+    public AtomicBusPassTable(int size) {
+        this.passes = new int[size];
+    }
+
+    public AtomicBusPassTable(int[] passes) {
+        this.passes = passes.clone();
+    }
+
+    public int size() {
+        return passes.length;
+    }
+
+    public int get(int passIdx) {
+        return (int) PASSES.getVolatile(passes, passIdx);
+    }
+
+    public BusPass getPass(int passIdx) {
+        return new BusPass(get(passIdx));
+    }
+
+    public void set(int passIdx, int pass) {
+        PASSES.setVolatile(passes, passIdx, pass);
+    }
+
+    public boolean compareAndSet(int passIdx, int expected, int pass) {
+        return PASSES.compareAndSet(passes, passIdx, expected, pass);
+    }
+
+    /**
+     * @return true if the pass did not already have the feature
+     */
+    public boolean grant(int passIdx, PassFeature feature) {
+        int mask = feature.mask();
+        return ((int) PASSES.getAndBitwiseOr(passes, passIdx, mask) & mask) == 0;
+    }
+
+    /**
+     * @return true if the pass had the feature
+     */
+    public boolean revoke(int passIdx, PassFeature feature) {
+        int mask = feature.mask();
+        return ((int) PASSES.getAndBitwiseAnd(passes, passIdx, ~mask) & mask) != 0;
+    }
+
+    /**
+     * @return the previous zone
+     */
+    public int setZone(int passIdx, int zone) {
+        if (zone < 0 || zone >= BusPass.ZONE_COUNT) {
+            throw new IllegalArgumentException("Zone must be 0-" + (BusPass.ZONE_COUNT - 1));
+        }
+        int zoneBits = zone << BusPass.ZONE_SHIFT;
+        int current;
+        do {
+            current = get(passIdx);
+        } while (!compareAndSet(passIdx, current, (current & ~BusPass.ZONE_MASK) | zoneBits));
+        return (current & BusPass.ZONE_MASK) >>> BusPass.ZONE_SHIFT;
+    }
+
+    /**
+     * Applies a change that depends on the whole pass, retrying until no other thread got in first,
+     * so the function may run more than once and must not have side effects
+     *
+     * @return the new pass
+     */
+    public int update(int passIdx, IntUnaryOperator change) {
+        int current;
+        int updated;
+        do {
+            current = get(passIdx);
+            updated = change.applyAsInt(current);
+        } while (!compareAndSet(passIdx, current, updated));
+        return updated;
+    }
+
+    /**
+     * A copy of every pass, each read atomically but not as one snapshot of the whole table
+     */
+    public int[] toArray() {
+        int[] copy = new int[passes.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = get(i);
+        }
+        return copy;
+    }
+}
@@ -1,5 +1,7 @@
 package wood.mike.bitmanipulation.buspass;
 
+import wood.mike.bitmanipulation.BitLayout;
+
 import static wood.mike.bitmanipulation.BitUtils.*;
 
 public class BusPass {
@@ -13,8 +15,14 @@ public class BusPass {
     private static final int WEEKEND_TRAVEL_ALLOWED = 7;
 
     // the zone ID is a 3 bit number, zero to seven, starting at bit 8 to 10
-    private static final int ZONE_SHIFT = 8;          // Starts at bit 8
-    private static final int ZONE_MASK  = 0b111 << ZONE_SHIFT; // Bits 8, 9, 10
+    public static final BitLayout<PassFeature> LAYOUT = BitLayout.builder(PassFeature.class)
+            .field("zone", 3)
+            .build();
+    public static final BitLayout.Field ZONE = LAYOUT.field("zone");
+
+    static final int ZONE_SHIFT = ZONE.shift();        // Starts at bit 8
+    static final int ZONE_MASK  = (int) ZONE.mask();   // Bits 8, 9, 10
+    static final int ZONE_COUNT = 1 << ZONE.width();
 
     private final int pass;
 
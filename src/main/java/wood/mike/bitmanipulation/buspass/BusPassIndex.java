@@ -0,0 +1,171 @@
+package wood.mike.bitmanipulation.buspass;
+
+import wood.mike.bitmanipulation.CompressedBitmap;
+
+import java.util.Set;
+
+/**
+ * A columnar index over encoded passes, keyed by pass id, for fleet-wide questions such as
+ * "concessionary OAP passes in zone 3 with weekend travel" that {@link BusPass} can only answer one pass at a time.
+ * <p>
+ * Each {@link PassFeature} and each zone value has its own {@link CompressedBitmap} of the pass ids
+ * that have it, so a query is a handful of word-at-a-time ANDs and ANDNOTs rather than a scan of every pass.
+ * Only the feature and zone bits of a pass are indexed.
+ * <p>
+ * Not thread-safe, updates must not overlap queries.
+ */
+public class BusPassIndex {
+
+    public static final int ANY_ZONE = -1;
+
+    private static final PassFeature[] FEATURES = PassFeature.values();
+
+    private final CompressedBitmap all;
+    private final CompressedBitmap[] features;
+    private final CompressedBitmap[] zones;
+
+    public BusPassIndex() {
+        this(new CompressedBitmap(), newBitmaps(FEATURES.length), newBitmaps(BusPass.ZONE_COUNT));
+    }
+
+    private BusPassIndex(CompressedBitmap all, CompressedBitmap[] features, CompressedBitmap[] zones) {
+        this.all = all;
+        this.features = features;
+        this.zones = zones;
+    }
+
+    /**
+     * Indexes passes[id] as the pass with that id, building every bitmap in one ascending pass over the array
+     */
+    public static BusPassIndex build(int[] passes) {
+        CompressedBitmap.Builder all = new CompressedBitmap.Builder();
+        CompressedBitmap.Builder[] features = newBuilders(FEATURES.length);
+        CompressedBitmap.Builder[] zones = newBuilders(BusPass.ZONE_COUNT);
+        for (int id = 0; id < passes.length; id++) {
+            int pass = passes[id];
+            all.add(id);
+            // Only the set bits, lowest first
+            for (int bits = pass & 0xFF; bits != 0; bits &= bits - 1) {
+                features[Integer.numberOfTrailingZeros(bits)].add(id);
+            }
+            zones[zoneOf(pass)].add(id);
+        }
+        return new BusPassIndex(all.build(), build(features), build(zones));
+    }
+
+    /**
+     * Adds the pass, or replaces whatever was indexed for the id
+     */
+    public BusPassIndex put(int id, int pass) {
+        all.add(id);
+        for (PassFeature feature : FEATURES) {
+            if ((pass & feature.mask()) != 0) {
+                features[feature.ordinal()].add(id);
+            } else {
+                features[feature.ordinal()].remove(id);
+            }
+        }
+        int zone = zoneOf(pass);
+        for (int z = 0; z < zones.length; z++) {
+            if (z == zone) {
+                zones[z].add(id);
+            } else {
+                zones[z].remove(id);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the id was indexed
+     */
+    public boolean remove(int id) {
+        if (!all.remove(id)) {
+            return false;
+        }
+        for (CompressedBitmap feature : features) {
+            feature.remove(id);
+        }
+        for (CompressedBitmap zone : zones) {
+            zone.remove(id);
+        }
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return all.contains(id);
+    }
+
+    public long size() {
+        return all.cardinality();
+    }
+
+    /**
+     * Ids of the passes with every required feature, none of the forbidden ones, in the zone or {@link #ANY_ZONE}
+     */
+    public CompressedBitmap select(Set<PassFeature> required, Set<PassFeature> forbidden, int zone) {
+        CompressedBitmap result = zone == ANY_ZONE ? all : zones[checkZone(zone)];
+        if (required.isEmpty() && forbidden.isEmpty()) {
+            return result.copy();
+        }
+        for (PassFeature feature : required) {
+            result = CompressedBitmap.and(result, features[feature.ordinal()]);
+        }
+        for (PassFeature feature : forbidden) {
+            result = CompressedBitmap.andNot(result, features[feature.ordinal()]);
+        }
+        return result;
+    }
+
+    public long count(Set<PassFeature> required, Set<PassFeature> forbidden, int zone) {
+        if (forbidden.isEmpty() && required.size() == 1) {
+            // A single AND can be counted without building it
+            CompressedBitmap feature = features[required.iterator().next().ordinal()];
+            return CompressedBitmap.andCardinality(zone == ANY_ZONE ? all : zones[checkZone(zone)], feature);
+        }
+        return select(required, forbidden, zone).cardinality();
+    }
+
+    public long countWithFeature(PassFeature feature) {
+        return features[feature.ordinal()].cardinality();
+    }
+
+    public long countInZone(int zone) {
+        return zones[checkZone(zone)].cardinality();
+    }
+
+    private static int zoneOf(int pass) {
+        return (pass & BusPass.ZONE_MASK) >>> BusPass.ZONE_SHIFT;
+    }
+
+    private static int checkZone(int zone) {
+        if (zone < 0 || zone >= BusPass.ZONE_COUNT) {
+            throw new IllegalArgumentException("Zone must be 0-" + (BusPass.ZONE_COUNT - 1) + " or ANY_ZONE");
+        }
+        return zone;
+    }
+
+    private static CompressedBitmap[] newBitmaps(int count) {
+        CompressedBitmap[] bitmaps = new CompressedBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new CompressedBitmap();
+        }
+        return bitmaps;
+    }
+
+    private static CompressedBitmap.Builder[] newBuilders(int count) {
+        CompressedBitmap.Builder[] builders = new CompressedBitmap.Builder[count];
+        for (int i = 0; i < count; i++) {
+            builders[i] = new CompressedBitmap.Builder();
+        }
+        return builders;
+    }
+
+    private static CompressedBitmap[] build(CompressedBitmap.Builder[] builders) {
+        CompressedBitmap[] bitmaps = new CompressedBitmap[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            bitmaps[i] = builders[i].build();
+        }
+        return bitmaps;
+    }
+}
@@ -7,21 +7,11 @@ public class BusPassMega {
     private final EnumSet<PassFeature> pass;
 
     public BusPassMega(int pass) {
-        EnumSet<PassFeature> set = EnumSet.noneOf(PassFeature.class);
-        for (PassFeature feature : PassFeature.values()) {
-            if ((pass & (1 << feature.ordinal())) != 0) {
-                set.add(feature);
-            }
-        }
-        this.pass = set;
+        this.pass = BusPass.LAYOUT.toEnumSet(pass);
     }
 
     public int encode() {
-        int bitmask = 0;
-        for (PassFeature feature : pass) {
-            bitmask |= (1 << feature.ordinal());
-        }
-        return bitmask;
+        return (int) BusPass.LAYOUT.encode(pass);
     }
 
 
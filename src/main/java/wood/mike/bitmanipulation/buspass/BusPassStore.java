@@ -0,0 +1,186 @@
+package wood.mike.bitmanipulation.buspass;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Encoded passes held as raw ints in a direct buffer, 4 bytes a pass with no object headers or EnumSets,
+ * and queried in bulk with the {@link BusPassTuned} masks. A pass's id is its position in the store.
+ * <p>
+ * Predicates run as a scalar loop, or on the Vector API when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector} and either {@code -Dbuspass.vector=true} or the constructor asks for it.
+ * The vector code, {@link BusPassVectorOps}, is compiled on its own with the incubator module and only loaded
+ * by name, so the rest of the build neither needs the module nor warns about it.
+ * <p>
+ * Not thread-safe.
+ */
+public class BusPassStore {
+
+    public static final String VECTOR_PROPERTY = "buspass.vector";
+
+    private static final BulkOps VECTOR_OPS = loadVectorOps();
+    private static final boolean VECTOR_AVAILABLE = VECTOR_OPS != null;
+
+    /**
+     * Bulk predicates over the first size passes of a store's buffer
+     */
+    interface BulkOps {
+        long countMatching(ByteBuffer bytes, int size, int requiredMask, int forbiddenMask);
+
+        int[] filterZone(ByteBuffer bytes, int size, int zone);
+    }
+
+    private final boolean vectorised;
+    private ByteBuffer bytes;
+    private IntBuffer passes;
+    private int size;
+
+    public BusPassStore(int capacity) {
+        this(capacity, VECTOR_AVAILABLE && Boolean.getBoolean(VECTOR_PROPERTY));
+    }
+
+    /**
+     * @param vectorised evaluate predicates with the Vector API, which must be available
+     */
+    public BusPassStore(int capacity, boolean vectorised) {
+        if (vectorised && !VECTOR_AVAILABLE) {
+            throw new IllegalStateException("Vector API needs --add-modules jdk.incubator.vector");
+        }
+        this.vectorised = vectorised;
+        allocate(Math.max(capacity, 16));
+    }
+
+    /**
+     * @return the vector predicates, or null without the incubator module or a loadable, separately compiled class
+     */
+    private static BulkOps loadVectorOps() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (BulkOps) Class.forName(BusPassStore.class.getPackageName() + ".BusPassVectorOps")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // e.g. NoClassDefFoundError or UnsupportedClassVersionError, fall back to scalar rather than fail to initialise
+            return null;
+        }
+    }
+
+    public static BusPassStore of(int[] passes) {
+        BusPassStore store = new BusPassStore(passes.length);
+        store.passes.put(0, passes);
+        store.size = passes.length;
+        return store;
+    }
+
+    public static boolean isVectorAvailable() {
+        return VECTOR_AVAILABLE;
+    }
+
+    public boolean isVectorised() {
+        return vectorised;
+    }
+
+    /**
+     * @return the id of the new pass
+     */
+    public int add(int pass) {
+        if (size == passes.capacity()) {
+            allocate(size * 2);
+        }
+        passes.put(size, pass);
+        return size++;
+    }
+
+    public int get(int id) {
+        return passes.get(checkId(id));
+    }
+
+    public BusPassStore set(int id, int pass) {
+        passes.put(checkId(id), pass);
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes with every bit of requiredMask and none of forbiddenMask, e.g.
+     * {@code countMatching(IS_OAP | WEEKEND_TRAVEL_ALLOWED, DOG_ALLOWED)}
+     */
+    public long countMatching(int requiredMask, int forbiddenMask) {
+        if ((requiredMask & forbiddenMask) != 0) {
+            return 0;
+        }
+        return vectorised
+                ? VECTOR_OPS.countMatching(bytes, size, requiredMask, forbiddenMask)
+                : countMatching(passes, 0, size, requiredMask, forbiddenMask);
+    }
+
+    /**
+     * Ids of the passes in the zone, ascending
+     */
+    public int[] filterZone(int zone) {
+        if (zone < 0 || zone >= BusPass.ZONE_COUNT) {
+            throw new IllegalArgumentException("Zone must be 0-" + (BusPass.ZONE_COUNT - 1));
+        }
+        return vectorised
+                ? VECTOR_OPS.filterZone(bytes, size, zone)
+                : filterZone(passes, 0, size, zone, new int[initialMatchCapacity(size)], 0);
+    }
+
+    /**
+     * One AND and one compare per pass: the bits we care about must equal the required bits exactly
+     */
+    static long countMatching(IntBuffer passes, int from, int to, int requiredMask, int forbiddenMask) {
+        int care = requiredMask | forbiddenMask;
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            count += (passes.get(i) & care) == requiredMask ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Appends matching ids from 'from' onwards to ids at n and trims the result
+     */
+    static int[] filterZone(IntBuffer passes, int from, int to, int zone, int[] ids, int n) {
+        int target = zone << BusPass.ZONE_SHIFT;
+        for (int i = from; i < to; i++) {
+            if ((passes.get(i) & BusPass.ZONE_MASK) == target) {
+                ids = ensureCapacity(ids, n + 1);
+                ids[n++] = i;
+            }
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    static int[] ensureCapacity(int[] ids, int needed) {
+        return needed <= ids.length ? ids : Arrays.copyOf(ids, Math.max(needed, ids.length * 2));
+    }
+
+    static int initialMatchCapacity(int size) {
+        // Zones are usually spread evenly
+        return size / BusPass.ZONE_COUNT + 16;
+    }
+
+    private int checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(id);
+        }
+        return id;
+    }
+
+    private void allocate(int capacity) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, Integer.BYTES)).order(ByteOrder.nativeOrder());
+        IntBuffer grownPasses = grown.asIntBuffer();
+        if (passes != null) {
+            grownPasses.put(0, passes, 0, size);
+        }
+        bytes = grown;
+        passes = grownPasses;
+    }
+}
@@ -1,14 +1,14 @@
 package wood.mike.bitmanipulation.buspass;
 
 public class BusPassTuned {
-    private static final int PEAK_TIME_ALLOWED = 1;
-    private static final int PASSENGER_ALLOWED = 1 << 1;
-    private static final int DOG_ALLOWED = 1 << 2;
-    private static final int IS_CONCESSIONARY = 1 << 3;
-    private static final int REQUIRES_ASSISTANCE = 1 << 4;
-    private static final int IS_JUNIOR = 1 << 5;
-    private static final int IS_OAP = 1 << 6;
-    private static final int WEEKEND_TRAVEL_ALLOWED = 1 << 7;
+    public static final int PEAK_TIME_ALLOWED = 1;
+    public static final int PASSENGER_ALLOWED = 1 << 1;
+    public static final int DOG_ALLOWED = 1 << 2;
+    public static final int IS_CONCESSIONARY = 1 << 3;
+    public static final int REQUIRES_ASSISTANCE = 1 << 4;
+    public static final int IS_JUNIOR = 1 << 5;
+    public static final int IS_OAP = 1 << 6;
+    public static final int WEEKEND_TRAVEL_ALLOWED = 1 << 7;
 
     private final int pass;
 
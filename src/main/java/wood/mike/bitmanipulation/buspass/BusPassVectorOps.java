@@ -0,0 +1,52 @@
+package wood.mike.bitmanipulation.buspass;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link BusPassStore} predicates a whole vector of passes at a time, reading straight from the direct buffer.
+ * Kept apart from the store so the incubator classes are only linked when the vector path is chosen: the store
+ * loads this class by name, and the build compiles it in an execution of its own, the only one given
+ * {@code --add-modules jdk.incubator.vector}. The tail that does not fill a vector goes through the store's
+ * scalar loop.
+ */
+final class BusPassVectorOps implements BusPassStore.BulkOps {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public long countMatching(ByteBuffer bytes, int size, int requiredMask, int forbiddenMask) {
+        MemorySegment segment = MemorySegment.ofBuffer(bytes);
+        int care = requiredMask | forbiddenMask;
+        int upper = SPECIES.loopBound(size);
+        long count = 0;
+        for (int i = 0; i < upper; i += SPECIES.length()) {
+            IntVector passes = IntVector.fromMemorySegment(SPECIES, segment, (long) i * Integer.BYTES, ByteOrder.nativeOrder());
+            count += passes.and(care).compare(VectorOperators.EQ, requiredMask).trueCount();
+        }
+        return count + BusPassStore.countMatching(bytes.asIntBuffer(), upper, size, requiredMask, forbiddenMask);
+    }
+
+    @Override
+    public int[] filterZone(ByteBuffer bytes, int size, int zone) {
+        MemorySegment segment = MemorySegment.ofBuffer(bytes);
+        int target = zone << BusPass.ZONE_SHIFT;
+        int upper = SPECIES.loopBound(size);
+        int[] ids = new int[BusPassStore.initialMatchCapacity(size)];
+        int n = 0;
+        for (int i = 0; i < upper; i += SPECIES.length()) {
+            IntVector passes = IntVector.fromMemorySegment(SPECIES, segment, (long) i * Integer.BYTES, ByteOrder.nativeOrder());
+            long matches = passes.and(BusPass.ZONE_MASK).compare(VectorOperators.EQ, target).toLong();
+            ids = BusPassStore.ensureCapacity(ids, n + Long.bitCount(matches));
+            for (; matches != 0; matches &= matches - 1) {
+                ids[n++] = i + Long.numberOfTrailingZeros(matches);
+            }
+        }
+        return BusPassStore.filterZone(bytes.asIntBuffer(), upper, size, zone, ids, n);
+    }
+}
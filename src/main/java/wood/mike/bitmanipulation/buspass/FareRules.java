@@ -0,0 +1,82 @@
+package wood.mike.bitmanipulation.buspass;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * The fare rules a {@link PassValidator} is compiled from, written against the {@link BusPass} accessors.
+ * They are evaluated once per combination of inputs when the validator is built, never at the gate,
+ * so they can be as readable as they like.
+ */
+public interface FareRules {
+
+    /**
+     * What the gate knows about the journey, as opposed to the pass
+     *
+     * @param passengers companions travelling on the pass, counts above 3 are treated as 3
+     * @param dogs dogs travelling on the pass, counts above 3 are treated as 3
+     */
+    record Journey(boolean peak, boolean weekend, int passengers, int dogs) {
+    }
+
+    boolean isPeak(DayOfWeek day, LocalTime time);
+
+    boolean isWeekend(DayOfWeek day);
+
+    /**
+     * Whether a pass for passZone may be used at a gate in gateZone
+     */
+    boolean coversZone(int passZone, int gateZone);
+
+    /**
+     * The decision for a pass in the right zone
+     */
+    PassValidator.Decision decide(BusPass pass, Journey journey);
+
+    /**
+     * Weekday peaks of 06:30-09:30 and 16:00-18:30, a pass covers its own zone and every inner one,
+     * and a pass takes at most one companion and one dog when it allows them
+     */
+    FareRules STANDARD = new FareRules() {
+        private static final LocalTime MORNING_PEAK_START = LocalTime.of(6, 30);
+        private static final LocalTime MORNING_PEAK_END = LocalTime.of(9, 30);
+        private static final LocalTime EVENING_PEAK_START = LocalTime.of(16, 0);
+        private static final LocalTime EVENING_PEAK_END = LocalTime.of(18, 30);
+
+        @Override
+        public boolean isPeak(DayOfWeek day, LocalTime time) {
+            if (isWeekend(day)) {
+                return false;
+            }
+            return (!time.isBefore(MORNING_PEAK_START) && time.isBefore(MORNING_PEAK_END))
+                    || (!time.isBefore(EVENING_PEAK_START) && time.isBefore(EVENING_PEAK_END));
+        }
+
+        @Override
+        public boolean isWeekend(DayOfWeek day) {
+            return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+        }
+
+        @Override
+        public boolean coversZone(int passZone, int gateZone) {
+            return gateZone <= passZone;
+        }
+
+        @Override
+        public PassValidator.Decision decide(BusPass pass, Journey journey) {
+            if (journey.peak() && !pass.isPeakTimeAllowed()) {
+                return PassValidator.Decision.PEAK_NOT_ALLOWED;
+            }
+            if (journey.weekend() && !pass.weekendTravelAllowed()) {
+                return PassValidator.Decision.WEEKEND_NOT_ALLOWED;
+            }
+            if (journey.passengers() > (pass.isPassengerAllowed() ? 1 : 0)) {
+                return PassValidator.Decision.PASSENGER_NOT_ALLOWED;
+            }
+            if (journey.dogs() > (pass.isDogAllowed() ? 1 : 0)) {
+                return PassValidator.Decision.DOG_NOT_ALLOWED;
+            }
+            return PassValidator.Decision.ACCEPT;
+        }
+    };
+}
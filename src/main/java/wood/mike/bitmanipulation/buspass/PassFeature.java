@@ -8,5 +8,9 @@ public enum PassFeature {
     REQUIRES_ASSISTANCE,    // Bit 4
     IS_JUNIOR,              // Bit 5
     IS_OAP,                 // Bit 6
-    WEEKEND_TRAVEL_ALLOWED  // Bit 7
+    WEEKEND_TRAVEL_ALLOWED; // Bit 7
+
+    public int mask() {
+        return 1 << ordinal();
+    }
 }
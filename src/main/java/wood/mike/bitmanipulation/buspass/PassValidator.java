@@ -0,0 +1,133 @@
+package wood.mike.bitmanipulation.buspass;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Gate-side pass checks compiled from {@link FareRules} into lookup tables, so a check is a couple of
+ * array reads with no rule evaluation, no allocation and the same cost for every pass.
+ * <ul>
+ *     <li>The decision table is indexed by a journey index, peak, weekend and the capped passenger and
+ *     dog counts in 6 bits, above the 8 feature bits of the pass, 16KB in all</li>
+ *     <li>A zone table holds, per gate zone, a bitmask of the pass zones it accepts</li>
+ *     <li>A minute of the week table holds the peak and weekend bits, so the gate clock turns into a
+ *     journey index with one more lookup</li>
+ * </ul>
+ * Immutable once compiled and safe to share between threads.
+ */
+public class PassValidator {
+
+    public enum Decision {
+        ACCEPT,
+        PEAK_NOT_ALLOWED,
+        WEEKEND_NOT_ALLOWED,
+        PASSENGER_NOT_ALLOWED,
+        DOG_NOT_ALLOWED,
+        WRONG_ZONE
+    }
+
+    private static final Decision[] DECISIONS = Decision.values();
+    private static final int WRONG_ZONE = Decision.WRONG_ZONE.ordinal();
+
+    private static final int FEATURE_BITS = PassFeature.values().length;
+    private static final int FEATURE_MASK = (1 << FEATURE_BITS) - 1;
+    private static final int PEAK = 1;
+    private static final int WEEKEND = 1 << 1;
+    private static final int PASSENGER_SHIFT = 2;
+    private static final int DOG_SHIFT = 4;
+    private static final int MAX_COUNT = 3;
+    private static final int JOURNEYS = 1 << 6;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final byte[] decisions = new byte[JOURNEYS << FEATURE_BITS];
+    private final int[] acceptedZones = new int[BusPass.ZONE_COUNT];
+    private final byte[] timeBits = new byte[7 * MINUTES_PER_DAY];
+
+    private PassValidator(FareRules rules) {
+        for (int journey = 0; journey < JOURNEYS; journey++) {
+            FareRules.Journey context = new FareRules.Journey(
+                    (journey & PEAK) != 0,
+                    (journey & WEEKEND) != 0,
+                    (journey >>> PASSENGER_SHIFT) & MAX_COUNT,
+                    (journey >>> DOG_SHIFT) & MAX_COUNT);
+            for (int features = 0; features <= FEATURE_MASK; features++) {
+                Decision decision = rules.decide(new BusPass(features), context);
+                if (decision == Decision.WRONG_ZONE) {
+                    throw new IllegalArgumentException("Zones are checked by coversZone, not decide");
+                }
+                decisions[journey << FEATURE_BITS | features] = (byte) decision.ordinal();
+            }
+        }
+        for (int gateZone = 0; gateZone < BusPass.ZONE_COUNT; gateZone++) {
+            for (int passZone = 0; passZone < BusPass.ZONE_COUNT; passZone++) {
+                if (rules.coversZone(passZone, gateZone)) {
+                    acceptedZones[gateZone] |= 1 << passZone;
+                }
+            }
+        }
+        for (DayOfWeek day : DayOfWeek.values()) {
+            int weekend = rules.isWeekend(day) ? WEEKEND : 0;
+            for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                int peak = rules.isPeak(day, LocalTime.of(minute / 60, minute % 60)) ? PEAK : 0;
+                timeBits[(day.ordinal() * MINUTES_PER_DAY) + minute] = (byte) (peak | weekend);
+            }
+        }
+    }
+
+    public static PassValidator compile(FareRules rules) {
+        return new PassValidator(rules);
+    }
+
+    /**
+     * The journey index for {@link #check(int, int, int)}, from facts the gate already has
+     *
+     * @throws IllegalArgumentException if passengers or dogs is negative
+     */
+    public static int journey(boolean peak, boolean weekend, int passengers, int dogs) {
+        return (peak ? PEAK : 0) | (weekend ? WEEKEND : 0) | counts(passengers, dogs);
+    }
+
+    /**
+     * The journey index at a day and minute of the day, with peak and weekend as the rules define them
+     *
+     * @throws IllegalArgumentException if minuteOfDay is not 0-1439, or passengers or dogs is negative
+     */
+    public int journey(DayOfWeek day, int minuteOfDay, int passengers, int dogs) {
+        if (minuteOfDay < 0 || minuteOfDay >= MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Minute of day must be 0-" + (MINUTES_PER_DAY - 1));
+        }
+        return timeBits[day.ordinal() * MINUTES_PER_DAY + minuteOfDay] | counts(passengers, dogs);
+    }
+
+    public int journey(LocalDateTime when, int passengers, int dogs) {
+        return journey(when.getDayOfWeek(), when.getHour() * 60 + when.getMinute(), passengers, dogs);
+    }
+
+    /**
+     * The passenger and dog bits of a journey index, counts above the cap sharing its bits
+     */
+    private static int counts(int passengers, int dogs) {
+        if (passengers < 0 || dogs < 0) {
+            throw new IllegalArgumentException("Passengers and dogs must not be negative");
+        }
+        return Math.min(passengers, MAX_COUNT) << PASSENGER_SHIFT | Math.min(dogs, MAX_COUNT) << DOG_SHIFT;
+    }
+
+    /**
+     * @param pass the encoded pass
+     * @param gateZone the zone of the gate, 0-7
+     * @param journey from one of the journey methods
+     */
+    public Decision check(int pass, int gateZone, int journey) {
+        int passZone = (pass & BusPass.ZONE_MASK) >>> BusPass.ZONE_SHIFT;
+        int decision = decisions[journey << FEATURE_BITS | (pass & FEATURE_MASK)];
+        // All ones when the zone is wrong, zero when it is right, so a random mix of gates costs no mispredicts
+        int wrongZone = ((acceptedZones[gateZone] >>> passZone) & 1) - 1;
+        return DECISIONS[(decision & ~wrongZone) | (WRONG_ZONE & wrongZone)];
+    }
+
+    public boolean accepts(int pass, int gateZone, int journey) {
+        return check(pass, gateZone, journey) == Decision.ACCEPT;
+    }
+}
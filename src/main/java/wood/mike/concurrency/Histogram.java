@@ -0,0 +1,128 @@
+package wood.mike.concurrency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative longs, such as latencies in nanoseconds, laid out the way HdrHistogram lays
+ * out its counts: values below 128 get a bucket each, and above that every power of two is split into 64
+ * buckets, so any value is counted to within 1/64th (about 1.6%) of itself, from 0 to Long.MAX_VALUE, in
+ * under 4,000 counters.
+ * <p>
+ * Recording is lock free, one increment of the value's counter, so many threads can record at once on a hot
+ * path. Reads are not atomic with recording: a percentile read while values are recorded reflects most of
+ * them, which is fine for monitoring.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKETS = indexOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value, negative ones as 0.
+     *
+     * @param value The value to record, e.g. a latency in nanoseconds.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.getAndIncrement(indexOf(value));
+        count.increment();
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * @return The number of values recorded.
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return The largest value recorded, exactly, or 0 if none has been.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean of the values recorded, exactly, or 0 if none has been.
+     */
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Gets the value at a percentile, as the highest value counted alongside it, so the true value is at most
+     * about 1.6% lower.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The value at the percentile, or 0 if nothing has been recorded.
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be 0-100");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalent(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Starts counting afresh. Values recorded during a reset may be kept or lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    /**
+     * Values below 128 index themselves, above that the top 7 bits pick one of 64 buckets per power of two
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -1,39 +1,82 @@
 package wood.mike.concurrency;
 
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Comparator;
-import java.util.Set;
-import java.util.TreeSet; // Using TreeSet to keep players with the same score sorted (optional)
+import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * A thread-safe, real-time leaderboard implemented using ConcurrentSkipListMap.
- * It maintains player scores in sorted order and allows concurrent updates.
- * Players with the same score are stored in a TreeSet to maintain a consistent
- * ordering among them (e.g., by player ID alphabetically).
+ * A thread-safe, real-time leaderboard. It maintains player scores in sorted order, highest first,
+ * with players on the same score ordered by player ID alphabetically.
+ * <p>
+ * Players are kept in primitive arrays rather than maps of objects. A {@link PlayerRegistry} turns each
+ * player ID into a dense int index, the player's score and version live packed in one long of a
+ * {@link ScoreTable}, and the sorted order is a {@link RankIndex} whose nodes are int arrays indexed by the
+ * same player index. Apart from the ID string itself a player costs a few dozen bytes.
+ * <p>
+ * Each score change is a single compare-and-set on the player's packed score and version, which is the one
+ * source of truth for their score, so updates never lose each other and never wait on the sorted index. The
+ * index follows the scores: a writer leaves the player on a lock-free pending list and moves pending players
+ * into place only if the index is free, otherwise the writer holding it or the next query does, from each
+ * player's score at the time. However updates interleave, a player is listed once, at a score they really had.
+ * <p>
+ * The cost moves to queries: a rank or top-N query after updates first moves the pending players under the
+ * index's write lock, so busy readers take turns with each other. Reads that should never wait can use
+ * {@link #snapshot()}, which takes no lock.
+ * <p>
+ * Give the constructor a {@link LeaderboardInstrumentation}, such as {@link LeaderboardMetrics}, to measure
+ * latencies and contention as it runs.
  */
 public class Leaderboard {
-    // Maps scores to a set of player IDs. Keys are sorted in reverse order (highest score first).
-    // Integer is used for score, Set<String> for player IDs (since multiple players can have the same score).
-    private final ConcurrentSkipListMap<Integer, Set<String>> scoreToPlayers;
+    // Dense indices for player IDs; every other structure is indexed by them.
+    private final PlayerRegistry registry;
 
-    // Maps player IDs to their current scores for quick lookup and efficient updates.
-    private final ConcurrentHashMap<String, Integer> playerCurrentScores;
+    // Each player's current score and version, for quick lookup and atomic transitions.
+    private final ScoreTable scores;
+
+    // Order-statistic index of the players on the board, for top-N and rank queries in O(log n).
+    private final RankIndex rankIndex;
+
+    // Publishes immutable, rank-ordered snapshots on request.
+    private final SnapshotPublisher publisher;
+
+    // Players with a score, i.e. a version above 0.
+    private final AtomicInteger playerCount = new AtomicInteger();
+
+    // Told how long operations take; the clock is only read when it is not NONE.
+    private final LeaderboardInstrumentation instrumentation;
+    private final boolean timed;
+
+    /**
+     * A player's score at one version, with their registry index, as handed between the leaderboard's parts.
+     */
+    record PlayerEntry(String playerId, int index, int score, long version) {
+    }
 
     /**
      * Constructs a new Leaderboard. Scores will be ordered from highest to lowest.
      */
     public Leaderboard() {
-        // Use Comparator.reverseOrder() to sort scores in descending order (highest score first)
-        this.scoreToPlayers = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
-        this.playerCurrentScores = new ConcurrentHashMap<>();
+        this(LeaderboardInstrumentation.NONE);
     }
 
     /**
-     * Updates a player's score on the leaderboard. This operation is thread-safe.
+     * Constructs a new Leaderboard that reports what it does to the given instrumentation.
+     *
+     * @param instrumentation Receives latencies and retry counts, called on the threads using the leaderboard.
+     */
+    public Leaderboard(LeaderboardInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        this.timed = instrumentation != LeaderboardInstrumentation.NONE;
+        this.registry = new PlayerRegistry();
+        this.scores = new ScoreTable();
+        this.rankIndex = new RankIndex(registry, scores);
+        this.publisher = new SnapshotPublisher(registry, rankIndex);
+    }
+
+    /**
+     * Updates a player's score on the leaderboard. This operation is thread-safe and never waits on the sorted
+     * index: the score changes by compare-and-set, and the player is moved in the index now if no one else
+     * holds it, otherwise by whoever does or by the next query.
      * If the player is new, they are added. If their score changes, their position
      * on the leaderboard is updated.
      *
@@ -41,64 +84,407 @@ public class Leaderboard {
      * @param newScore The new score for the player.
      */
     public void updatePlayerScore(String playerId, int newScore) {
-        // Atomically update the player's score.
-        // This ensures thread-safety when fetching and updating the old score.
-        Integer oldScore = playerCurrentScores.put(playerId, newScore);
+        long start = startTime();
+        if (move(playerId, register(playerId), newScore, false) != null) {
+            rankIndex.tryMovePending();
+        }
+        if (timed) {
+            instrumentation.scoreUpdated(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gets the index that names a player in {@link #applyBatch}, registering the player if this is the
+     * first time they have been seen. Registering does not add the player to the leaderboard, and
+     * the index stays the same for the life of the leaderboard, clear() included.
+     *
+     * @param playerId The unique ID of the player.
+     * @return The player's index.
+     */
+    public int registerPlayer(String playerId) {
+        return register(playerId);
+    }
+
+    private int register(String playerId) {
+        int index = registry.register(playerId);
+        scores.ensureCapacity(index + 1);
+        rankIndex.ensurePlayers(index + 1);
+        return index;
+    }
+
+    /**
+     * The number of players registered so far, every index below it names a player
+     */
+    int registeredPlayers() {
+        return registry.size();
+    }
+
+    /**
+     * Applies a burst of score changes. See {@link #applyBatch(int[], int[], int)}.
+     */
+    public void applyBatch(int[] playerIndices, int[] scoreDeltas) {
+        if (playerIndices.length != scoreDeltas.length) {
+            throw new IllegalArgumentException("Got " + playerIndices.length + " players but " + scoreDeltas.length + " deltas");
+        }
+        applyBatch(playerIndices, scoreDeltas, playerIndices.length);
+    }
+
+    /**
+     * Applies a burst of score changes, adding scoreDeltas[i] to the score of the player at playerIndices[i].
+     * Changes to the same player are added up first, so each player moves on the leaderboard once per batch
+     * however many events they had, and a player new to the leaderboard starts from 0.
+     * <p>
+     * Each player's change is atomic, so concurrent batches and updates never lose a delta. Batches run
+     * alongside each other and single updates, and rank and top-N queries see the whole batch at once, as do
+     * snapshots.
+     *
+     * @param playerIndices Indices from {@link #registerPlayer(String)}, only the first count are read.
+     * @param scoreDeltas The change to each player's score, only the first count are read.
+     * @param count The number of changes in the batch.
+     * @throws IllegalArgumentException if an index was never registered, before anything is applied.
+     */
+    public void applyBatch(int[] playerIndices, int[] scoreDeltas, int count) {
+        long start = startTime();
+        Moves moves = applyDeltas(playerIndices, scoreDeltas, count);
+        if (timed) {
+            instrumentation.batchApplied(count, moves.count, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * {@link #applyBatch(int[], int[], int)} for boards where 0 means nothing scored, such as a window's totals:
+     * a player the batch leaves at 0 is taken off the board in the same batch, and ranks 0 like any player
+     * not on it.
+     */
+    void applyBatchDroppingZeros(int[] playerIndices, int[] scoreDeltas, int count) {
+        long start = startTime();
+        Moves moves = applyDeltas(playerIndices, scoreDeltas, count, true);
+        if (timed) {
+            instrumentation.batchApplied(count, moves.count, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Adds a delta to one registered player's score without the allocation of a batch, taking them off the
+     * board if it leaves them at 0, as {@link #applyBatchDroppingZeros} does.
+     *
+     * @throws IllegalArgumentException if the index was never registered
+     */
+    void addScoreDroppingZero(int playerIndex, int delta) {
+        long start = startTime();
+        int registered = registry.size();
+        if (playerIndex < 0 || playerIndex >= registered) {
+            throw new IllegalArgumentException("No player registered at index " + playerIndex);
+        }
+        // Registered by another thread, so its slots may not be there yet
+        scores.ensureCapacity(registered);
+        rankIndex.ensurePlayers(registered);
+        if (move(registry.playerId(playerIndex), playerIndex, delta, true, true) != null) {
+            rankIndex.tryMovePending();
+        }
+        if (timed) {
+            instrumentation.scoreUpdated(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * {@link #applyBatch(int[], int[], int)}, returning the players it moved
+     */
+    private Moves applyDeltas(int[] playerIndices, int[] scoreDeltas, int count) {
+        return applyDeltas(playerIndices, scoreDeltas, count, false);
+    }
+
+    private Moves applyDeltas(int[] playerIndices, int[] scoreDeltas, int count, boolean dropZeros) {
+        Moves deltas = sumDeltas(playerIndices, scoreDeltas, count);
+        Moves moves = new Moves(deltas.count);
+        long stamp = rankIndex.beginBatch();
+        try {
+            for (int i = 0; i < deltas.count; i++) {
+                moves.add(move(deltas.playerIds[i], deltas.indices[i], deltas.scores[i], true, dropZeros));
+            }
+        } finally {
+            rankIndex.endBatch(stamp);
+        }
+        rankIndex.tryMovePending();
+        return moves;
+    }
+
+    /**
+     * The scores {@link #applyBatch(int[], int[], int)} would set, worked out without setting them, for a caller
+     * that logs them before applying them with {@link #setScores}. Only accurate while the caller keeps every
+     * other writer out until then. Players the batch would leave where they are are left out.
+     *
+     * @throws IllegalArgumentException as applyBatch does, if an index was never registered
+     */
+    Moves plannedScores(int[] playerIndices, int[] scoreDeltas, int count) {
+        Moves deltas = sumDeltas(playerIndices, scoreDeltas, count);
+        Moves planned = new Moves(deltas.count);
+        for (int i = 0; i < deltas.count; i++) {
+            long state = scores.get(deltas.indices[i]);
+            boolean present = ScoreTable.version(state) != 0;
+            if (present && deltas.scores[i] == 0) {
+                continue;
+            }
+            int newScore = present ? ScoreTable.score(state) + deltas.scores[i] : deltas.scores[i];
+            planned.add(new PlayerEntry(deltas.playerIds[i], deltas.indices[i], newScore, 0));
+        }
+        return planned;
+    }
+
+    /**
+     * Validates a batch and adds up each player's deltas, one entry per player with the sum as its score
+     */
+    private Moves sumDeltas(int[] playerIndices, int[] scoreDeltas, int count) {
+        if (count < 0 || count > playerIndices.length || count > scoreDeltas.length) {
+            throw new IllegalArgumentException("count must be 0-" + Math.min(playerIndices.length, scoreDeltas.length));
+        }
+        // Player in the high half and delta in the low, so sorting groups each player's deltas together
+        long[] changes = new long[count];
+        int registered = registry.size();
+        for (int i = 0; i < count; i++) {
+            int player = playerIndices[i];
+            if (player < 0 || player >= registered) {
+                throw new IllegalArgumentException("No player registered at index " + player);
+            }
+            changes[i] = (long) player << 32 | (scoreDeltas[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(changes);
+        // Players registered by another thread may not have their score slot yet
+        scores.ensureCapacity(registered);
+        rankIndex.ensurePlayers(registered);
+
+        Moves deltas = new Moves(count);
+        for (int i = 0; i < count; ) {
+            int player = (int) (changes[i] >>> 32);
+            int delta = 0;
+            for (; i < count && (int) (changes[i] >>> 32) == player; i++) {
+                delta += (int) changes[i];
+            }
+            deltas.add(new PlayerEntry(registry.playerId(player), player, delta, 0));
+        }
+        return deltas;
+    }
+
+    /**
+     * Sets the first count players to the given scores as one batch, registering any that are new
+     */
+    void setScores(String[] playerIds, int[] scores, int count) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = register(playerIds[i]);
+        }
+        long stamp = rankIndex.beginBatch();
+        try {
+            for (int i = 0; i < count; i++) {
+                move(playerIds[i], indices[i], scores[i], false);
+            }
+        } finally {
+            rankIndex.endBatch(stamp);
+        }
+        rankIndex.tryMovePending();
+    }
+
+    /**
+     * Fills an empty leaderboard with players given in rank order, e.g. from a saved snapshot. Every player goes
+     * straight into place, with no compare-and-set retries and no rebalancing of the rank index.
+     *
+     * @throws IllegalStateException if the leaderboard is not empty
+     */
+    void bulkLoad(String[] playerIds, int[] scores, int count) {
+        if (playerCount.get() != 0) {
+            throw new IllegalStateException("Can only bulk load an empty leaderboard");
+        }
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = register(playerIds[i]);
+            this.scores.set(indices[i], ScoreTable.pack(1, scores[i]));
+        }
+        playerCount.addAndGet(count);
+        rankIndex.load(indices, scores, count);
+    }
+
+    /**
+     * The players one batch moves, or would move, with their scores
+     */
+    static final class Moves {
+        final String[] playerIds;
+        final int[] indices;
+        final int[] scores;
+        int count;
 
-        // If the player had an old score, remove them from that score's set
-        if (oldScore != null && !oldScore.equals(newScore)) {
-            scoreToPlayers.computeIfPresent(oldScore, (score, players) -> {
-                players.remove(playerId);
-                // If the set for the old score becomes empty, remove the score entry itself
-                return players.isEmpty() ? null : players;
-            });
+        Moves(int capacity) {
+            playerIds = new String[capacity];
+            indices = new int[capacity];
+            scores = new int[capacity];
         }
 
-        // Add the player to the set for their new score
-        // computeIfAbsent creates a new TreeSet if the score key doesn't exist,
-        // then adds the player ID to the set.
-        scoreToPlayers.computeIfAbsent(newScore, k -> new TreeSet<>()).add(playerId);
-        System.out.println(Thread.currentThread().getName() + " updated " + playerId + " to " + newScore);
+        void add(PlayerEntry moved) {
+            if (moved != null) {
+                playerIds[count] = moved.playerId();
+                indices[count] = moved.index();
+                scores[count++] = moved.score();
+            }
+        }
+    }
+
+    private PlayerEntry move(String playerId, int index, int value, boolean delta) {
+        return move(playerId, index, value, delta, false);
     }
 
     /**
-     * Retrieves the top N players from the leaderboard. This operation is thread-safe
-     * and provides a consistent snapshot.
+     * Moves a player to a new score, or by a delta from their current one, with one compare-and-set
+     * retried if another thread changed the player first, and leaves them pending for the rank index.
+     * With dropZero a player left at 0 is taken off the board instead, back to version 0.
+     *
+     * @return the player's new entry, or null if the score did not change
+     */
+    private PlayerEntry move(String playerId, int index, int value, boolean delta, boolean dropZero) {
+        long previous;
+        int version;
+        int newScore;
+        int retries = -1;
+        do {
+            retries++;
+            previous = scores.get(index);
+            int previousVersion = ScoreTable.version(previous);
+            boolean present = previousVersion != 0;
+            newScore = delta && present ? ScoreTable.score(previous) + value : value;
+            boolean drop = dropZero && newScore == 0;
+            if (present ? ScoreTable.score(previous) == newScore && !drop : drop) {
+                return null;
+            }
+            version = drop ? 0 : ScoreTable.nextVersion(previousVersion);
+        } while (!scores.compareAndSet(index, previous, ScoreTable.pack(version, newScore)));
+
+        if (retries > 0) {
+            instrumentation.casRetried(retries);
+        }
+        if (ScoreTable.version(previous) == 0) {
+            playerCount.incrementAndGet();
+        } else if (version == 0) {
+            playerCount.decrementAndGet();
+        }
+        rankIndex.moved(index);
+        return new PlayerEntry(playerId, index, newScore, Integer.toUnsignedLong(version));
+    }
+
+    /**
+     * Retrieves the top N players from the leaderboard. This operation is thread-safe, runs in
+     * O(log n + N) and reflects a single point in time, as the rank queries do.
+     * For reads that should never wait on writers use {@link #snapshot()}.
      *
      * @param n The number of top players to retrieve.
      * @return A list of player IDs representing the top N players, sorted by score (highest first).
      */
     public List<String> getTopNPlayers(int n) {
-        List<String> topPlayers = new ArrayList<>();
-        int count = 0;
-
-        // Iterate through the entry set of ConcurrentSkipListMap, which is already sorted.
-        // This iteration is weakly consistent, meaning it reflects elements as of the
-        // construction of the iterator, and may or may not reflect subsequent updates.
-        // For a leaderboard, this is generally acceptable for a "snapshot" view.
-        for (Map.Entry<Integer, Set<String>> entry : scoreToPlayers.entrySet()) {
-            for (String playerId : entry.getValue()) {
-                if (count < n) {
-                    topPlayers.add(playerId);
-                    count++;
-                } else {
-                    break; // We have collected 'n' players, no need to continue
-                }
-            }
-            if (count >= n) {
-                break; // Stop iterating through scores once 'n' players are found
-            }
+        long start = startTime();
+        List<String> topPlayers = rankIndex.range(0, n);
+        if (timed) {
+            instrumentation.topNRead(n, System.nanoTime() - start);
         }
         return topPlayers;
     }
 
+    /**
+     * The top N players as entries, each with the score it was listed at, for merging with other leaderboards
+     */
+    List<PlayerEntry> getTopNEntries(int n) {
+        return rankIndex.top(n);
+    }
+
+    /**
+     * Gets the most recently published snapshot. This never blocks and never contends with updates,
+     * so it suits frequent reads such as serving a leaderboard page.
+     *
+     * @return The latest snapshot, or an empty one at epoch 0 if none has been published.
+     */
+    public LeaderboardSnapshot snapshot() {
+        return publisher.current();
+    }
+
+    /**
+     * Publishes a snapshot of the leaderboard as of now, consistent in the sense that each player is
+     * at a score they really had, ordered as in getTopNPlayers, and a batch is in it entirely or not at all.
+     * Only players that changed since the last snapshot are re-sorted, so publishing regularly, e.g. from a
+     * scheduler, keeps each publish cheap. Concurrent publishers take turns.
+     *
+     * @return The new snapshot, also returned by {@link #snapshot()} until the next publish.
+     */
+    public LeaderboardSnapshot publishSnapshot() {
+        long start = startTime();
+        LeaderboardSnapshot snapshot = publisher.publish();
+        if (timed) {
+            instrumentation.snapshotPublished(snapshot, System.nanoTime() - start);
+        }
+        return snapshot;
+    }
+
+    private long startTime() {
+        return timed ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Counts the players in the sorted index. Once updates have stopped this equals
+     * {@link #getTotalPlayers()}, anything else means the index has lost track of a player.
+     */
+    int indexedPlayerCount() {
+        return rankIndex.size();
+    }
+
+    /**
+     * Gets the rank of a player, 1 being the top. Players with the same score are ranked by player ID,
+     * as in getTopNPlayers. Runs in O(log n) and can be called while updates continue.
+     *
+     * @param playerId The ID of the player.
+     * @return The player's rank, or 0 if the player is not found.
+     */
+    public int getRank(String playerId) {
+        int index = registry.indexOf(playerId);
+        return index < 0 ? 0 : rankIndex.rank(index) + 1;
+    }
+
+    /**
+     * Retrieves the players at a range of ranks, e.g. 10,000 to 10,050, without walking down from the top.
+     * Runs in O(log n + to - from) and reflects a single point in time.
+     *
+     * @param from The first rank to include, 1 being the top.
+     * @param to The last rank to include.
+     * @return The player IDs in rank order, fewer if the leaderboard ends before to.
+     */
+    public List<String> getPlayersInRankRange(int from, int to) {
+        if (from < 1 || to < from) {
+            throw new IllegalArgumentException("Rank range must satisfy 1 <= from <= to");
+        }
+        return rankIndex.range(from - 1, to);
+    }
+
+    /**
+     * Retrieves the players either side of a player, for "you and your rivals" views.
+     *
+     * @param playerId The ID of the player.
+     * @param k The number of players to include above and below them.
+     * @return Up to 2k + 1 player IDs in rank order including the player, or an empty list if the player is not found.
+     */
+    public List<String> getPlayersAroundMe(String playerId, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        int index = registry.indexOf(playerId);
+        return index < 0 ? List.of() : rankIndex.around(index, k);
+    }
+
     /**
      * Gets the current score of a specific player.
      * @param playerId The ID of the player.
      * @return The player's current score, or 0 if the player is not found.
      */
     public int getPlayerScore(String playerId) {
-        return playerCurrentScores.getOrDefault(playerId, 0);
+        int index = registry.indexOf(playerId);
+        if (index < 0) {
+            return 0;
+        }
+        scores.ensureCapacity(index + 1);
+        return ScoreTable.score(scores.get(index));
     }
 
     /**
@@ -106,14 +492,15 @@ public class Leaderboard {
      * @return The count of unique players.
      */
     public int getTotalPlayers() {
-        return playerCurrentScores.size();
+        return playerCount.get();
     }
 
     /**
-     * Clears all entries from the leaderboard.
+     * Clears all entries from the leaderboard. Updates running at the same time may survive the clear.
      */
     public void clear() {
-        scoreToPlayers.clear();
-        playerCurrentScores.clear();
+        scores.clear();
+        playerCount.set(0);
+        rankIndex.clear();
     }
 }
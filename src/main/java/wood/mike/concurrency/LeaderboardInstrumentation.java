@@ -0,0 +1,64 @@
+package wood.mike.concurrency;
+
+/**
+ * Receives measurements from a {@link Leaderboard} as it runs. Methods are called on the threads doing the
+ * work, often many at once and on the update hot path, so implementations must be thread-safe and cheap;
+ * {@link LeaderboardMetrics} records into lock-free histograms and counters.
+ * <p>
+ * Every method does nothing by default, so an implementation only overrides what it wants.
+ */
+public interface LeaderboardInstrumentation {
+
+    /**
+     * Measures nothing. A leaderboard given this does not read the clock either.
+     */
+    LeaderboardInstrumentation NONE = new LeaderboardInstrumentation() {
+    };
+
+    /**
+     * A call to {@link Leaderboard#updatePlayerScore(String, int)} completed.
+     *
+     * @param nanos How long it took.
+     */
+    default void scoreUpdated(long nanos) {
+    }
+
+    /**
+     * A call to {@link Leaderboard#applyBatch(int[], int[], int)} completed.
+     *
+     * @param events The number of score changes in the batch.
+     * @param players The number of players whose score changed.
+     * @param nanos How long it took.
+     */
+    default void batchApplied(int events, int players, long nanos) {
+    }
+
+    /**
+     * A player's compare-and-set lost to another thread changing the same player and had to be retried.
+     * Only called when there were retries.
+     *
+     * @param retries The number of retries before the change went in.
+     */
+    default void casRetried(int retries) {
+    }
+
+    /**
+     * A call to {@link Leaderboard#getTopNPlayers(int)} completed.
+     *
+     * @param n The number of players asked for.
+     * @param nanos How long it took.
+     */
+    default void topNRead(int n, long nanos) {
+    }
+
+    /**
+     * A snapshot was published by {@link Leaderboard#publishSnapshot()}. This is the one place the whole
+     * leaderboard is seen, so it is where measures of its shape, such as how many players share a score,
+     * can be taken without slowing updates.
+     *
+     * @param snapshot The snapshot published.
+     * @param nanos How long publishing took.
+     */
+    default void snapshotPublished(LeaderboardSnapshot snapshot, long nanos) {
+    }
+}
@@ -0,0 +1,165 @@
+package wood.mike.concurrency;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation that keeps lock-free histograms of update, batch, top-N and snapshot latencies, counts of
+ * compare-and-set retries, and how many players share each score, and serves them over JMX.
+ * <p>
+ * One instance can be given to several leaderboards, e.g. the shards of one board, to measure them together.
+ * <pre>{@code
+ * LeaderboardMetrics metrics = new LeaderboardMetrics();
+ * Leaderboard leaderboard = new Leaderboard(metrics);
+ * metrics.register("season-1");
+ * }</pre>
+ * Score groups are measured on each published snapshot, so they are only as fresh as the last publish.
+ */
+public class LeaderboardMetrics implements LeaderboardInstrumentation, LeaderboardMetricsMXBean {
+
+    static final String DOMAIN = "wood.mike.concurrency";
+
+    private final Histogram updateLatency = new Histogram();
+    private final Histogram batchLatency = new Histogram();
+    private final Histogram topNLatency = new Histogram();
+    private final Histogram publishLatency = new Histogram();
+    private final LongAdder batchEvents = new LongAdder();
+    private final LongAdder scoreChanges = new LongAdder();
+    private final LongAdder casRetries = new LongAdder();
+    private volatile Histogram scoreGroups = new Histogram();
+    private volatile long scoreGroupEpoch;
+
+    @Override
+    public void scoreUpdated(long nanos) {
+        updateLatency.record(nanos);
+        scoreChanges.increment();
+    }
+
+    @Override
+    public void batchApplied(int events, int players, long nanos) {
+        batchLatency.record(nanos);
+        batchEvents.add(events);
+        scoreChanges.add(players);
+    }
+
+    @Override
+    public void casRetried(int retries) {
+        casRetries.add(retries);
+    }
+
+    @Override
+    public void topNRead(int n, long nanos) {
+        topNLatency.record(nanos);
+    }
+
+    @Override
+    public void snapshotPublished(LeaderboardSnapshot snapshot, long nanos) {
+        publishLatency.record(nanos);
+        // Scores are in rank order, so each run of equal scores is one group
+        Histogram groups = new Histogram();
+        int[] scores = snapshot.scores();
+        int from = 0;
+        while (from < scores.length) {
+            int to = from + 1;
+            while (to < scores.length && scores[to] == scores[from]) {
+                to++;
+            }
+            groups.record(to - from);
+            from = to;
+        }
+        scoreGroups = groups;
+        scoreGroupEpoch = snapshot.epoch();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * {@code wood.mike.concurrency:type=Leaderboard,name=<name>}.
+     *
+     * @param name The name the leaderboard is known by, unique among registered leaderboards.
+     * @return The name registered under, for {@link #unregister(ObjectName)}.
+     * @throws JMException if the name is taken or cannot be registered.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Removes metrics registered by {@link #register(String)}.
+     *
+     * @throws JMException if nothing is registered under the name.
+     */
+    public static void unregister(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    static ObjectName objectName(String name) throws MalformedObjectNameException {
+        return new ObjectName(DOMAIN + ":type=Leaderboard,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public Summary getUpdateLatencyNanos() {
+        return new Summary(updateLatency);
+    }
+
+    @Override
+    public Summary getBatchLatencyNanos() {
+        return new Summary(batchLatency);
+    }
+
+    @Override
+    public long getBatchEventCount() {
+        return batchEvents.sum();
+    }
+
+    @Override
+    public Summary getTopNLatencyNanos() {
+        return new Summary(topNLatency);
+    }
+
+    @Override
+    public Summary getSnapshotPublishLatencyNanos() {
+        return new Summary(publishLatency);
+    }
+
+    @Override
+    public long getScoreChangeCount() {
+        return scoreChanges.sum();
+    }
+
+    @Override
+    public long getCasRetryCount() {
+        return casRetries.sum();
+    }
+
+    @Override
+    public double getCasRetriesPerChange() {
+        long changes = scoreChanges.sum();
+        return changes == 0 ? 0 : (double) casRetries.sum() / changes;
+    }
+
+    @Override
+    public Summary getScoreGroupSizes() {
+        return new Summary(scoreGroups);
+    }
+
+    @Override
+    public long getScoreGroupEpoch() {
+        return scoreGroupEpoch;
+    }
+
+    @Override
+    public void reset() {
+        updateLatency.reset();
+        batchLatency.reset();
+        topNLatency.reset();
+        publishLatency.reset();
+        batchEvents.reset();
+        scoreChanges.reset();
+        casRetries.reset();
+    }
+}
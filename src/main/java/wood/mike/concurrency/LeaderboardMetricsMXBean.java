@@ -0,0 +1,96 @@
+package wood.mike.concurrency;
+
+/**
+ * The JMX view of {@link LeaderboardMetrics}, for watching a leaderboard live from JConsole, VisualVM or
+ * any JMX client. Latencies are in nanoseconds, each attribute a summary of one {@link Histogram}.
+ */
+public interface LeaderboardMetricsMXBean {
+
+    /**
+     * A histogram's count, mean, max and commonly watched percentiles, shown as one composite attribute.
+     */
+    final class Summary {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Summary(Histogram histogram) {
+            this.count = histogram.count();
+            this.mean = histogram.mean();
+            this.p50 = histogram.percentile(50);
+            this.p99 = histogram.percentile(99);
+            this.p999 = histogram.percentile(99.9);
+            this.max = histogram.max();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+
+    Summary getUpdateLatencyNanos();
+
+    Summary getBatchLatencyNanos();
+
+    /**
+     * @return The score changes applied in batches, before changes to the same player are added up.
+     */
+    long getBatchEventCount();
+
+    Summary getTopNLatencyNanos();
+
+    Summary getSnapshotPublishLatencyNanos();
+
+    /**
+     * @return The single score updates plus the players moved by batches, what the retries are counted against.
+     */
+    long getScoreChangeCount();
+
+    /**
+     * @return The compare-and-set retries, each one a change that lost a race for a player to another thread.
+     */
+    long getCasRetryCount();
+
+    /**
+     * @return Retries per player moved, 0 when changes never contend.
+     */
+    double getCasRetriesPerChange();
+
+    /**
+     * @return How many players share each score, as of the latest published snapshot.
+     */
+    Summary getScoreGroupSizes();
+
+    /**
+     * @return The epoch of the snapshot getScoreGroupSizes was measured on, 0 if none has been published.
+     */
+    long getScoreGroupEpoch();
+
+    /**
+     * Starts every measurement afresh, score groups aside, which are replaced at the next publish.
+     */
+    void reset();
+}
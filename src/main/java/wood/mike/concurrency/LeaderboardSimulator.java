@@ -1,9 +1,13 @@
 package wood.mike.concurrency;
 
+import javax.management.JMException;
+
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +19,16 @@ public class LeaderboardSimulator {
     private static final int MAX_SCORE_INCREASE = 50; // Max points a user can get in one update
     private static final int TOP_N_PLAYERS_TO_SHOW = 5; // How many top players to display
 
+    // High-volume mode, run with --high-volume
+    private static final int HV_USERS = 100_000; // Number of unique users
+    private static final int HV_BATCH_SIZE = 4_096; // Score events per applyBatch call
+    private static final int HV_SECONDS = 10; // How long to keep the updates coming
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--high-volume")) {
+            runHighVolume();
+            return;
+        }
         System.out.println("--- Starting Leaderboard Simulation ---");
 
         Leaderboard leaderboard = new Leaderboard();
@@ -88,6 +101,74 @@ public class LeaderboardSimulator {
         System.out.println("\n--- Simulation Finished ---");
     }
 
+    /**
+     * Feeds batches of score events from every core for a fixed time and reports the sustained
+     * updates per second, second by second and overall. Metrics are registered over JMX as "simulator",
+     * so the run can be watched from JConsole too.
+     */
+    private static void runHighVolume() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.println(STR."--- High-volume run: \{threads} threads, \{HV_USERS} users, batches of \{HV_BATCH_SIZE} for \{HV_SECONDS}s ---");
+
+        LeaderboardMetrics metrics = new LeaderboardMetrics();
+        try {
+            metrics.register("simulator");
+        } catch (JMException e) {
+            System.err.println(STR."Metrics not registered over JMX: \{e.getMessage()}");
+        }
+        Leaderboard leaderboard = new Leaderboard(metrics);
+        int[] userIndices = new int[HV_USERS];
+        for (int i = 0; i < HV_USERS; i++) {
+            userIndices[i] = leaderboard.registerPlayer(STR."User_\{i + 1}");
+        }
+
+        LongAdder updates = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(HV_SECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int[] players = new int[HV_BATCH_SIZE];
+                int[] deltas = new int[HV_BATCH_SIZE];
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < HV_BATCH_SIZE; i++) {
+                        players[i] = userIndices[random.nextInt(HV_USERS)];
+                        deltas[i] = random.nextInt(MAX_SCORE_INCREASE) + 1;
+                    }
+                    leaderboard.applyBatch(players, deltas);
+                    updates.add(HV_BATCH_SIZE);
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        long previous = 0;
+        for (int second = 1; second <= HV_SECONDS; second++) {
+            sleep();
+            long total = updates.sum();
+            System.out.println(STR."\{second}s: \{total - previous} updates/s, batch p99 \{metrics.getBatchLatencyNanos().getP99() / 1000}us");
+            previous = total;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Some batches did not complete within the timeout.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Main thread interrupted while waiting for executor termination: " + e.getMessage());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Sustained: %.0f updates/s over %.1fs%n", updates.sum() / seconds, seconds);
+        LeaderboardMetricsMXBean.Summary batches = metrics.getBatchLatencyNanos();
+        System.out.printf("Batch latency: p50 %dus, p99 %dus, p99.9 %dus, max %dus; %.4f CAS retries per change%n",
+                batches.getP50() / 1000, batches.getP99() / 1000, batches.getP999() / 1000, batches.getMax() / 1000,
+                metrics.getCasRetriesPerChange());
+
+        System.out.println("\n--- Final Leaderboard State ---");
+        displayLeaderboard(leaderboard, TOP_N_PLAYERS_TO_SHOW);
+    }
+
     /**
      * Helper method to display the current state of the leaderboard.
      * @param leaderboard The Leaderboard instance.
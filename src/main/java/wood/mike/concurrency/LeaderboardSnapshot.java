@@ -0,0 +1,117 @@
+package wood.mike.concurrency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable view of a {@link Leaderboard} at one point in its history: the players' indices and scores
+ * in flat arrays, sorted by rank. Every read is a lookup or a slice of those arrays, so any number of
+ * readers can share a snapshot without touching the live leaderboard or each other.
+ * <p>
+ * Snapshots are numbered by epoch, each published snapshot one higher than the last.
+ */
+public final class LeaderboardSnapshot {
+
+    private final long epoch;
+    private final int[] playerIndices;
+    private final int[] scores;
+    private final PlayerRegistry registry;
+
+    LeaderboardSnapshot(long epoch, int[] playerIndices, int[] scores, PlayerRegistry registry) {
+        this.epoch = epoch;
+        this.playerIndices = playerIndices;
+        this.scores = scores;
+        this.registry = registry;
+    }
+
+    static LeaderboardSnapshot empty(long epoch, PlayerRegistry registry) {
+        return new LeaderboardSnapshot(epoch, new int[0], new int[0], registry);
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * @return The number of players on the leaderboard at this snapshot.
+     */
+    public int size() {
+        return playerIndices.length;
+    }
+
+    /**
+     * @param rank The rank, 1 being the top.
+     * @return The index of the player at that rank, as given by {@link Leaderboard#registerPlayer(String)}.
+     */
+    public int playerIndex(int rank) {
+        return playerIndices[position(rank)];
+    }
+
+    /**
+     * @param rank The rank, 1 being the top.
+     * @return The ID of the player at that rank.
+     */
+    public String playerId(int rank) {
+        return registry.playerId(playerIndices[position(rank)]);
+    }
+
+    /**
+     * @param rank The rank, 1 being the top.
+     * @return The score of the player at that rank.
+     */
+    public int score(int rank) {
+        return scores[position(rank)];
+    }
+
+    /**
+     * Retrieves the top N players, in the same order as {@link Leaderboard#getTopNPlayers(int)}.
+     *
+     * @param n The number of top players to retrieve.
+     * @return Up to n player IDs, highest score first.
+     */
+    public List<String> getTopNPlayers(int n) {
+        int count = clamp(n);
+        List<String> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            players.add(registry.playerId(playerIndices[i]));
+        }
+        return players;
+    }
+
+    /**
+     * @return The indices of up to n top players, a copy of the front of the snapshot.
+     */
+    public int[] topPlayerIndices(int n) {
+        return Arrays.copyOf(playerIndices, clamp(n));
+    }
+
+    /**
+     * @return The scores of up to n top players, matching {@link #topPlayerIndices(int)}.
+     */
+    public int[] topScores(int n) {
+        return Arrays.copyOf(scores, clamp(n));
+    }
+
+    int[] playerIndices() {
+        return playerIndices;
+    }
+
+    int[] scores() {
+        return scores;
+    }
+
+    private int position(int rank) {
+        if (rank < 1 || rank > playerIndices.length) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + playerIndices.length + " players");
+        }
+        return rank - 1;
+    }
+
+    private int clamp(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative");
+        }
+        return Math.min(n, playerIndices.length);
+    }
+}
@@ -0,0 +1,111 @@
+package wood.mike.concurrency;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Players whose score has changed but who have not yet been moved in the {@link RankIndex}, so that writers
+ * can leave the move to whoever next holds the index's lock rather than wait for it.
+ * <p>
+ * A lock-free stack threaded through one int per player, indexed by registry index. A player is on it at
+ * most once however often their score changes, since their move is made from their score at the time, so it
+ * never holds more than the board and pushing allocates nothing. A player's int is 0 when they are not on the
+ * stack, otherwise the player below them + 2, negated while the push is still linking them in. Only the
+ * pushing thread writes a negated link, and a taker waits for it to be marked linked before letting the player go.
+ * <p>
+ * Pushes may race each other, taking is for one thread at a time. Taking swaps the whole stack out at once,
+ * so a player can be pushed again while the taken stack is walked without any ABA problem. Kept in pages as
+ * {@link ScoreTable} is, so it can grow while other threads push.
+ */
+final class PendingMoves {
+
+    static final int NONE = -1;
+
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private volatile AtomicIntegerArray[] pages = new AtomicIntegerArray[0];
+    private final AtomicInteger head = new AtomicInteger(NONE);
+
+    /**
+     * Puts the player on the stack unless they are already on it. Call after changing their score: once this
+     * returns, the player is on the stack, or has been taken off it by a taker yet to read their score.
+     */
+    void push(int player) {
+        AtomicIntegerArray page = pages[player >>> PAGE_BITS];
+        int slot = player & PAGE_MASK;
+        while (true) {
+            int link = page.get(slot);
+            if (link > 0) {
+                return;
+            }
+            if (link < 0) {
+                // Another thread is linking the player in, it is only a compare-and-set away
+                Thread.yield();
+                continue;
+            }
+            int top = head.get();
+            if (page.compareAndSet(slot, 0, -(top + 2))) {
+                while (!head.compareAndSet(top, player)) {
+                    top = head.get();
+                    page.set(slot, -(top + 2));
+                }
+                page.set(slot, top + 2);
+                return;
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return head.get() == NONE;
+    }
+
+    /**
+     * Takes the whole stack, walk it with {@link #release(int)}
+     *
+     * @return the top player, or NONE if the stack was empty
+     */
+    int takeAll() {
+        return head.getAndSet(NONE);
+    }
+
+    /**
+     * Lets a taken player be pushed again. Read their score after this, so a change made meanwhile is either
+     * seen or pushes them again.
+     *
+     * @return the next player in the taken stack, or NONE
+     */
+    int release(int player) {
+        AtomicIntegerArray page = pages[player >>> PAGE_BITS];
+        int slot = player & PAGE_MASK;
+        int link;
+        // Taken the moment the push linked it in, before the push marked it linked
+        while ((link = page.get(slot)) < 0) {
+            Thread.yield();
+        }
+        page.set(slot, 0);
+        return link - 2;
+    }
+
+    /**
+     * Makes room for players 0 to players - 1, cheap when there already is
+     */
+    void ensureCapacity(int players) {
+        if (players > pages.length << PAGE_BITS) {
+            grow(players);
+        }
+    }
+
+    private synchronized void grow(int players) {
+        int needed = (players + PAGE_MASK) >>> PAGE_BITS;
+        if (needed > pages.length) {
+            AtomicIntegerArray[] grown = Arrays.copyOf(pages, needed);
+            for (int page = pages.length; page < needed; page++) {
+                grown[page] = new AtomicIntegerArray(PAGE_SIZE);
+            }
+            pages = grown;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package wood.mike.concurrency;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Leaderboard} that survives restarts. Every change is appended to a write-ahead log and is durable
+ * when the update method returns; concurrent updates share fsyncs through group commit. From time to time
+ * a checkpoint writes the whole leaderboard as a compact binary snapshot and drops the log before it.
+ * <p>
+ * Opening a directory recovers from it: the latest snapshot is bulk loaded straight into place, then the log
+ * segments after it are replayed, stopping at a record torn by a crash. The files are numbered by log segment,
+ * snapshot N holding everything before segment N.
+ * <p>
+ * Changes are logged, then applied, in one short critical section, so the log holds them in the order they
+ * were applied and nothing is applied that the log refused; only the disk write is shared. Readers can see a
+ * change a moment before it is durable, and if that write fails the change stays visible while the update
+ * throws, and the log takes no more.
+ */
+public class PersistentLeaderboard implements Closeable {
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String LOG_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final WriteAheadLog log;
+    private final Object checkpointLock = new Object();
+
+    private PersistentLeaderboard(Path directory, long segment) throws IOException {
+        this.directory = directory;
+        this.log = WriteAheadLog.open(directory, segment);
+    }
+
+    /**
+     * Opens or creates a leaderboard in the directory, recovering whatever it holds.
+     */
+    public static PersistentLeaderboard open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        TreeSet<Long> snapshots = new TreeSet<>();
+        TreeSet<Long> segments = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SNAPSHOT_SUFFIX)) {
+                    snapshots.add(Long.parseLong(name.substring(0, name.length() - SNAPSHOT_SUFFIX.length())));
+                } else if (name.endsWith(LOG_SUFFIX)) {
+                    segments.add(Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length())));
+                } else if (name.endsWith(SNAPSHOT_SUFFIX + ".tmp")) {
+                    // A checkpoint that never finished
+                    Files.delete(file);
+                }
+            }
+        }
+
+        long from = snapshots.isEmpty() ? 0 : snapshots.last();
+        long next = Math.max(from, segments.isEmpty() ? 0 : segments.last() + 1);
+        PersistentLeaderboard recovered = new PersistentLeaderboard(directory, next);
+        if (!snapshots.isEmpty()) {
+            SnapshotFile.Contents contents = SnapshotFile.read(snapshotPath(directory, from));
+            recovered.leaderboard.bulkLoad(contents.playerIds(), contents.scores(), contents.playerIds().length);
+        }
+        for (long segment : segments.tailSet(from)) {
+            WriteAheadLog.replay(directory, segment, recovered.leaderboard::setScores);
+        }
+        return recovered;
+    }
+
+    /**
+     * Updates a player's score and returns once the change is durable.
+     *
+     * @param playerId The unique ID of the player.
+     * @param newScore The new score for the player.
+     */
+    public void updatePlayerScore(String playerId, int newScore) throws IOException {
+        checkIdLength(playerId);
+        String[] playerIds = {playerId};
+        int[] scores = {newScore};
+        long sequence;
+        synchronized (this) {
+            sequence = log.append(playerIds, scores, 1);
+            leaderboard.setScores(playerIds, scores, 1);
+        }
+        log.sync(sequence);
+    }
+
+    /**
+     * See {@link Leaderboard#registerPlayer(String)}. Indices are not persisted and may differ after a restart.
+     */
+    public int registerPlayer(String playerId) {
+        checkIdLength(playerId);
+        return leaderboard.registerPlayer(playerId);
+    }
+
+    /**
+     * Applies a burst of score changes. See {@link #applyBatch(int[], int[], int)}.
+     */
+    public void applyBatch(int[] playerIndices, int[] scoreDeltas) throws IOException {
+        if (playerIndices.length != scoreDeltas.length) {
+            throw new IllegalArgumentException("Got " + playerIndices.length + " players but " + scoreDeltas.length + " deltas");
+        }
+        applyBatch(playerIndices, scoreDeltas, playerIndices.length);
+    }
+
+    /**
+     * Applies a burst of score changes as {@link Leaderboard#applyBatch(int[], int[], int)} does, logging the
+     * players' new scores as one record first, and returns once the batch is durable.
+     */
+    public void applyBatch(int[] playerIndices, int[] scoreDeltas, int count) throws IOException {
+        long sequence;
+        synchronized (this) {
+            // Every writer holds this lock, so the planned scores are the ones setScores will reach
+            Leaderboard.Moves planned = leaderboard.plannedScores(playerIndices, scoreDeltas, count);
+            if (planned.count == 0) {
+                return;
+            }
+            sequence = log.append(planned.playerIds, planned.scores, planned.count);
+            leaderboard.setScores(planned.playerIds, planned.scores, planned.count);
+        }
+        log.sync(sequence);
+    }
+
+    /**
+     * Snapshots the leaderboard to disk and deletes the log and snapshots it replaces. Updates carry on while
+     * the snapshot is written, they only wait for the log to move to a new segment.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            LeaderboardSnapshot snapshot;
+            long segment;
+            synchronized (this) {
+                snapshot = leaderboard.publishSnapshot();
+                segment = log.roll();
+            }
+            SnapshotFile.write(snapshotPath(directory, segment), snapshot);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    boolean replaced = name.endsWith(SNAPSHOT_SUFFIX) || name.endsWith(LOG_SUFFIX);
+                    if (replaced && Long.parseLong(name.substring(0, name.indexOf('.'))) < segment) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #checkpoint()} every period. A failed checkpoint stops the schedule and fails the returned
+     * future with an UncheckedIOException.
+     */
+    public ScheduledFuture<?> scheduleCheckpoints(ScheduledExecutorService scheduler, Duration period) {
+        return scheduler.scheduleAtFixedRate(() -> {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * See {@link Leaderboard#getTopNPlayers(int)}.
+     */
+    public List<String> getTopNPlayers(int n) {
+        return leaderboard.getTopNPlayers(n);
+    }
+
+    /**
+     * See {@link Leaderboard#getPlayerScore(String)}.
+     */
+    public int getPlayerScore(String playerId) {
+        return leaderboard.getPlayerScore(playerId);
+    }
+
+    /**
+     * See {@link Leaderboard#getRank(String)}.
+     */
+    public int getRank(String playerId) {
+        return leaderboard.getRank(playerId);
+    }
+
+    /**
+     * See {@link Leaderboard#getTotalPlayers()}.
+     */
+    public int getTotalPlayers() {
+        return leaderboard.getTotalPlayers();
+    }
+
+    /**
+     * See {@link Leaderboard#snapshot()}. Checkpoints publish a snapshot too.
+     */
+    public LeaderboardSnapshot snapshot() {
+        return leaderboard.snapshot();
+    }
+
+    /**
+     * Writes out anything still buffered and closes the log. The leaderboard takes no more updates, they throw
+     * IOException without changing it.
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static Path snapshotPath(Path directory, long segment) {
+        return directory.resolve(String.format("%08d%s", segment, SNAPSHOT_SUFFIX));
+    }
+
+    private static void checkIdLength(String playerId) {
+        if (playerId.length() > Short.MAX_VALUE / 3 && playerId.getBytes(StandardCharsets.UTF_8).length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Player ID is longer than " + Short.MAX_VALUE + " bytes");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package wood.mike.concurrency;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Hands out dense int indices for player IDs, so that the leaderboard can keep players in primitive arrays
+ * and hot paths such as {@link Leaderboard#applyBatch} can name players with primitives. An index, once
+ * given, always names the same player.
+ * <p>
+ * IDs are found through an open-addressing hash table of int slots, each holding an index + 1, rather than
+ * a map of boxed values, so a player costs their ID string plus a few ints.
+ * <p>
+ * Thread-safe. Lookups are lock free, registering a new player takes a short lock.
+ */
+final class PlayerRegistry {
+
+    private static final int EMPTY = 0;
+
+    private volatile String[] ids = new String[64];
+    // Written after the id it covers, so reading it first makes every id below it visible
+    private volatile int size;
+    // At most half full, replaced whole when it would be more
+    private volatile AtomicIntegerArray slots = new AtomicIntegerArray(128);
+
+    /**
+     * @return the player's index, assigning the next one if the player is new
+     */
+    int register(String playerId) {
+        int index = indexOf(playerId);
+        return index >= 0 ? index : registerNew(playerId);
+    }
+
+    /**
+     * @return the player's index, or -1 if they have never been registered
+     */
+    int indexOf(String playerId) {
+        AtomicIntegerArray table = slots;
+        int mask = table.length() - 1;
+        for (int slot = spread(playerId.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            // Slots are released after the id they point at is written
+            int entry = table.getAcquire(slot);
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (ids[entry - 1].equals(playerId)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private synchronized int registerNew(String playerId) {
+        // A lookup racing a resize may have probed the old table, look again in the current one
+        int index = indexOf(playerId);
+        if (index >= 0) {
+            return index;
+        }
+        int next = size;
+        if (next == ids.length) {
+            ids = Arrays.copyOf(ids, next * 2);
+        }
+        ids[next] = playerId;
+        size = next + 1;
+        if (2 * (next + 1) > slots.length()) {
+            slots = rehash(2 * slots.length(), next + 1);
+        } else {
+            insert(slots, playerId, next);
+        }
+        return next;
+    }
+
+    private AtomicIntegerArray rehash(int capacity, int count) {
+        AtomicIntegerArray table = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < count; i++) {
+            insert(table, ids[i], i);
+        }
+        return table;
+    }
+
+    private static void insert(AtomicIntegerArray table, String playerId, int index) {
+        int mask = table.length() - 1;
+        int slot = spread(playerId.hashCode()) & mask;
+        while (table.get(slot) != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table.setRelease(slot, index + 1);
+    }
+
+    /**
+     * Mixes the high bits of the hash into the low ones the table uses
+     */
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no player has the index
+     */
+    String playerId(int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("No player registered at index " + index);
+        }
+        return ids[index];
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,486 @@
+package wood.mike.concurrency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The sorted index of players for {@link Leaderboard}: a treap (a binary search tree kept balanced
+ * by random priorities) ordered by score, highest first, then player ID, the same order getTopNPlayers uses.
+ * Every node also counts the nodes below it, so the rank of a player, or the player at a rank, is found on
+ * the way down from the root in O(log n) rather than by walking the leaderboard from the top.
+ * <p>
+ * The tree is kept in parallel int arrays indexed by the players' registry indices, so a player's index is
+ * their node and there is no object, map entry or boxed key per player: six ints each, whatever the ID.
+ * <p>
+ * Thread-safe, and writers never wait for the tree. A writer changes the player's score in the {@link ScoreTable}
+ * and pushes them onto {@link PendingMoves}, then moves the pending players itself only if the write lock is
+ * free. Otherwise whoever holds it, or the next query, moves them from their scores at that time, many for one
+ * acquisition when writers are busy. Queries move any pending players first, so they see every update that has
+ * returned, then share the read lock. Ranks count from 0 here, the leaderboard adds 1.
+ * <p>
+ * Batches change their players' scores holding the read lock, which batches share with each other and with
+ * queries, so the pending players are never moved in the middle of a batch and queries see all of it or none.
+ * <p>
+ * The index also marks, one bit per player, who has moved since snapshots last took the changes, so a
+ * snapshot can be brought up to date from the players that changed rather than the whole board.
+ */
+final class RankIndex {
+
+    private static final int NIL = -1;
+
+    private final StampedLock lock = new StampedLock();
+    private final PlayerRegistry registry;
+    private final ScoreTable table;
+    private final PendingMoves pending = new PendingMoves();
+    // Per player node, guarded by lock. A subtree size of 0 means the player is not indexed.
+    private int[] left = new int[0];
+    private int[] right = new int[0];
+    private int[] sizes = new int[0];
+    private int[] priorities = new int[0];
+    private int[] scores = new int[0];
+    private int[] versions = new int[0];
+    private int root = NIL;
+    // Players moved since the last takeChanges, a bit each, and how many times the index has been cleared
+    private long[] changed = new long[0];
+    private int clears;
+
+    /**
+     * Players that moved since the last {@link #takeChanges()}, with their scores then, all as of one moment
+     *
+     * @param clears how many times the index had been cleared, if it has changed the players are all there is
+     * @param removed players that were taken off the board and are not on it now
+     */
+    record Changes(int clears, int[] players, int[] scores, int count, int[] removed) {
+    }
+
+    RankIndex(PlayerRegistry registry, ScoreTable table) {
+        this.registry = registry;
+        this.table = table;
+    }
+
+    /**
+     * Makes room for players 0 to players - 1, call as players are registered
+     */
+    void ensurePlayers(int players) {
+        pending.ensureCapacity(players);
+    }
+
+    /**
+     * Records that the player's score in the table has changed, for the tree to follow. Lock free.
+     */
+    void moved(int player) {
+        pending.push(player);
+    }
+
+    /**
+     * Moves the pending players now if the write lock is free, without waiting for it
+     */
+    void tryMovePending() {
+        long stamp = lock.tryWriteLock();
+        if (stamp != 0) {
+            try {
+                movePendingLocked();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Holds off moving pending players while a batch changes its scores, release with {@link #endBatch(long)}
+     */
+    long beginBatch() {
+        return lock.readLock();
+    }
+
+    void endBatch(long stamp) {
+        lock.unlockRead(stamp);
+    }
+
+    /**
+     * Takes the read lock for a query, first moving any pending players under the write lock
+     */
+    private long lockForRead() {
+        if (pending.isEmpty()) {
+            return lock.readLock();
+        }
+        long stamp = lock.writeLock();
+        movePendingLocked();
+        return lock.tryConvertToReadLock(stamp);
+    }
+
+    /**
+     * Moves each pending player to their score in the table, or takes them out if the table has no score for
+     * them, having been cleared or taken off the board since they were pushed. The table is always read after
+     * the release, so a player is moved to their latest score and one already there needs nothing.
+     */
+    private void movePendingLocked() {
+        for (int player = pending.takeAll(); player != PendingMoves.NONE; ) {
+            int next = pending.release(player);
+            long state = table.get(player);
+            if (ScoreTable.version(state) != 0) {
+                putLocked(player, ScoreTable.score(state), ScoreTable.version(state));
+            } else {
+                removeLocked(player);
+            }
+            player = next;
+        }
+    }
+
+    /**
+     * Adds the player or moves them to their new score
+     */
+    private void putLocked(int player, int score, int version) {
+        ensureCapacity(player + 1);
+        if (sizes[player] != 0) {
+            versions[player] = version;
+            if (scores[player] == score) {
+                return;
+            }
+            root = delete(root, player);
+        }
+        scores[player] = score;
+        versions[player] = version;
+        markChanged(player);
+        priorities[player] = ThreadLocalRandom.current().nextInt();
+        left[player] = NIL;
+        right[player] = NIL;
+        sizes[player] = 1;
+        int[] parts = split(root, player);
+        root = merge(merge(parts[0], player), parts[1]);
+    }
+
+    private void removeLocked(int player) {
+        if (player < sizes.length && sizes[player] != 0) {
+            root = delete(root, player);
+            sizes[player] = 0;
+            markChanged(player);
+        }
+    }
+
+    /**
+     * Fills an empty index with players given in rank order, in O(n): the treap is built as a Cartesian tree
+     * on the right spine with a stack, rather than by n splits and merges
+     *
+     * @throws IllegalStateException if the index is not empty
+     */
+    void load(int[] players, int[] scores, int count) {
+        long stamp = lock.writeLock();
+        try {
+            if (root != NIL) {
+                throw new IllegalStateException("Can only load an empty index");
+            }
+            int[] spine = new int[64];
+            int depth = 0;
+            for (int i = 0; i < count; i++) {
+                int node = players[i];
+                ensureCapacity(node + 1);
+                this.scores[node] = scores[i];
+                versions[node] = 1;
+                markChanged(node);
+                priorities[node] = ThreadLocalRandom.current().nextInt();
+                right[node] = NIL;
+                sizes[node] = 1;
+                // Nodes of lower priority than the new one become its left subtree
+                int below = NIL;
+                while (depth > 0 && priorities[spine[depth - 1]] < priorities[node]) {
+                    below = spine[--depth];
+                }
+                left[node] = below;
+                if (depth > 0) {
+                    right[spine[depth - 1]] = node;
+                }
+                spine = push(spine, depth++, node);
+            }
+            root = depth == 0 ? NIL : resize(spine[0]);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private int resize(int node) {
+        if (left[node] != NIL) {
+            resize(left[node]);
+        }
+        if (right[node] != NIL) {
+            resize(right[node]);
+        }
+        return update(node);
+    }
+
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(sizes, 0);
+            root = NIL;
+            clears++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Takes the players marked as moved and clears the marks. Everything is read under the read lock, after
+     * moving pending players, so a batch is in the changes entirely or not at all. Clearing
+     * the marks under a read lock is safe only because there is one caller at a time, the snapshot publisher.
+     * Runs in O(n / 64 + changes).
+     */
+    Changes takeChanges() {
+        long stamp = lockForRead();
+        try {
+            int[] players = new int[16];
+            int[] playerScores = new int[16];
+            int count = 0;
+            int[] removed = new int[0];
+            int removedCount = 0;
+            for (int word = 0; word < changed.length; word++) {
+                for (long bits = changed[word]; bits != 0; bits &= bits - 1) {
+                    int player = word << 6 | Long.numberOfTrailingZeros(bits);
+                    // Marked then taken off, by a remove or a clear
+                    if (sizes[player] == 0) {
+                        if (removedCount == removed.length) {
+                            removed = Arrays.copyOf(removed, Math.max(16, removedCount * 2));
+                        }
+                        removed[removedCount++] = player;
+                        continue;
+                    }
+                    if (count == players.length) {
+                        players = Arrays.copyOf(players, count * 2);
+                        playerScores = Arrays.copyOf(playerScores, count * 2);
+                    }
+                    players[count] = player;
+                    playerScores[count++] = scores[player];
+                }
+                changed[word] = 0;
+            }
+            return new Changes(clears, players, playerScores, count, Arrays.copyOf(removed, removedCount));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void markChanged(int player) {
+        changed[player >>> 6] |= 1L << player;
+    }
+
+    int size() {
+        long stamp = lockForRead();
+        try {
+            return size(root);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the number of players ahead of this one, or -1 if it is not indexed
+     */
+    int rank(int player) {
+        long stamp = lockForRead();
+        try {
+            return isIndexed(player) ? rankOf(player) : -1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Players at ranks from (inclusive) to to (exclusive), clamped to the players there are
+     */
+    List<String> range(int from, int to) {
+        long stamp = lockForRead();
+        try {
+            return ids(collect(from, to));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Players at ranks from 0 to n (exclusive) with the scores they are indexed at
+     */
+    List<Leaderboard.PlayerEntry> top(int n) {
+        long stamp = lockForRead();
+        try {
+            int[] players = collect(0, n);
+            List<Leaderboard.PlayerEntry> entries = new ArrayList<>(players.length);
+            for (int player : players) {
+                entries.add(new Leaderboard.PlayerEntry(registry.playerId(player), player, scores[player],
+                        Integer.toUnsignedLong(versions[player])));
+            }
+            return entries;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The player with up to k players either side of them, read under one lock so the window is consistent
+     */
+    List<String> around(int player, int k) {
+        long stamp = lockForRead();
+        try {
+            if (!isIndexed(player)) {
+                return Collections.emptyList();
+            }
+            int rank = rankOf(player);
+            return ids(collect(Math.max(0, rank - k), rank + k + 1));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean isIndexed(int player) {
+        return player >= 0 && player < sizes.length && sizes[player] != 0;
+    }
+
+    private List<String> ids(int[] players) {
+        List<String> ids = new ArrayList<>(players.length);
+        for (int player : players) {
+            ids.add(registry.playerId(player));
+        }
+        return ids;
+    }
+
+    private int rankOf(int target) {
+        int rank = 0;
+        int node = root;
+        while (node != target) {
+            if (compare(target, node) < 0) {
+                node = left[node];
+            } else {
+                rank += size(left[node]) + 1;
+                node = right[node];
+            }
+        }
+        return rank + size(left[node]);
+    }
+
+    /**
+     * Descends to rank from, stacking the nodes still to visit, then walks in order, O(log n + to - from)
+     */
+    private int[] collect(int from, int to) {
+        to = Math.min(to, size(root));
+        if (from >= to) {
+            return new int[0];
+        }
+        int[] players = new int[to - from];
+        int[] pending = new int[64];
+        int depth = 0;
+        int node = root;
+        int skip = from;
+        while (node != NIL) {
+            int leftSize = size(left[node]);
+            if (skip < leftSize) {
+                pending = push(pending, depth++, node);
+                node = left[node];
+            } else if (skip == leftSize) {
+                pending = push(pending, depth++, node);
+                break;
+            } else {
+                skip -= leftSize + 1;
+                node = right[node];
+            }
+        }
+        for (int count = 0; count < players.length; count++) {
+            node = pending[--depth];
+            players[count] = node;
+            for (int next = right[node]; next != NIL; next = left[next]) {
+                pending = push(pending, depth++, next);
+            }
+        }
+        return players;
+    }
+
+    private static int[] push(int[] stack, int depth, int node) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth] = node;
+        return stack;
+    }
+
+    /**
+     * Highest score first, then player ID
+     */
+    private int compare(int a, int b) {
+        int byScore = Integer.compare(scores[b], scores[a]);
+        return byScore != 0 ? byScore : registry.playerId(a).compareTo(registry.playerId(b));
+    }
+
+    private int size(int node) {
+        return node == NIL ? 0 : sizes[node];
+    }
+
+    private int update(int node) {
+        sizes[node] = 1 + size(left[node]) + size(right[node]);
+        return node;
+    }
+
+    /**
+     * Splits into the nodes ordered before key and the rest
+     */
+    private int[] split(int node, int key) {
+        if (node == NIL) {
+            return new int[]{NIL, NIL};
+        }
+        if (compare(node, key) < 0) {
+            int[] parts = split(right[node], key);
+            right[node] = parts[0];
+            parts[0] = update(node);
+            return parts;
+        }
+        int[] parts = split(left[node], key);
+        left[node] = parts[1];
+        parts[1] = update(node);
+        return parts;
+    }
+
+    /**
+     * Joins two treaps where every node of a orders before every node of b
+     */
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+        if (b == NIL) {
+            return a;
+        }
+        if (priorities[a] > priorities[b]) {
+            right[a] = merge(right[a], b);
+            return update(a);
+        }
+        left[b] = merge(a, left[b]);
+        return update(b);
+    }
+
+    private int delete(int node, int target) {
+        if (node == target) {
+            return merge(left[node], right[node]);
+        }
+        if (compare(target, node) < 0) {
+            left[node] = delete(left[node], target);
+        } else {
+            right[node] = delete(right[node], target);
+        }
+        return update(node);
+    }
+
+    private void ensureCapacity(int players) {
+        if (players <= sizes.length) {
+            return;
+        }
+        int length = Math.max(players, Math.max(64, sizes.length + (sizes.length >> 1)));
+        left = Arrays.copyOf(left, length);
+        right = Arrays.copyOf(right, length);
+        sizes = Arrays.copyOf(sizes, length);
+        priorities = Arrays.copyOf(priorities, length);
+        scores = Arrays.copyOf(scores, length);
+        versions = Arrays.copyOf(versions, length);
+        changed = Arrays.copyOf(changed, (length + 63) >>> 6);
+    }
+}
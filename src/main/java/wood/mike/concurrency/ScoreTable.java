@@ -0,0 +1,82 @@
+package wood.mike.concurrency;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Every player's score and version packed into one long, indexed by registry index, so a change is a single
+ * compare-and-set on a primitive. Version 0 means the player is not on the leaderboard.
+ * <p>
+ * Kept in fixed-size pages so it can grow while other threads update it: pages never move, only the
+ * directory of them is copied, so a compare-and-set can never land in an array that has been replaced.
+ */
+final class ScoreTable {
+
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+
+    static long pack(int version, int score) {
+        return (long) version << 32 | (score & 0xFFFFFFFFL);
+    }
+
+    static int score(long state) {
+        return (int) state;
+    }
+
+    /**
+     * Counts from 1, wrapping past 2^32 - 1 back to 1
+     */
+    static int version(long state) {
+        return (int) (state >>> 32);
+    }
+
+    static int nextVersion(int version) {
+        return version == -1 ? 1 : version + 1;
+    }
+
+    long get(int player) {
+        return pages[player >>> PAGE_BITS].get(player & PAGE_MASK);
+    }
+
+    void set(int player, long state) {
+        pages[player >>> PAGE_BITS].set(player & PAGE_MASK, state);
+    }
+
+    boolean compareAndSet(int player, long expected, long state) {
+        return pages[player >>> PAGE_BITS].compareAndSet(player & PAGE_MASK, expected, state);
+    }
+
+    /**
+     * Makes room for players 0 to players - 1, cheap when there already is
+     */
+    void ensureCapacity(int players) {
+        if (players > pages.length << PAGE_BITS) {
+            grow(players);
+        }
+    }
+
+    private synchronized void grow(int players) {
+        int needed = (players + PAGE_MASK) >>> PAGE_BITS;
+        if (needed > pages.length) {
+            AtomicLongArray[] grown = Arrays.copyOf(pages, needed);
+            for (int page = pages.length; page < needed; page++) {
+                grown[page] = new AtomicLongArray(PAGE_SIZE);
+            }
+            pages = grown;
+        }
+    }
+
+    /**
+     * Takes everyone off the leaderboard. Not atomic, a concurrent update may survive.
+     */
+    void clear() {
+        for (AtomicLongArray page : pages) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                page.set(i, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package wood.mike.concurrency;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A leaderboard split across independent {@link Leaderboard} shards, each player living in the shard
+ * their ID hashes to. Updates to players in different shards share no structures at all, so with
+ * enough shards writers on different cores rarely meet.
+ * <p>
+ * The global top N is a k-way merge: every shard lists its own top N and a heap of the shards' heads
+ * picks the best of them N times, O(k n + n log k) for k shards.
+ * Rank queries and snapshots are per shard and are not offered across them.
+ */
+public class ShardedLeaderboard {
+
+    private static final Comparator<Leaderboard.PlayerEntry> BY_RANK =
+            Comparator.comparingInt((Leaderboard.PlayerEntry entry) -> entry.score()).reversed()
+                    .thenComparing(Leaderboard.PlayerEntry::playerId);
+
+    private final Leaderboard[] shards;
+
+    /**
+     * Constructs a leaderboard of the given number of shards, typically about the number of cores writing to it.
+     *
+     * @param shardCount The number of shards, at least 1.
+     */
+    public ShardedLeaderboard(int shardCount) {
+        this(shardCount, LeaderboardInstrumentation.NONE);
+    }
+
+    /**
+     * Constructs a sharded leaderboard whose shards all report to one instrumentation. Updates and batches are
+     * measured per shard, as each shard applies its part.
+     *
+     * @param shardCount The number of shards, at least 1.
+     * @param instrumentation Receives every shard's latencies and retry counts.
+     */
+    public ShardedLeaderboard(int shardCount, LeaderboardInstrumentation instrumentation) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+        this.shards = new Leaderboard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Leaderboard(instrumentation);
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Updates a player's score in their shard. See {@link Leaderboard#updatePlayerScore(String, int)}.
+     */
+    public void updatePlayerScore(String playerId, int newScore) {
+        shards[shardOf(playerId)].updatePlayerScore(playerId, newScore);
+    }
+
+    /**
+     * Gets the index that names a player in {@link #applyBatch}. The shard is encoded in the index,
+     * so a batch is split between the shards without looking anything up.
+     *
+     * @param playerId The unique ID of the player.
+     * @return The player's index.
+     */
+    public int registerPlayer(String playerId) {
+        int shard = shardOf(playerId);
+        int local = shards[shard].registerPlayer(playerId);
+        if (local > (Integer.MAX_VALUE - shard) / shards.length) {
+            throw new IllegalStateException("Shard " + shard + " has run out of player indices");
+        }
+        return local * shards.length + shard;
+    }
+
+    /**
+     * Applies a burst of score changes. See {@link #applyBatch(int[], int[], int)}.
+     */
+    public void applyBatch(int[] playerIndices, int[] scoreDeltas) {
+        if (playerIndices.length != scoreDeltas.length) {
+            throw new IllegalArgumentException("Got " + playerIndices.length + " players but " + scoreDeltas.length + " deltas");
+        }
+        applyBatch(playerIndices, scoreDeltas, playerIndices.length);
+    }
+
+    /**
+     * Splits a burst of score changes by shard and applies each shard's part as one
+     * {@link Leaderboard#applyBatch(int[], int[], int)}. Each part is atomic within its shard, the batch
+     * as a whole is not.
+     *
+     * @param playerIndices Indices from {@link #registerPlayer(String)}, only the first count are read.
+     * @param scoreDeltas The change to each player's score, only the first count are read.
+     * @param count The number of changes in the batch.
+     * @throws IllegalArgumentException if an index was never registered, before anything is applied.
+     */
+    public void applyBatch(int[] playerIndices, int[] scoreDeltas, int count) {
+        if (count < 0 || count > playerIndices.length || count > scoreDeltas.length) {
+            throw new IllegalArgumentException("count must be 0-" + Math.min(playerIndices.length, scoreDeltas.length));
+        }
+        // Counting sort by shard, so each shard's changes are one contiguous run
+        int[] starts = new int[shards.length + 1];
+        for (int i = 0; i < count; i++) {
+            int index = playerIndices[i];
+            if (index < 0 || index / shards.length >= shards[index % shards.length].registeredPlayers()) {
+                throw new IllegalArgumentException("No player registered at index " + index);
+            }
+            starts[index % shards.length + 1]++;
+        }
+        for (int s = 0; s < shards.length; s++) {
+            starts[s + 1] += starts[s];
+        }
+        int[] locals = new int[count];
+        int[] deltas = new int[count];
+        int[] next = starts.clone();
+        for (int i = 0; i < count; i++) {
+            int shard = playerIndices[i] % shards.length;
+            int at = next[shard]++;
+            locals[at] = playerIndices[i] / shards.length;
+            deltas[at] = scoreDeltas[i];
+        }
+
+        for (int s = 0; s < shards.length; s++) {
+            int from = starts[s];
+            int length = starts[s + 1] - from;
+            if (length == 0) {
+                continue;
+            }
+            if (from == 0) {
+                shards[s].applyBatch(locals, deltas, length);
+            } else {
+                int[] shardLocals = new int[length];
+                int[] shardDeltas = new int[length];
+                System.arraycopy(locals, from, shardLocals, 0, length);
+                System.arraycopy(deltas, from, shardDeltas, 0, length);
+                shards[s].applyBatch(shardLocals, shardDeltas, length);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the top N players across all shards, merging the shards' own top N lists.
+     * Each shard's list is from a single point in time, but the shards are read one after another, so the
+     * merged result is not: updates made meanwhile may show in one shard and not another, and a batch that
+     * spans shards may be seen in part.
+     *
+     * @param n The number of top players to retrieve.
+     * @return A list of player IDs representing the top N players, sorted by score (highest first).
+     */
+    public List<String> getTopNPlayers(int n) {
+        // Each cursor is a shard's list and the position of its head
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(shards.length, (a, b) -> BY_RANK.compare(a.head(), b.head()));
+        for (Leaderboard shard : shards) {
+            List<Leaderboard.PlayerEntry> entries = shard.getTopNEntries(n);
+            if (!entries.isEmpty()) {
+                heads.add(new Cursor(entries));
+            }
+        }
+        List<String> topPlayers = new ArrayList<>(Math.min(n, 1024));
+        while (topPlayers.size() < n && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            topPlayers.add(cursor.head().playerId());
+            if (++cursor.position < cursor.entries.size()) {
+                heads.add(cursor);
+            }
+        }
+        return topPlayers;
+    }
+
+    private static final class Cursor {
+        final List<Leaderboard.PlayerEntry> entries;
+        int position;
+
+        Cursor(List<Leaderboard.PlayerEntry> entries) {
+            this.entries = entries;
+        }
+
+        Leaderboard.PlayerEntry head() {
+            return entries.get(position);
+        }
+    }
+
+    /**
+     * Gets the current score of a specific player.
+     * @param playerId The ID of the player.
+     * @return The player's current score, or 0 if the player is not found.
+     */
+    public int getPlayerScore(String playerId) {
+        return shards[shardOf(playerId)].getPlayerScore(playerId);
+    }
+
+    /**
+     * Returns the total number of unique players across all shards.
+     * @return The count of unique players.
+     */
+    public int getTotalPlayers() {
+        int total = 0;
+        for (Leaderboard shard : shards) {
+            total += shard.getTotalPlayers();
+        }
+        return total;
+    }
+
+    /**
+     * Clears every shard. Updates running at the same time may survive the clear.
+     */
+    public void clear() {
+        for (Leaderboard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    private int shardOf(String playerId) {
+        int h = playerId.hashCode();
+        // Spread the high bits down, as HashMap does, so shard counts that are powers of two use them too
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+}
@@ -0,0 +1,123 @@
+package wood.mike.concurrency;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The on-disk form of a {@link LeaderboardSnapshot}, laid out for bulk loading: a header, then every score
+ * as one int array, every player ID length as one short array, then the UTF-8 bytes of the IDs back to back,
+ * all in rank order. Loading maps the file and copies each array out whole, the only objects made per
+ * player are the ID strings themselves.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x4C42534E; // "LBSN"
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES + Long.BYTES;
+    private static final int WRITE_BUFFER = 1 << 20;
+    // Largest stretch of ID bytes mapped at once
+    private static final long ID_WINDOW = 1L << 30;
+
+    /**
+     * The players of a snapshot file, parallel arrays in rank order
+     */
+    record Contents(String[] playerIds, int[] scores) {
+    }
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot to a temporary file, forces it, moves it into place and forces the directory, so the
+     * path either does not exist or holds a whole snapshot, and once this returns it survives a power loss
+     */
+    static void write(Path path, LeaderboardSnapshot snapshot) throws IOException {
+        int count = snapshot.size();
+        byte[][] ids = new byte[count][];
+        long idBytes = 0;
+        for (int i = 0; i < count; i++) {
+            ids[i] = snapshot.playerId(i + 1).getBytes(StandardCharsets.UTF_8);
+            idBytes += ids[i].length;
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER);
+            buffer.putInt(MAGIC).putInt(FORMAT).putInt(count).putLong(idBytes);
+            int[] scores = snapshot.scores();
+            for (int i = 0; i < count; i++) {
+                buffer = ensure(channel, buffer, Integer.BYTES).putInt(scores[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                buffer = ensure(channel, buffer, Short.BYTES).putShort((short) ids[i].length);
+            }
+            for (int i = 0; i < count; i++) {
+                buffer = ensure(channel, buffer, ids[i].length).put(ids[i]);
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // The rename must be durable before anything it replaces is deleted
+        WriteAheadLog.forceDirectory(path.getParent());
+    }
+
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT) {
+                throw new IOException(path + " is not a leaderboard snapshot");
+            }
+            int count = header.getInt();
+            long idBytes = header.getLong();
+            long scoresAt = HEADER_SIZE;
+            long lengthsAt = scoresAt + (long) count * Integer.BYTES;
+            long idsAt = lengthsAt + (long) count * Short.BYTES;
+            if (idsAt + idBytes != channel.size()) {
+                throw new IOException(path + " should be " + (idsAt + idBytes) + " bytes but is " + channel.size());
+            }
+
+            int[] scores = new int[count];
+            channel.map(FileChannel.MapMode.READ_ONLY, scoresAt, (long) count * Integer.BYTES).asIntBuffer().get(scores);
+            short[] lengths = new short[count];
+            channel.map(FileChannel.MapMode.READ_ONLY, lengthsAt, (long) count * Short.BYTES).asShortBuffer().get(lengths);
+
+            String[] playerIds = new String[count];
+            byte[] scratch = new byte[Short.MAX_VALUE];
+            long windowAt = idsAt;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowAt, Math.min(ID_WINDOW, idBytes));
+            for (int i = 0; i < count; i++) {
+                int length = lengths[i] & 0xFFFF;
+                if (window.remaining() < length) {
+                    windowAt += window.position();
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowAt, Math.min(ID_WINDOW, idsAt + idBytes - windowAt));
+                }
+                window.get(scratch, 0, length);
+                playerIds[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            return new Contents(playerIds, scores);
+        }
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(channel, buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package wood.mike.concurrency;
+
+import java.util.Arrays;
+
+/**
+ * Builds and publishes {@link LeaderboardSnapshot}s for a {@link Leaderboard}.
+ * <p>
+ * The rank index marks each player that moves, one bit per player, so writers allocate nothing and the marks
+ * never take more than the board. Publishing takes the marked players and their scores from the index
+ * under its read lock, so a snapshot reflects one moment and a batch is in it entirely or not at all, the first
+ * snapshot included. Only players that changed are re-sorted, then merged with the rest of the previous
+ * snapshot, O(n + d log d) for d changed players rather than a full sort. Players taken off the board are
+ * among the changes and are simply dropped from it.
+ */
+final class SnapshotPublisher {
+
+    private final PlayerRegistry registry;
+    private final RankIndex rankIndex;
+    private volatile LeaderboardSnapshot current;
+
+    // Guarded by this. Clears of the index seen so far, and marks to find the changed players by index.
+    private int clears;
+    private int[] changedMark = new int[0];
+    private int mark;
+
+    SnapshotPublisher(PlayerRegistry registry, RankIndex rankIndex) {
+        this.registry = registry;
+        this.rankIndex = rankIndex;
+        this.current = LeaderboardSnapshot.empty(0, registry);
+    }
+
+    LeaderboardSnapshot current() {
+        return current;
+    }
+
+    /**
+     * Applies the players changed since the last publish to the last snapshot and publishes the result
+     */
+    synchronized LeaderboardSnapshot publish() {
+        LeaderboardSnapshot base = current;
+        RankIndex.Changes changes = rankIndex.takeChanges();
+        if (changes.clears() != clears) {
+            // Everyone still on the board has moved since the clear, so is in the changes
+            clears = changes.clears();
+            base = LeaderboardSnapshot.empty(base.epoch(), registry);
+        }
+        mark++;
+        if (changedMark.length < registry.size()) {
+            changedMark = Arrays.copyOf(changedMark, registry.size());
+        }
+        for (int i = 0; i < changes.count(); i++) {
+            changedMark[changes.players()[i]] = mark;
+        }
+        // Marked so their base entries are skipped, with nothing to place again
+        for (int player : changes.removed()) {
+            changedMark[player] = mark;
+        }
+
+        LeaderboardSnapshot next = merge(base, changes);
+        current = next;
+        return next;
+    }
+
+    /**
+     * Merges the sorted changed players into the base snapshot less those players
+     */
+    private LeaderboardSnapshot merge(LeaderboardSnapshot base, RankIndex.Changes changes) {
+        int[] scoreOf = changes.scores();
+        Integer[] moved = new Integer[changes.count()];
+        for (int i = 0; i < moved.length; i++) {
+            moved[i] = i;
+        }
+        Arrays.sort(moved, (a, b) -> compare(scoreOf[a], changes.players()[a], scoreOf[b], changes.players()[b]));
+
+        int[] basePlayers = base.playerIndices();
+        int[] baseScores = base.scores();
+        int[] players = new int[basePlayers.length + moved.length];
+        int[] scores = new int[players.length];
+        int size = 0;
+        int b = 0;
+        int m = 0;
+        while (true) {
+            // Skip base entries for players that changed, they are placed again from moved
+            while (b < basePlayers.length && isChanged(basePlayers[b])) {
+                b++;
+            }
+            boolean baseLeft = b < basePlayers.length;
+            boolean movedLeft = m < moved.length;
+            if (!baseLeft && !movedLeft) {
+                break;
+            }
+            if (!movedLeft || baseLeft && compare(baseScores[b], basePlayers[b], scoreOf[moved[m]], changes.players()[moved[m]]) < 0) {
+                players[size] = basePlayers[b];
+                scores[size++] = baseScores[b++];
+            } else {
+                int change = moved[m++];
+                players[size] = changes.players()[change];
+                scores[size++] = scoreOf[change];
+            }
+        }
+        return new LeaderboardSnapshot(base.epoch() + 1, Arrays.copyOf(players, size), Arrays.copyOf(scores, size), registry);
+    }
+
+    private boolean isChanged(int player) {
+        return player < changedMark.length && changedMark[player] == mark;
+    }
+
+    /**
+     * Highest score first, then player ID, as the leaderboard orders them
+     */
+    private int compare(int scoreA, int playerA, int scoreB, int playerB) {
+        int byScore = Integer.compare(scoreB, scoreA);
+        return byScore != 0 ? byScore : registry.playerId(playerA).compareTo(registry.playerId(playerB));
+    }
+}
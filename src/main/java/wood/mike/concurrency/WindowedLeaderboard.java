@@ -0,0 +1,306 @@
+package wood.mike.concurrency;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A leaderboard of the points scored in a rolling window, e.g. the last hour, day or week.
+ * <p>
+ * The window is cut into buckets of equal width held in a ring, one slot per bucket. Each point scored is
+ * added to the player's sum in the bucket for its time and to their running total on an inner {@link Leaderboard}.
+ * When a bucket leaves the window its sums are taken off the totals in one batch, so the totals roll forward
+ * incrementally and nothing is ever recomputed from scratch. The ring gives the same oldest-first expiry as
+ * the time-ordered maps of {@link ConcurrentSkipListMapPlay}, in fixed space.
+ * <p>
+ * Expiry runs on a schedule, see {@link #scheduleExpiry(ScheduledExecutorService)}, so totals are accurate to
+ * one bucket width. A bucket whose slot is needed by a newer one is expired on the spot, however late the schedule.
+ * A player whose window total falls to 0 is taken off the board, by expiry or by negative points, and ranks 0
+ * until they score again.
+ */
+public class WindowedLeaderboard {
+
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final Clock clock;
+    private final Duration window;
+    private final long bucketMillis;
+    private final int bucketCount;
+    // Slot index % bucketCount holds the bucket with that index, or an older one until it is replaced
+    private final AtomicReferenceArray<Bucket> ring;
+
+    /**
+     * Each player's points in one bucket width, by registry index. Writers add under the read lock, expiry takes
+     * the write lock, so every sum it takes off has already been added to the totals.
+     * <p>
+     * The sums are ints in pages, allocated when a player in a page's range first scores in the bucket, so a
+     * bucket costs little more than its active players and adding to a sum is one atomic add with no boxing.
+     */
+    private static final class Bucket {
+        private static final int PAGE_BITS = 10;
+        private static final int PAGE_SIZE = 1 << PAGE_BITS;
+        private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+        final long index;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        boolean expired; // Guarded by lock
+        // Copied on write, so a page once published is never replaced and no add to it is lost
+        private volatile AtomicIntegerArray[] pages = new AtomicIntegerArray[0];
+
+        Bucket(long index) {
+            this.index = index;
+        }
+
+        void add(int player, int points) {
+            AtomicIntegerArray[] current = pages;
+            int page = player >>> PAGE_BITS;
+            AtomicIntegerArray sums = page < current.length ? current[page] : null;
+            if (sums == null) {
+                sums = allocate(page);
+            }
+            sums.addAndGet(player & PAGE_MASK, points);
+        }
+
+        private synchronized AtomicIntegerArray allocate(int page) {
+            AtomicIntegerArray[] current = pages;
+            if (page < current.length && current[page] != null) {
+                return current[page];
+            }
+            AtomicIntegerArray[] grown = Arrays.copyOf(current, Math.max(current.length, page + 1));
+            grown[page] = new AtomicIntegerArray(PAGE_SIZE);
+            pages = grown;
+            return grown[page];
+        }
+
+        /**
+         * Takes every sum off the totals as one batch and empties the bucket, call holding the write lock
+         */
+        void takeOff(Leaderboard totals) {
+            AtomicIntegerArray[] current = pages;
+            int count = 0;
+            for (AtomicIntegerArray sums : current) {
+                for (int slot = 0; sums != null && slot < PAGE_SIZE; slot++) {
+                    if (sums.get(slot) != 0) {
+                        count++;
+                    }
+                }
+            }
+            int[] players = new int[count];
+            int[] deltas = new int[count];
+            count = 0;
+            for (int page = 0; page < current.length; page++) {
+                for (int slot = 0; current[page] != null && slot < PAGE_SIZE; slot++) {
+                    int sum = current[page].get(slot);
+                    if (sum != 0) {
+                        players[count] = page << PAGE_BITS | slot;
+                        deltas[count++] = -sum;
+                    }
+                }
+            }
+            totals.applyBatchDroppingZeros(players, deltas, count);
+            pages = new AtomicIntegerArray[0];
+        }
+    }
+
+    /**
+     * Constructs a windowed leaderboard.
+     *
+     * @param window The length of the window, a whole number of buckets.
+     * @param bucketWidth The width of a bucket, which is how often the window moves on.
+     * @param clock The clock that timestamps points scored and drives expiry.
+     */
+    public WindowedLeaderboard(Duration window, Duration bucketWidth, Clock clock) {
+        if (bucketWidth.toMillis() < 1 || window.compareTo(bucketWidth) < 0) {
+            throw new IllegalArgumentException("Need a bucket width of at least 1ms and no longer than the window");
+        }
+        if (window.toMillis() % bucketWidth.toMillis() != 0) {
+            throw new IllegalArgumentException("A window of " + window + " is not a whole number of " + bucketWidth + " buckets");
+        }
+        this.clock = clock;
+        this.window = window;
+        this.bucketMillis = bucketWidth.toMillis();
+        this.bucketCount = Math.toIntExact(window.toMillis() / bucketMillis);
+        this.ring = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    /**
+     * The last hour, moving on every minute
+     */
+    public static WindowedLeaderboard hourly(Clock clock) {
+        return new WindowedLeaderboard(Duration.ofHours(1), Duration.ofMinutes(1), clock);
+    }
+
+    /**
+     * The last day, moving on every 15 minutes
+     */
+    public static WindowedLeaderboard daily(Clock clock) {
+        return new WindowedLeaderboard(Duration.ofDays(1), Duration.ofMinutes(15), clock);
+    }
+
+    /**
+     * The last week, moving on every hour
+     */
+    public static WindowedLeaderboard weekly(Clock clock) {
+        return new WindowedLeaderboard(Duration.ofDays(7), Duration.ofHours(1), clock);
+    }
+
+    public Duration window() {
+        return window;
+    }
+
+    /**
+     * Adds points scored now to a player's window total.
+     *
+     * @param playerId The unique ID of the player.
+     * @param points The points scored.
+     */
+    public void addScore(String playerId, int points) {
+        addScore(playerId, points, clock.instant());
+    }
+
+    /**
+     * Adds points scored at a given time to a player's window total. A time ahead of the clock counts as now.
+     *
+     * @param playerId The unique ID of the player.
+     * @param points The points scored.
+     * @param scoredAt When the points were scored.
+     * @return false if the time has already left the window, so the points were not counted.
+     */
+    public boolean addScore(String playerId, int points, Instant scoredAt) {
+        long now = bucketIndex(clock.instant());
+        long index = Math.min(bucketIndex(scoredAt), now);
+        if (index <= now - bucketCount) {
+            return false;
+        }
+        int player = leaderboard.registerPlayer(playerId);
+        Bucket bucket = bucketFor(index);
+        if (bucket == null) {
+            return false;
+        }
+        ReentrantReadWriteLock.ReadLock lock = bucket.lock.readLock();
+        lock.lock();
+        try {
+            if (bucket.expired) {
+                return false;
+            }
+            bucket.add(player, points);
+            leaderboard.addScoreDroppingZero(player, points);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the buckets that have left the window off the totals. Called by the schedule, or directly.
+     */
+    public void expire() {
+        expireBefore(bucketIndex(clock.instant()) - bucketCount + 1);
+    }
+
+    /**
+     * Runs {@link #expire()} at every bucket boundary, the first at the next one.
+     *
+     * @return The scheduled task, cancel it to stop expiry.
+     */
+    public ScheduledFuture<?> scheduleExpiry(ScheduledExecutorService scheduler) {
+        long untilBoundary = bucketMillis - Math.floorMod(clock.millis(), bucketMillis);
+        return scheduler.scheduleAtFixedRate(this::expire, untilBoundary, bucketMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Retrieves the top N players by points scored in the window.
+     *
+     * @param n The number of top players to retrieve.
+     * @return A list of player IDs, highest window total first.
+     */
+    public List<String> getTopNPlayers(int n) {
+        return leaderboard.getTopNPlayers(n);
+    }
+
+    /**
+     * @param playerId The ID of the player.
+     * @return The player's points in the window, or 0 if they have none.
+     */
+    public int getPlayerScore(String playerId) {
+        return leaderboard.getPlayerScore(playerId);
+    }
+
+    /**
+     * @param playerId The ID of the player.
+     * @return The player's rank in the window, 1 being the top, or 0 if the player is not found.
+     */
+    public int getRank(String playerId) {
+        return leaderboard.getRank(playerId);
+    }
+
+    /**
+     * Publishes a point-in-time snapshot of the window totals, see {@link Leaderboard#publishSnapshot()}.
+     * A bucket's expiry is one batch, so a snapshot never holds a half-expired bucket.
+     */
+    public LeaderboardSnapshot publishSnapshot() {
+        return leaderboard.publishSnapshot();
+    }
+
+    private long bucketIndex(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli(), bucketMillis);
+    }
+
+    /**
+     * The bucket with the given index, claiming its slot from the bucket before it if need be
+     *
+     * @return the bucket, or null if a newer one has the slot, so this one has left the window
+     */
+    private Bucket bucketFor(long index) {
+        int slot = (int) Math.floorMod(index, (long) bucketCount);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.index == index) {
+                return bucket;
+            }
+            if (bucket != null && bucket.index > index) {
+                return null;
+            }
+            // The slot is empty or holds a bucket that has left the window, which must be off the totals first
+            expireBefore(index - bucketCount + 1);
+            Bucket fresh = new Bucket(index);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    /**
+     * Expires every bucket with an index below the cutoff, each as one batch of negative points that takes
+     * players left at 0 off the board
+     */
+    private synchronized void expireBefore(long cutoff) {
+        for (int slot = 0; slot < bucketCount; slot++) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.index < cutoff) {
+                expire(bucket);
+            }
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        ReentrantReadWriteLock.WriteLock lock = bucket.lock.writeLock();
+        lock.lock();
+        try {
+            if (bucket.expired) {
+                return;
+            }
+            bucket.expired = true;
+            bucket.takeOff(leaderboard);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
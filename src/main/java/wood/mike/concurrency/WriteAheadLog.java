@@ -0,0 +1,304 @@
+package wood.mike.concurrency;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The write-ahead log of a {@link PersistentLeaderboard}: score changes appended to numbered segment files
+ * through a FileChannel. Each record is one batch of players and their new scores,
+ * an int length and CRC32 then the body, so a record torn by a crash is found and dropped on replay.
+ * <p>
+ * Appends go into a buffer in memory. {@link #sync(long)} makes a record durable by group commit: the first
+ * waiting thread writes and forces everything appended so far in one go while later ones wait, so one fsync
+ * covers every update that arrived during the last one.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_ID_BYTES = Short.MAX_VALUE;
+
+    /**
+     * Receives the records of a segment as it is replayed
+     */
+    interface Replay {
+        void apply(String[] playerIds, int[] scores, int count);
+    }
+
+    private final Path directory;
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long segment;
+    // Guarded by this. Records not yet written, swapped with spare while a sync writes them.
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private long appended;
+    private long durable;
+    private boolean syncing;
+    private boolean closed;
+    private IOException failure;
+
+    private WriteAheadLog(Path directory, long segment) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+    }
+
+    /**
+     * Starts a new segment to append to, replay any earlier ones first
+     */
+    static WriteAheadLog open(Path directory, long segment) throws IOException {
+        return new WriteAheadLog(directory, segment);
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%08d.wal", segment));
+    }
+
+    /**
+     * Applies every complete record of a segment in order and cuts off any torn record at the end
+     *
+     * @return the number of records applied
+     */
+    static int replay(Path directory, long segment, Replay replay) throws IOException {
+        Path path = segmentPath(directory, segment);
+        int records = 0;
+        long valid = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            CRC32 crc = new CRC32();
+            byte[] body = new byte[1024];
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < Integer.BYTES || length > channel.size()) {
+                        break;
+                    }
+                    if (body.length < length) {
+                        body = new byte[Math.max(length, body.length * 2)];
+                    }
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                applyRecord(ByteBuffer.wrap(body, 0, length), replay);
+                records++;
+                valid += HEADER_SIZE + length;
+            }
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+            }
+        }
+        return records;
+    }
+
+    private static void applyRecord(ByteBuffer body, Replay replay) {
+        int count = body.getInt();
+        String[] playerIds = new String[count];
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            int idLength = body.getShort() & 0xFFFF;
+            playerIds[i] = new String(body.array(), body.position(), idLength, StandardCharsets.UTF_8);
+            body.position(body.position() + idLength);
+            scores[i] = body.getInt();
+        }
+        replay.apply(playerIds, scores, count);
+    }
+
+    long segment() {
+        return segment;
+    }
+
+    /**
+     * Buffers one record of the first count players and their new scores
+     *
+     * @return the record's sequence number, to pass to {@link #sync(long)}
+     * @throws IOException if the log is closed or an earlier write failed, it takes nothing more after either
+     */
+    synchronized long append(String[] playerIds, int[] scores, int count) throws IOException {
+        checkHealthy();
+        byte[][] ids = new byte[count][];
+        int length = Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            ids[i] = playerIds[i].getBytes(StandardCharsets.UTF_8);
+            if (ids[i].length > MAX_ID_BYTES) {
+                throw new IllegalArgumentException("Player ID is longer than " + MAX_ID_BYTES + " bytes: " + playerIds[i].substring(0, 32) + "...");
+            }
+            length += Short.BYTES + ids[i].length + Integer.BYTES;
+        }
+        if (pending.remaining() < HEADER_SIZE + length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + HEADER_SIZE + length));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+
+        int start = pending.position();
+        pending.position(start + HEADER_SIZE);
+        pending.putInt(count);
+        for (int i = 0; i < count; i++) {
+            pending.putShort((short) ids[i].length);
+            pending.put(ids[i]);
+            pending.putInt(scores[i]);
+        }
+        crc.reset();
+        crc.update(pending.array(), start + HEADER_SIZE, length);
+        pending.putInt(start, length);
+        pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+        return ++appended;
+    }
+
+    /**
+     * Returns once the record with the given sequence number is on disk, writing it and everything
+     * buffered with it if no other thread is already doing so
+     */
+    void sync(long sequence) throws IOException {
+        ByteBuffer batch;
+        long upTo;
+        FileChannel target;
+        synchronized (this) {
+            while (durable < sequence && syncing) {
+                awaitSync();
+            }
+            if (durable >= sequence) {
+                return;
+            }
+            checkHealthy();
+            syncing = true;
+            batch = pending;
+            pending = spare;
+            upTo = appended;
+            target = channel;
+        }
+
+        try {
+            write(target, batch);
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                syncing = false;
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            batch.clear();
+            spare = batch;
+            durable = upTo;
+            syncing = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Makes everything appended so far durable and starts the next segment
+     *
+     * @return the new segment's number, every record before it is in earlier segments
+     */
+    synchronized long roll() throws IOException {
+        while (syncing) {
+            awaitSync();
+        }
+        checkHealthy();
+        try {
+            write(channel, pending);
+            pending.clear();
+            durable = appended;
+            channel.close();
+            channel = openSegment(++segment);
+        } catch (IOException e) {
+            // Some of pending may be written and the channel may be closed, nothing more can be appended safely
+            failure = e;
+            throw e;
+        } finally {
+            notifyAll();
+        }
+        return segment;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        while (syncing) {
+            awaitSync();
+        }
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (failure == null) {
+                write(channel, pending);
+                pending.clear();
+                durable = appended;
+            }
+        } finally {
+            channel.close();
+            notifyAll();
+        }
+    }
+
+    private FileChannel openSegment(long segment) throws IOException {
+        FileChannel opened = FileChannel.open(segmentPath(directory, segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Forcing the file keeps its data, the new name needs the directory forced too
+        try {
+            forceDirectory(directory);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    /**
+     * Makes files created, renamed or deleted in the directory so far durable
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer records) throws IOException {
+        records.flip();
+        while (records.hasRemaining()) {
+            channel.write(records);
+        }
+        channel.force(false);
+    }
+
+    private void awaitSync() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the write-ahead log");
+        }
+    }
+
+    private void checkHealthy() throws IOException {
+        if (closed) {
+            throw new IOException("Write-ahead log is closed");
+        }
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed earlier", failure);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package wood.mike.itso;
+
+/**
+ * Reads fields written by {@link BitWriter}, most significant bit first. Reusable via {@link #wrap(byte[], int)}.
+ */
+public class BitReader {
+
+    private byte[] src;
+    private int offset;
+    private int bitPosition;
+
+    public BitReader(byte[] src, int offset) {
+        wrap(src, offset);
+    }
+
+    public BitReader wrap(byte[] src, int offset) {
+        this.src = src;
+        this.offset = offset;
+        this.bitPosition = 0;
+        return this;
+    }
+
+    /**
+     * @return the next bits as an unsigned value
+     */
+    public long read(int bits) {
+        if (bits < 1 || bits > Long.SIZE) {
+            throw new IllegalArgumentException("Bit count must be 1-64 but was " + bits);
+        }
+        long value = 0;
+        while (bits > 0) {
+            int used = bitPosition & 7;
+            int take = Math.min(8 - used, bits);
+            int current = src[offset + (bitPosition >>> 3)] & 0xFF;
+            int chunk = (current >>> (8 - used - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            bitPosition += take;
+            bits -= take;
+        }
+        return value;
+    }
+
+    /**
+     * Bits read since the last wrap
+     */
+    public int bitPosition() {
+        return bitPosition;
+    }
+}
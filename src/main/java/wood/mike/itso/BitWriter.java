@@ -0,0 +1,79 @@
+package wood.mike.itso;
+
+/**
+ * Writes fields most significant bit first into a byte array with no padding between them,
+ * the packed counterpart of {@link ItsoElement#encodeTo(byte[], int)}. Reusable via {@link #wrap(byte[], int)}.
+ * <p>
+ * Bits are gathered in a long and stored a whole byte at a time, so call {@link #finish()}
+ * to flush the final partial byte.
+ */
+public class BitWriter {
+
+    // Widest write that can be added to up to 7 pending bits without overflowing the accumulator
+    private static final int MAX_SINGLE_WRITE = 56;
+
+    private byte[] dst;
+    private int offset;
+    private int bytePosition;
+    private long pending;
+    private int pendingBits;
+
+    public BitWriter(byte[] dst, int offset) {
+        wrap(dst, offset);
+    }
+
+    public BitWriter wrap(byte[] dst, int offset) {
+        this.dst = dst;
+        this.offset = offset;
+        this.bytePosition = 0;
+        this.pending = 0;
+        this.pendingBits = 0;
+        return this;
+    }
+
+    /**
+     * Appends the low bits of value. Values that do not fit are rejected rather than silently truncated.
+     */
+    public BitWriter write(long value, int bits) {
+        if (bits < 1 || bits > Long.SIZE) {
+            throw new IllegalArgumentException("Bit count must be 1-64 but was " + bits);
+        }
+        if (bits < Long.SIZE && (value >>> bits) != 0) {
+            throw new IllegalArgumentException("Value " + value + " does not fit in " + bits + " bits");
+        }
+        if (bits > MAX_SINGLE_WRITE) {
+            append(value >>> 32, bits - 32);
+            append(value & 0xFFFF_FFFFL, 32);
+        } else {
+            append(value, bits);
+        }
+        return this;
+    }
+
+    private void append(long value, int bits) {
+        pending = (pending << bits) | value;
+        pendingBits += bits;
+        while (pendingBits >= 8) {
+            pendingBits -= 8;
+            dst[offset + bytePosition++] = (byte) (pending >>> pendingBits);
+        }
+    }
+
+    /**
+     * Bits written since the last wrap
+     */
+    public int bitPosition() {
+        return (bytePosition << 3) + pendingBits;
+    }
+
+    /**
+     * Flushes the final partial byte, zero padded
+     * @return the offset after the last byte written
+     */
+    public int finish() {
+        if (pendingBits > 0) {
+            dst[offset + bytePosition] = (byte) (pending << (8 - pendingBits));
+        }
+        return offset + bytePosition + (pendingBits > 0 ? 1 : 0);
+    }
+}
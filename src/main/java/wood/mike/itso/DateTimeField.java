@@ -1,42 +1,97 @@
 package wood.mike.itso;
 
-import lombok.Getter;
-
 import java.time.LocalDateTime;
-import java.time.Duration;
 
-@Getter
+/**
+ * Thin wrapper over the primitive epoch minutes form, see {@link DtsCodec}.
+ * The LocalDateTime is only materialised when asked for.
+ */
 public class DateTimeField implements ItsoElement {
-    // Epoch: 24/11/2028 20:16:00
-    private static final LocalDateTime ITSO_EPOCH = LocalDateTime.of(2028, 11, 24, 20, 16, 0);
-    private final LocalDateTime value;
+    // 24 bits masked, so always exactly six characters
+    static final int HEX_CHARS = 6;
+    static final int BITS = 24;
+    private final int epochMinutes;
 
     public DateTimeField(LocalDateTime value) {
-        this.value = value;
+        this(DtsCodec.toEpochMinutes(value));
+    }
+
+    private DateTimeField(int epochMinutes) {
+        this.epochMinutes = epochMinutes;
+    }
+
+    public static DateTimeField ofEpochMinutes(final int epochMinutes) {
+        return new DateTimeField(epochMinutes);
+    }
+
+    public static DateTimeField fromDts(final int dts) {
+        return new DateTimeField(DtsCodec.toEpochMinutes(dts));
     }
 
     /**
      * Decode a 24-bit hex DTS (e.g., "FFFFFF" -> -1 minute)
      */
     public static DateTimeField fromHex(final String hex) {
-        // 1. Parse as unsigned integer first
-        int raw = Integer.parseInt(hex, 16);
+        // Parse as unsigned integer first, no substring or boxing involved
+        return fromDts((int) HexCodec.parseHex(hex, 0, hex.length()));
+    }
 
-        // 2. Sign-extend from 24-bit to 32-bit Java int
-        // If the 23rd bit (0x800000) is set, it's a negative number
-        int minutes = (raw << 8) >> 8;
+    /**
+     * Decode a raw 24-bit DTS
+     */
+    public static LocalDateTime toLocalDateTime(final int dts) {
+        return DtsMaterializer.UTC.fromDts(dts);
+    }
+
+    /**
+     * Encode to the 24-bit DTS, minutes relative to the ITSO epoch
+     */
+    public static int toDts(final LocalDateTime value) {
+        return DtsCodec.toDts(value);
+    }
+
+    public int getEpochMinutes() {
+        return epochMinutes;
+    }
 
-        return new DateTimeField(ITSO_EPOCH.plusMinutes(minutes));
+    public int getDts() {
+        return DtsCodec.toDts(epochMinutes);
+    }
+
+    /**
+     * Materialised to the minute, the DTS holds nothing finer
+     */
+    public LocalDateTime getValue() {
+        return DtsMaterializer.UTC.toLocalDateTime(epochMinutes);
     }
 
     @Override
     public String toTransportFormat() {
-        long minutes = Duration.between(ITSO_EPOCH, value).toMinutes();
+        return String.format("%06X", getDts());
+    }
+
+    public static DateTimeField fromBits(BitReader in) {
+        return fromDts((int) in.read(BITS));
+    }
+
+    @Override
+    public int bitLength() {
+        return BITS;
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        out.write(getDts(), BITS);
+    }
 
-        // Mask to 24 bits to handle negative numbers correctly in hex string
-        int maskedMinutes = (int) minutes & 0xFFFFFF;
+    @Override
+    public int encodedLength() {
+        return HEX_CHARS;
+    }
 
-        return String.format("%06X", maskedMinutes);
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        return HexCodec.writeHex(dst, offset, getDts(), HEX_CHARS);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package wood.mike.itso;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Primitive DTS conversions. Times are ints counting minutes since 1970-01-01T00:00, the "epoch minutes",
+ * and the 24-bit DTS is the signed minute offset from the ITSO epoch. Everything here is integer
+ * arithmetic, use {@link DtsMaterializer} when a LocalDateTime is actually needed.
+ */
+public final class DtsCodec {
+
+    // Epoch: 24/11/2028 20:16:00
+    private static final LocalDateTime ITSO_EPOCH = LocalDateTime.of(2028, 11, 24, 20, 16, 0);
+    public static final int ITSO_EPOCH_MINUTES = (int) (ITSO_EPOCH.toEpochSecond(ZoneOffset.UTC) / 60);
+
+    public static final int DTS_MASK = 0xFFFFFF;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private DtsCodec() {
+
+    }
+
+    /**
+     * Encode epoch minutes to the 24-bit DTS, wrapping outside the representable range as the hex form always has
+     */
+    public static int toDts(int epochMinutes) {
+        return (epochMinutes - ITSO_EPOCH_MINUTES) & DTS_MASK;
+    }
+
+    /**
+     * Decode a 24-bit DTS (e.g. 0xFFFFFF -> one minute before the ITSO epoch) to epoch minutes
+     */
+    public static int toEpochMinutes(int dts) {
+        // Sign-extend from 24-bit to 32-bit Java int
+        // If the 23rd bit (0x800000) is set, it's a negative number
+        return ITSO_EPOCH_MINUTES + ((dts << 8) >> 8);
+    }
+
+    /**
+     * Epoch minutes of a date/time, read from its fields without allocating.
+     * Seconds are dropped towards the ITSO epoch, matching the original Duration based conversion.
+     *
+     * @throws IllegalArgumentException if the minutes do not fit in an int, roughly years 0 to 6053
+     */
+    public static int toEpochMinutes(LocalDateTime value) {
+        long minutes = epochMinutes(value);
+        if (minutes != (int) minutes) {
+            throw new IllegalArgumentException(value + " is outside the epoch minutes range");
+        }
+        return (int) minutes;
+    }
+
+    /**
+     * Shortcut for {@code toDts(toEpochMinutes(value))}, except that it wraps for any date/time, as the
+     * Duration based conversion did, rather than throw where the epoch minutes would not fit in an int
+     */
+    public static int toDts(LocalDateTime value) {
+        return (int) (epochMinutes(value) - ITSO_EPOCH_MINUTES) & DTS_MASK;
+    }
+
+    private static long epochMinutes(LocalDateTime value) {
+        long minutes = value.toLocalDate().toEpochDay() * MINUTES_PER_DAY + value.getHour() * 60L + value.getMinute();
+        if (minutes < ITSO_EPOCH_MINUTES && (value.getSecond() | value.getNano()) != 0) {
+            minutes++;
+        }
+        return minutes;
+    }
+}
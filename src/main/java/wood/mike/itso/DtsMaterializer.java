@@ -0,0 +1,52 @@
+package wood.mike.itso;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Turns epoch minutes back into LocalDateTimes for one zone, only when asked. Taps arrive clustered
+ * in time so results are kept in a small direct mapped cache indexed by the minute.
+ * Thread-safe, each cache slot is a single immutable entry so a racing reader sees a whole entry or a miss.
+ */
+public class DtsMaterializer {
+
+    /**
+     * Epoch minutes read as UTC, which gives the zone-less LocalDateTimes the ITSO classes have always used
+     */
+    public static final DtsMaterializer UTC = new DtsMaterializer(ZoneOffset.UTC);
+
+    private static final int CACHE_SIZE = 1024;
+    private static final int CACHE_MASK = CACHE_SIZE - 1;
+
+    private final ZoneId zone;
+    private final Entry[] cache = new Entry[CACHE_SIZE];
+
+    private record Entry(int epochMinutes, LocalDateTime value) {}
+
+    public DtsMaterializer(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public LocalDateTime toLocalDateTime(int epochMinutes) {
+        int slot = epochMinutes & CACHE_MASK;
+        Entry entry = cache[slot];
+        if (entry == null || entry.epochMinutes != epochMinutes) {
+            entry = new Entry(epochMinutes, LocalDateTime.ofInstant(Instant.ofEpochSecond(epochMinutes * 60L), zone));
+            cache[slot] = entry;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Shortcut for decoding a 24-bit DTS straight to a LocalDateTime
+     */
+    public LocalDateTime fromDts(int dts) {
+        return toLocalDateTime(DtsCodec.toEpochMinutes(dts));
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+}
@@ -0,0 +1,148 @@
+package wood.mike.itso;
+
+import java.util.Arrays;
+
+/**
+ * Table driven hex/ASCII codec used by the {@link ItsoElement#encodeTo(byte[], int)} path
+ * and by {@link StandardElementsDecoder}.
+ * Output matches {@code String.format("%0nX", value)} exactly, including values that
+ * need more than n characters, but nothing is allocated per call.
+ */
+public final class HexCodec {
+
+    private static final byte[] DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+
+    // Two ASCII hex characters per byte value, high nibble first
+    private static final byte[] BYTE_TO_HEX = new byte[256 * 2];
+
+    // Nibble value per ASCII character, -1 for anything that is not a hex digit
+    private static final byte[] NIBBLES = new byte[128];
+
+    private static final int MAX_HEX_CHARS = 16;
+
+    private static final int INITIAL_SCRATCH_SIZE = 256;
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[INITIAL_SCRATCH_SIZE]);
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            BYTE_TO_HEX[b * 2] = DIGITS[b >>> 4];
+            BYTE_TO_HEX[b * 2 + 1] = DIGITS[b & 0xF];
+        }
+        Arrays.fill(NIBBLES, (byte) -1);
+        for (int n = 0; n < 16; n++) {
+            NIBBLES[DIGITS[n]] = (byte) n;
+            NIBBLES[Character.toLowerCase(DIGITS[n])] = (byte) n;
+        }
+    }
+
+    private HexCodec() {
+
+    }
+
+    /**
+     * The number of characters %0nX produces, i.e. hexChars unless the value needs more
+     */
+    public static int hexLength(long value, int hexChars) {
+        int significant = (Long.SIZE - Long.numberOfLeadingZeros(value) + 3) >>> 2;
+        return Math.max(significant, hexChars);
+    }
+
+    /**
+     * Writes value as zero padded uppercase hex, two characters per table lookup.
+     * @return the offset after the last character written
+     */
+    public static int writeHex(byte[] dst, int offset, long value, int hexChars) {
+        int end = offset + hexLength(value, hexChars);
+        int i = end;
+        while (i - offset >= 2) {
+            int b = (int) (value & 0xFF) << 1;
+            dst[--i] = BYTE_TO_HEX[b + 1];
+            dst[--i] = BYTE_TO_HEX[b];
+            value >>>= 8;
+        }
+        if (i > offset) {
+            dst[--i] = DIGITS[(int) (value & 0xF)];
+        }
+        return end;
+    }
+
+    /**
+     * Writes a non-negative value as exactly digits decimal characters, e.g. a six digit IIN
+     * @return the offset after the last character written
+     */
+    public static int writeDecimal(byte[] dst, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            dst[i] = DIGITS[value % 10];
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+    /**
+     * Parses hex characters in [from, to) without creating a substring, either case accepted
+     */
+    public static long parseHex(CharSequence chars, int from, int to) {
+        if (to <= from || to - from > MAX_HEX_CHARS) {
+            throw new IllegalArgumentException("Expected 1 to " + MAX_HEX_CHARS + " hex characters at " + from);
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = chars.charAt(i);
+            int nibble = c < NIBBLES.length ? NIBBLES[c] : -1;
+            if (nibble < 0) {
+                throw new IllegalArgumentException("Invalid hex character '" + c + "' at " + i);
+            }
+            value = (value << 4) | nibble;
+        }
+        return value;
+    }
+
+    /**
+     * Parses decimal digits in [from, to), used for the IIN part of an IPEID
+     */
+    public static int parseDecimal(CharSequence chars, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid digit '" + chars.charAt(i) + "' at " + i);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * True for 0-9, a-f and A-F
+     */
+    public static boolean isHex(char c) {
+        return c < NIBBLES.length && NIBBLES[c] >= 0;
+    }
+
+    /**
+     * Copies an already formatted ASCII string, e.g. an IIN or a raw hex field
+     * @return the offset after the last character written
+     */
+    public static int writeAscii(byte[] dst, int offset, CharSequence chars) {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = (byte) chars.charAt(i);
+        }
+        return offset + length;
+    }
+
+    /**
+     * Per thread buffer used to stage output for buffers without an accessible backing array
+     */
+    static byte[] scratch(int length) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+}
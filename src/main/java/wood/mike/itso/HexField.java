@@ -19,4 +19,28 @@ public class HexField implements ItsoElement {
         // Hexadecimal, uppercase, padded with zeros
         return String.format(STR."%0\{hexChars}X", value);
     }
+
+    public static HexField fromBits(BitReader in, int hexChars) {
+        return new HexField(in.read(hexChars * 4), hexChars);
+    }
+
+    @Override
+    public int bitLength() {
+        return hexChars * 4;
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        out.write(value, bitLength());
+    }
+
+    @Override
+    public int encodedLength() {
+        return HexCodec.hexLength(value, hexChars);
+    }
+
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        return HexCodec.writeHex(dst, offset, value, hexChars);
+    }
 }
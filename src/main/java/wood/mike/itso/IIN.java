@@ -1,20 +1,41 @@
 package wood.mike.itso;
 
-import java.util.regex.Pattern;
-
 public class IIN implements ItsoElement{
 
     private static final int EXPECTED_LENGTH = 6;
-    private static final Pattern DIGITS_ONLY = Pattern.compile("\\d+");
+    // Packed as BCD, one nibble per digit
+    static final int BITS = EXPECTED_LENGTH * 4;
 
     private final String iin;
 
     public IIN(String iin) {
+        this.iin = requireValid(iin);
+    }
+
+    static String requireValid(String iin) {
         // Must be numeric and correct length
-        if (iin == null || iin.length() != EXPECTED_LENGTH || !DIGITS_ONLY.matcher(iin).matches()) {
+        if (parse(iin) < 0) {
             throw new IllegalArgumentException("IIN must be exactly " + EXPECTED_LENGTH + " digits");
         }
-        this.iin = iin;
+        return iin;
+    }
+
+    /**
+     * @return the IIN as an int, or -1 if it is not exactly six ASCII digits
+     */
+    static int parse(String iin) {
+        if (iin == null || iin.length() != EXPECTED_LENGTH) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < EXPECTED_LENGTH; i++) {
+            int digit = iin.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
     }
 
     /**
@@ -29,6 +50,57 @@ public class IIN implements ItsoElement{
         return iin;
     }
 
+    public static IIN fromBits(BitReader in) {
+        char[] digits = new char[EXPECTED_LENGTH];
+        int bcd = readBcd(in);
+        for (int i = EXPECTED_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + bcd % 10);
+            bcd /= 10;
+        }
+        return new IIN(new String(digits));
+    }
+
+    static void writeBcd(BitWriter out, int iin) {
+        int bcd = 0;
+        for (int shift = 0; shift < BITS; shift += 4) {
+            bcd |= (iin % 10) << shift;
+            iin /= 10;
+        }
+        out.write(bcd, BITS);
+    }
+
+    static int readBcd(BitReader in) {
+        int iin = 0;
+        for (int i = 0; i < EXPECTED_LENGTH; i++) {
+            int digit = (int) in.read(4);
+            if (digit > 9) {
+                throw new IllegalArgumentException("IIN nibble " + i + " is not a BCD digit");
+            }
+            iin = iin * 10 + digit;
+        }
+        return iin;
+    }
+
+    @Override
+    public int bitLength() {
+        return BITS;
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        writeBcd(out, parse(iin));
+    }
+
+    @Override
+    public int encodedLength() {
+        return EXPECTED_LENGTH;
+    }
+
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        return HexCodec.writeAscii(dst, offset, iin);
+    }
+
     public String getValue() {
         return iin;
     }
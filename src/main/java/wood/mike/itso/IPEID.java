@@ -1,25 +1,139 @@
 package wood.mike.itso;
 
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Held as primitives so that a decoder can reuse one instance as a flyweight,
+ * see {@link StandardElementsDecoder}. Instances handed out by {@link IpeIdCache} are shared
+ * and carry their encoded transport bytes.
+ */
 public class IPEID implements ItsoElement{
 
-    private IIN iin;
-    private OID oid;
-    private TYP typ;
-    private PTYP ptyp;
+    private static final int IIN_DIGITS = 6;
+    private static final int MAX_IIN = 999_999;
+    static final int BITS = IIN.BITS + OID.BITS + TYP.BITS + PTYP.BITS;
+
+    @Getter
+    private int iin;
+    @Getter
+    private long oid;
+    @Getter
+    private int typ;
+    @Getter
+    private int ptyp;
+    // Only set on interned instances, which are never mutated
+    private byte[] transportBytes;
 
     public IPEID(String iin, long oid, long typ, long ptyp) {
-        this.iin = new IIN(iin);
-        this.oid = new OID(oid);
-        this.typ = new TYP(typ);
-        this.ptyp = new PTYP(ptyp);
+        IIN.requireValid(iin);
+        this.iin = IIN.parse(iin);
+        this.oid = OID.requireValid(oid);
+        this.typ = (int) TYP.requireValid(typ);
+        this.ptyp = (int) PTYP.requireValid(ptyp);
+    }
+
+    /**
+     * Empty flyweight, populated through {@link #set(int, long, int, int)}
+     */
+    IPEID() {
+
+    }
+
+    IPEID set(int iin, long oid, int typ, int ptyp) {
+        if (iin < 0 || iin > MAX_IIN) {
+            throw new IllegalArgumentException("IIN must be exactly " + IIN_DIGITS + " digits");
+        }
+        return setUnchecked(iin, OID.requireValid(oid), (int) TYP.requireValid(typ), (int) PTYP.requireValid(ptyp));
+    }
+
+    /**
+     * For lenient decoding, where ranges are checked afterwards by {@link StandardElementsValidator}
+     */
+    IPEID setUnchecked(int iin, long oid, int typ, int ptyp) {
+        this.iin = iin;
+        this.oid = oid;
+        this.typ = typ;
+        this.ptyp = ptyp;
+        this.transportBytes = null;
+        return this;
+    }
+
+    /**
+     * Encodes the transport bytes once so that every later encode is a copy, for interned instances only
+     */
+    IPEID precomputeTransportBytes() {
+        byte[] encoded = new byte[encodedLength()];
+        encodeTo(encoded, 0);
+        this.transportBytes = encoded;
+        return this;
+    }
+
+    /**
+     * The IPEID packed into a long, binary IIN then 13-bit OID, 5-bit TYP and 5-bit PTYP.
+     * Only meaningful for OIDs in 0-0x1FFF.
+     */
+    public long key() {
+        return key(iin, oid, typ, ptyp);
+    }
+
+    static long key(int iin, long oid, int typ, int ptyp) {
+        return ((long) iin << (OID.BITS + TYP.BITS + PTYP.BITS))
+                | (oid << (TYP.BITS + PTYP.BITS))
+                | ((long) typ << PTYP.BITS)
+                | ptyp;
     }
 
     @Override
     public String toTransportFormat() {
-        return String.join("",
-                iin.toTransportFormat(),
-                oid.toTransportFormat(),
-                typ.toTransportFormat(),
-                ptyp.toTransportFormat());
+        byte[] encoded = new byte[encodedLength()];
+        encodeTo(encoded, 0);
+        return new String(encoded, StandardCharsets.US_ASCII);
+    }
+
+    public static IPEID fromBits(BitReader in) {
+        return new IPEID().readBits(in);
+    }
+
+    IPEID readBits(BitReader in) {
+        int iin = IIN.readBcd(in);
+        long oid = in.read(OID.BITS);
+        int typ = (int) in.read(TYP.BITS);
+        int ptyp = (int) in.read(PTYP.BITS);
+        return set(iin, oid, typ, ptyp);
+    }
+
+    @Override
+    public int bitLength() {
+        return BITS;
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        IIN.writeBcd(out, iin);
+        out.write(oid, OID.BITS);
+        out.write(typ, TYP.BITS);
+        out.write(ptyp, PTYP.BITS);
+    }
+
+    @Override
+    public int encodedLength() {
+        if (transportBytes != null) {
+            return transportBytes.length;
+        }
+        return IIN_DIGITS + HexCodec.hexLength(oid, 4) + HexCodec.hexLength(typ, 2) + HexCodec.hexLength(ptyp, 2);
+    }
+
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        if (transportBytes != null) {
+            System.arraycopy(transportBytes, 0, dst, offset, transportBytes.length);
+            return offset + transportBytes.length;
+        }
+        offset = HexCodec.writeDecimal(dst, offset, iin, IIN_DIGITS);
+        offset = HexCodec.writeHex(dst, offset, oid, 4);
+        offset = HexCodec.writeHex(dst, offset, typ, 2);
+        return HexCodec.writeHex(dst, offset, ptyp, 2);
     }
 }
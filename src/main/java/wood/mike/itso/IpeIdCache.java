@@ -0,0 +1,114 @@
+package wood.mike.itso;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lock-free interning of IPEIDs keyed on their packed long form, see {@link IPEID#key()}.
+ * A hit skips validation and object creation, and the returned instance encodes from transport
+ * bytes computed once when it was interned.
+ * <p>
+ * Two-way set associative: a key may live in its home slot or the next one, on a miss the
+ * second slot is overwritten if both are taken. Traffic has a few thousand distinct IPEIDs
+ * so the default capacity keeps evictions rare.
+ */
+public class IpeIdCache {
+
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final IpeIdCache SHARED = new IpeIdCache(DEFAULT_CAPACITY);
+
+    private final AtomicReferenceArray<IPEID> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public IpeIdCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * The cache used by {@link StandardElements#setIpeId(String, int, int, int)}
+     */
+    public static IpeIdCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a shared, immutable IPEID. Invalid values throw exactly as the IPEID constructor does.
+     */
+    public IPEID intern(String iin, long oid, long typ, long ptyp) {
+        int iinValue = IIN.parse(iin);
+        if (iinValue < 0 || oid < 0 || oid > 0x1FFF || typ < 0x01 || typ > 0x1F || ptyp < 0x01 || ptyp > 0x1F) {
+            // Either invalid, and the constructor throws, or a negative OID that has no packed key
+            misses.increment();
+            return new IPEID(iin, oid, typ, ptyp).precomputeTransportBytes();
+        }
+        return intern(iinValue, oid, (int) typ, (int) ptyp);
+    }
+
+    IPEID intern(int iin, long oid, int typ, int ptyp) {
+        long key = IPEID.key(iin, oid, typ, ptyp);
+        int home = slot(key);
+        int next = (home + 1) & mask;
+
+        IPEID cached = slots.get(home);
+        if (cached != null && cached.key() == key) {
+            hits.increment();
+            return cached;
+        }
+        IPEID neighbour = slots.get(next);
+        if (neighbour != null && neighbour.key() == key) {
+            hits.increment();
+            return neighbour;
+        }
+
+        misses.increment();
+        IPEID created = new IPEID().set(iin, oid, typ, ptyp).precomputeTransportBytes();
+        if (cached == null) {
+            slots.set(home, created);
+        } else {
+            if (neighbour != null) {
+                evictions.increment();
+            }
+            slots.set(next, created);
+        }
+        return created;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public double hitRate() {
+        long hitCount = hitCount();
+        long total = hitCount + missCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
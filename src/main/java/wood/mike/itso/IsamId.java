@@ -13,4 +13,9 @@ public class IsamId implements ItsoElement{
         return "";
     }
 
+    @Override
+    public void writeBits(BitWriter out) {
+        // Nothing on the wire yet, matching the empty transport format
+    }
+
 }
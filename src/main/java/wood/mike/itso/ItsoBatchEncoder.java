@@ -0,0 +1,165 @@
+package wood.mike.itso;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Encodes a batch of records, one per line, across a ForkJoinPool.
+ * <p>
+ * The batch is cut into chunks of records. Each worker encodes its chunks into its own thread-local
+ * direct buffer and the encoded chunks are written in their original order with a single gathering
+ * write per window of chunks, so memory use is bounded by the window rather than the batch.
+ * <p>
+ * Thread-local buffers are reused from one window to the next, so encode calls on one instance are serialised.
+ */
+public class ItsoBatchEncoder {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private static final byte LINE_SEPARATOR = '\n';
+    private static final int INITIAL_BUFFER_SIZE = 1 << 20;
+    // Enough chunks per window to keep every worker busy while one chunk is slower than the rest
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final ThreadLocal<WorkerBuffer> buffers = ThreadLocal.withInitial(WorkerBuffer::new);
+    private long window;
+
+    public ItsoBatchEncoder() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ItsoBatchEncoder(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes the records to the stream, each followed by a line break.
+     * @return the number of bytes written
+     */
+    public long encode(List<? extends ItsoElement> records, OutputStream out) throws IOException {
+        return encode(records, Channels.newChannel(out));
+    }
+
+    /**
+     * Writes the records to the channel, each followed by a line break. A FileChannel, or any other
+     * GatheringByteChannel, receives each window of chunks in one gathering write.
+     * @return the number of bytes written
+     */
+    public synchronized long encode(List<? extends ItsoElement> records, WritableByteChannel channel) throws IOException {
+        int chunkCount = (records.size() + chunkSize - 1) / chunkSize;
+        int chunksPerWindow = Math.max(1, pool.getParallelism() * CHUNKS_PER_WORKER);
+        ByteBuffer[] chunks = new ByteBuffer[Math.min(chunkCount, chunksPerWindow)];
+
+        long written = 0;
+        for (int first = 0; first < chunkCount; first += chunksPerWindow) {
+            int count = Math.min(chunksPerWindow, chunkCount - first);
+            pool.invoke(new EncodeChunksTask(records, chunks, first, 0, count, ++window));
+            written += write(channel, chunks, count);
+        }
+        return written;
+    }
+
+    private static long write(WritableByteChannel channel, ByteBuffer[] chunks, int count) throws IOException {
+        long written = 0;
+        if (channel instanceof GatheringByteChannel gathering) {
+            for (int i = 0; i < count; ) {
+                written += gathering.write(chunks, i, count - i);
+                while (i < count && !chunks[i].hasRemaining()) {
+                    i++;
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                while (chunks[i].hasRemaining()) {
+                    written += channel.write(chunks[i]);
+                }
+            }
+        }
+        return written;
+    }
+
+    private ByteBuffer encodeChunk(List<? extends ItsoElement> records, int chunk, long window) {
+        int from = chunk * chunkSize;
+        int to = Math.min(from + chunkSize, records.size());
+
+        int needed = to - from;
+        for (int i = from; i < to; i++) {
+            needed += records.get(i).encodedLength();
+        }
+
+        ByteBuffer buffer = buffers.get().claim(needed, window);
+        int start = buffer.position();
+        for (int i = from; i < to; i++) {
+            records.get(i).encodeTo(buffer);
+            buffer.put(LINE_SEPARATOR);
+        }
+        return buffer.slice(start, buffer.position() - start);
+    }
+
+    /**
+     * A worker's direct buffer. Chunks are appended within a window and the buffer is rewound at the
+     * first claim of the next one, by which time the previous window has been written out.
+     */
+    private static final class WorkerBuffer {
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        private long window = -1;
+
+        ByteBuffer claim(int bytes, long window) {
+            if (this.window != window) {
+                this.window = window;
+                buffer.clear();
+            }
+            if (buffer.remaining() < bytes) {
+                // Slices already handed out keep the old buffer alive until they are written
+                buffer = ByteBuffer.allocateDirect(Math.max(bytes, buffer.capacity() * 2));
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Splits a window's chunk range in half until a single chunk remains, as {@code SumArrayTask} does for sums
+     */
+    private final class EncodeChunksTask extends RecursiveAction {
+        private final List<? extends ItsoElement> records;
+        private final ByteBuffer[] chunks;
+        private final int firstChunk;
+        private final int start;
+        private final int end;
+        private final long window;
+
+        EncodeChunksTask(List<? extends ItsoElement> records, ByteBuffer[] chunks, int firstChunk, int start, int end, long window) {
+            this.records = records;
+            this.chunks = chunks;
+            this.firstChunk = firstChunk;
+            this.start = start;
+            this.end = end;
+            this.window = window;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                chunks[start] = encodeChunk(records, firstChunk + start, window);
+                return;
+            }
+            int mid = start + (end - start) / 2;
+            invokeAll(
+                    new EncodeChunksTask(records, chunks, firstChunk, start, mid, window),
+                    new EncodeChunksTask(records, chunks, firstChunk, mid, end, window));
+        }
+    }
+}
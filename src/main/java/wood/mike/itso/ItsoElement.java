@@ -1,5 +1,8 @@
 package wood.mike.itso;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
 public interface ItsoElement {
     /**
      * Converts the internal Java data into the
@@ -10,8 +13,64 @@ public interface ItsoElement {
     /**
      * Optional: Returns the raw bit-length if the spec
      * requires padding or specific alignment.
+     * This is the width {@link #writeBits(BitWriter)} packs the element into.
      */
     default int bitLength() {
         return 0;
     }
+
+    /**
+     * Writes the element at its true ITSO bit width, e.g. 13 bits for an OID,
+     * rather than as padded hex characters.
+     */
+    void writeBits(BitWriter out);
+
+    /**
+     * The element bit-packed, {@link #bitLength()} rounded up to whole bytes
+     */
+    default byte[] toPackedFormat() {
+        byte[] packed = new byte[(bitLength() + 7) >>> 3];
+        BitWriter out = new BitWriter(packed, 0);
+        writeBits(out);
+        out.finish();
+        return packed;
+    }
+
+    /**
+     * The number of ASCII bytes {@link #encodeTo(byte[], int)} writes,
+     * always equal to toTransportFormat().length().
+     */
+    default int encodedLength() {
+        return toTransportFormat().length();
+    }
+
+    /**
+     * Writes the transport format as ASCII straight into dst, byte-identical to
+     * {@link #toTransportFormat()}. Implementations on the hot path override this
+     * so that no intermediate Strings are built.
+     *
+     * @return the offset after the last byte written
+     */
+    default int encodeTo(byte[] dst, int offset) {
+        return HexCodec.writeAscii(dst, offset, toTransportFormat());
+    }
+
+    /**
+     * Writes the transport format at the buffer's position and advances it.
+     * Heap buffers are written in place, direct buffers via a per thread scratch array.
+     */
+    default void encodeTo(ByteBuffer dst) {
+        int length = encodedLength();
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            encodeTo(dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + length);
+        } else {
+            byte[] scratch = HexCodec.scratch(length);
+            encodeTo(scratch, 0);
+            dst.put(scratch, 0, length);
+        }
+    }
 }
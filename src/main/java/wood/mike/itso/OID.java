@@ -1,17 +1,46 @@
 package wood.mike.itso;
 
 public class OID implements ItsoElement {
+    static final int BITS = 13;
     private final long value;
 
     public OID(long value) {
+        this.value = requireValid(value);
+    }
+
+    static long requireValid(long value) {
         if (value > 0x1FFF) {
             throw new IllegalArgumentException("Standard OID cannot exceed 13 bits (8191)");
         }
-        this.value = value;
+        return value;
     }
 
     @Override
     public String toTransportFormat() {
         return new HexField(value, 4).toTransportFormat();
     }
+
+    public static OID fromBits(BitReader in) {
+        return new OID(in.read(BITS));
+    }
+
+    @Override
+    public int bitLength() {
+        return BITS;
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        out.write(value, BITS);
+    }
+
+    @Override
+    public int encodedLength() {
+        return HexCodec.hexLength(value, 4);
+    }
+
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        return HexCodec.writeHex(dst, offset, value, 4);
+    }
 }
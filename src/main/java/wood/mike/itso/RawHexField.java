@@ -12,4 +12,26 @@ public class RawHexField implements ItsoElement{
     public String toTransportFormat() {
         return hex;
     }
+
+    @Override
+    public int bitLength() {
+        return hex.length() * 4;
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        for (int i = 0; i < hex.length(); i++) {
+            out.write(HexCodec.parseHex(hex, i, i + 1), 4);
+        }
+    }
+
+    @Override
+    public int encodedLength() {
+        return hex.length();
+    }
+
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        return HexCodec.writeAscii(dst, offset, hex);
+    }
 }
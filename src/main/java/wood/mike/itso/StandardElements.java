@@ -7,8 +7,18 @@ import java.time.LocalDateTime;
 @Getter
 public class StandardElements implements ItsoElement {
 
+    private static final int FIELD_COUNT = 10;
+    private static final byte SEPARATOR = ',';
+    private static final int BITS = 8 + DateTimeField.BITS + 8 + 32 + 8 + 8 + 8 + 8 + IPEID.BITS + 8;
+    // DTS values are masked to 24 bits so this can never be a real one
+    private static final int NO_DTS = -1;
+
     private int recordFormatRevision;
-    private LocalDateTime transactionDateTime;
+    /**
+     * The transaction date/time as its raw 24-bit DTS, kept primitive so decoding does not allocate.
+     * Use {@link #getTransactionDateTime()} for the LocalDateTime form.
+     */
+    private int transactionDts = NO_DTS;
     private int transactionInformation;
     private long staffId;
     private int supplementalInformation;
@@ -16,6 +26,8 @@ public class StandardElements implements ItsoElement {
     private int ksc;
     private int kvc;
     private IPEID ipeid;
+    // Interned IPEIDs are shared, so the decode paths must never reuse one as their flyweight
+    private boolean ipeidShared;
     private int shellIterationNumber;
 
     public StandardElements setRecordFormatRevision(int val) {
@@ -24,15 +36,36 @@ public class StandardElements implements ItsoElement {
     }
 
     public StandardElements setTransactionDateTime(LocalDateTime dt) {
-        this.transactionDateTime = dt;
+        this.transactionDts = dt == null ? NO_DTS : DtsCodec.toDts(dt);
+        return this;
+    }
+
+    public StandardElements setTransactionEpochMinutes(int epochMinutes) {
+        this.transactionDts = DtsCodec.toDts(epochMinutes);
         return this;
     }
 
     public StandardElements setTransactionDateTime(String hex) {
-        this.transactionDateTime = DateTimeField.fromHex(hex).getValue();
+        return setTransactionDts((int) HexCodec.parseHex(hex, 0, hex.length()));
+    }
+
+    public StandardElements setTransactionDts(int dts) {
+        this.transactionDts = dts & 0xFFFFFF;
         return this;
     }
 
+    /**
+     * Materialised from the DTS on each call, so only to the minute
+     */
+    public LocalDateTime getTransactionDateTime() {
+        return transactionDts == NO_DTS ? null : DtsMaterializer.UTC.fromDts(transactionDts);
+    }
+
+    public int getTransactionEpochMinutes() {
+        if (transactionDts == NO_DTS) throw new IllegalStateException("Transaction date/time has not been set");
+        return DtsCodec.toEpochMinutes(transactionDts);
+    }
+
     public StandardElements setTransactionInformation(int val) {
         this.transactionInformation = val;
         return this;
@@ -67,10 +100,42 @@ public class StandardElements implements ItsoElement {
     }
 
     public StandardElements setIpeId(String iin, int oid, int typ, int ptyp) {
-        this.ipeid = new IPEID(iin, oid, typ, ptyp);
+        this.ipeid = IpeIdCache.shared().intern(iin, oid, typ, ptyp);
+        this.ipeidShared = true;
         return this;
     }
 
+    /**
+     * Reuses the current IPEID as a flyweight rather than allocating, for {@link StandardElementsDecoder}
+     */
+    StandardElements setIpeId(int iin, long oid, int typ, int ptyp) {
+        reusableIpeId().set(iin, oid, typ, ptyp);
+        return this;
+    }
+
+    /**
+     * Lenient decoding stores whatever arrived and leaves range checks to {@link StandardElementsValidator}
+     */
+    StandardElements setIpeIdUnchecked(int iin, long oid, int typ, int ptyp) {
+        reusableIpeId().setUnchecked(iin, oid, typ, ptyp);
+        return this;
+    }
+
+    StandardElements setKeysUnchecked(int fvc, int ksc, int kvc) {
+        this.fvc = fvc;
+        this.ksc = ksc;
+        this.kvc = kvc;
+        return this;
+    }
+
+    private IPEID reusableIpeId() {
+        if (ipeid == null || ipeidShared) {
+            ipeid = new IPEID();
+            ipeidShared = false;
+        }
+        return ipeid;
+    }
+
     public StandardElements setShellIterationNumber(int val) {
         this.shellIterationNumber = val;
         return this;
@@ -78,12 +143,11 @@ public class StandardElements implements ItsoElement {
 
     @Override
     public String toTransportFormat() {
-        if (ipeid == null) throw new IllegalStateException("IPEID must be set before encoding");
-        if (transactionDateTime == null) transactionDateTime = LocalDateTime.now();
+        prepareForEncoding();
 
         return String.join(",",
                 new HexField(recordFormatRevision, 2).toTransportFormat(),
-                new DateTimeField(transactionDateTime).toTransportFormat(),
+                new HexField(transactionDts, DateTimeField.HEX_CHARS).toTransportFormat(),
                 new HexField(transactionInformation, 2).toTransportFormat(),
                 new HexField(staffId, 8).toTransportFormat(),
                 new HexField(supplementalInformation, 2).toTransportFormat(),
@@ -94,4 +158,94 @@ public class StandardElements implements ItsoElement {
                 new HexField(shellIterationNumber, 2).toTransportFormat()
         );
     }
+
+    @Override
+    public int encodedLength() {
+        prepareForEncoding();
+
+        return HexCodec.hexLength(recordFormatRevision, 2)
+                + DateTimeField.HEX_CHARS
+                + HexCodec.hexLength(transactionInformation, 2)
+                + HexCodec.hexLength(staffId, 8)
+                + HexCodec.hexLength(supplementalInformation, 2)
+                + HexCodec.hexLength(fvc, 2)
+                + HexCodec.hexLength(ksc, 2)
+                + HexCodec.hexLength(kvc, 2)
+                + ipeid.encodedLength()
+                + HexCodec.hexLength(shellIterationNumber, 2)
+                + FIELD_COUNT - 1;
+    }
+
+    /**
+     * Same output as {@link #toTransportFormat()} but written field by field into dst
+     */
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        prepareForEncoding();
+
+        offset = HexCodec.writeHex(dst, offset, recordFormatRevision, 2);
+        dst[offset++] = SEPARATOR;
+        offset = HexCodec.writeHex(dst, offset, transactionDts, DateTimeField.HEX_CHARS);
+        dst[offset++] = SEPARATOR;
+        offset = HexCodec.writeHex(dst, offset, transactionInformation, 2);
+        dst[offset++] = SEPARATOR;
+        offset = HexCodec.writeHex(dst, offset, staffId, 8);
+        dst[offset++] = SEPARATOR;
+        offset = HexCodec.writeHex(dst, offset, supplementalInformation, 2);
+        dst[offset++] = SEPARATOR;
+        offset = HexCodec.writeHex(dst, offset, fvc, 2);
+        dst[offset++] = SEPARATOR;
+        offset = HexCodec.writeHex(dst, offset, ksc, 2);
+        dst[offset++] = SEPARATOR;
+        offset = HexCodec.writeHex(dst, offset, kvc, 2);
+        dst[offset++] = SEPARATOR;
+        offset = ipeid.encodeTo(dst, offset);
+        dst[offset++] = SEPARATOR;
+        return HexCodec.writeHex(dst, offset, shellIterationNumber, 2);
+    }
+
+    @Override
+    public int bitLength() {
+        return BITS;
+    }
+
+    /**
+     * Packs the fields at their true widths, 159 bits in all against 51 characters of delimited hex
+     */
+    @Override
+    public void writeBits(BitWriter out) {
+        prepareForEncoding();
+
+        out.write(recordFormatRevision, 8);
+        out.write(transactionDts, DateTimeField.BITS);
+        out.write(transactionInformation, 8);
+        out.write(staffId, 32);
+        out.write(supplementalInformation, 8);
+        out.write(fvc, 8);
+        out.write(ksc, 8);
+        out.write(kvc, 8);
+        ipeid.writeBits(out);
+        out.write(shellIterationNumber, 8);
+    }
+
+    /**
+     * Populates this instance from packed bits, reusing the current IPEID as a flyweight
+     */
+    public StandardElements readBits(BitReader in) {
+        setRecordFormatRevision((int) in.read(8));
+        setTransactionDts((int) in.read(DateTimeField.BITS));
+        setTransactionInformation((int) in.read(8));
+        setStaffId(in.read(32));
+        setSupplementalInformation((int) in.read(8));
+        setFvc((int) in.read(8));
+        setKsc((int) in.read(8));
+        setKvc((int) in.read(8));
+        reusableIpeId().readBits(in);
+        return setShellIterationNumber((int) in.read(8));
+    }
+
+    private void prepareForEncoding() {
+        if (ipeid == null) throw new IllegalStateException("IPEID must be set before encoding");
+        if (transactionDts == NO_DTS) setTransactionDateTime(LocalDateTime.now());
+    }
 }
\ No newline at end of file
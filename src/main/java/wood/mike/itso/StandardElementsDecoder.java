@@ -0,0 +1,335 @@
+package wood.mike.itso;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the transport format produced by {@link StandardElements#toTransportFormat()} back into a
+ * caller supplied StandardElements, which is reused as a flyweight along with its IPEID.
+ * Both the comma delimited form and the packed form (the same fields with no separators) are accepted,
+ * from a CharSequence or straight from the bytes of a ByteBuffer, without substrings or per field objects.
+ * <p>
+ * A lenient decoder stores out of range values rather than throwing, leaving them to
+ * {@link StandardElementsValidator}, so a dirty feed costs a bitmask per record instead of an exception.
+ * Malformed records, e.g. bad hex or the wrong length, are still rejected, except by the validated bulk
+ * decodes, which report them with the {@link ValidationError#MALFORMED} bit and carry on with the next line.
+ * <p>
+ * A decoder keeps a cursor so is not thread-safe, use one per thread.
+ */
+public class StandardElementsDecoder {
+
+    /**
+     * Characters per field of the packed form, in transport order
+     */
+    private static final int[] PACKED_WIDTHS = {2, DateTimeField.HEX_CHARS, 2, 8, 2, 2, 2, 2, 14, 2};
+    public static final int PACKED_LENGTH = 42;
+
+    private static final char SEPARATOR = ',';
+    private static final int IIN_DIGITS = 6;
+
+    private final AsciiSequence ascii = new AsciiSequence();
+    private final boolean lenient;
+    private int position;
+    private int recordEnd;
+    private boolean delimited;
+
+    /**
+     * Receives each decoded record with its {@link ValidationError} bits, 0 for a valid record. For a
+     * MALFORMED line the record's fields are left over from before and say nothing about the line.
+     */
+    @FunctionalInterface
+    public interface ValidatedSink {
+        void accept(StandardElements record, int errors);
+    }
+
+    public StandardElementsDecoder() {
+        this(false);
+    }
+
+    /**
+     * @param lenient store out of range values instead of throwing
+     */
+    public StandardElementsDecoder(boolean lenient) {
+        this.lenient = lenient;
+    }
+
+    /**
+     * Decodes a single record starting at offset, the record ends at a line break or the end of src.
+     *
+     * @return the offset just after the record, i.e. at its line break if there is one
+     */
+    public int decode(CharSequence src, int offset, StandardElements into) {
+        position = offset;
+        recordEnd = lineEnd(src, offset);
+        // Packed records are all hex digits so the first non hex character tells us the form
+        int scan = offset;
+        while (scan < recordEnd && HexCodec.isHex(src.charAt(scan))) {
+            scan++;
+        }
+        delimited = scan < recordEnd && src.charAt(scan) == SEPARATOR;
+        if (!delimited && recordEnd - offset != PACKED_LENGTH) {
+            throw new IllegalArgumentException("Packed record must be " + PACKED_LENGTH + " characters at " + offset);
+        }
+
+        into.setRecordFormatRevision((int) hexField(src, 0));
+        into.setTransactionDts((int) hexField(src, 1));
+        into.setTransactionInformation((int) hexField(src, 2));
+        into.setStaffId(hexField(src, 3));
+        into.setSupplementalInformation((int) hexField(src, 4));
+        int fvc = (int) hexField(src, 5);
+        int ksc = (int) hexField(src, 6);
+        int kvc = (int) hexField(src, 7);
+        if (lenient) {
+            into.setKeysUnchecked(fvc, ksc, kvc);
+        } else {
+            into.setFvc(fvc).setKsc(ksc).setKvc(kvc);
+        }
+        ipeId(src, into);
+        into.setShellIterationNumber((int) hexField(src, 9));
+
+        if (position != recordEnd) {
+            throw new IllegalArgumentException("Unexpected trailing characters at " + position);
+        }
+        return recordEnd;
+    }
+
+    /**
+     * Decodes a single record from the buffer's position, reading the bytes in place, and
+     * advances the position past the record.
+     */
+    public StandardElements decode(ByteBuffer src, StandardElements into) {
+        ascii.wrap(src);
+        try {
+            src.position(decode(ascii, src.position(), into));
+        } finally {
+            ascii.wrap(null);
+        }
+        return into;
+    }
+
+    /**
+     * Decodes every line of src into the one flyweight, handing it to sink after each record.
+     * The sink must copy out anything it wants to keep.
+     *
+     * @return the number of records decoded
+     */
+    public int decodeAll(CharSequence src, StandardElements flyweight, Consumer<? super StandardElements> sink) {
+        return decodeAll(src, 0, flyweight, sink);
+    }
+
+    /**
+     * As {@link #decodeAll(CharSequence, StandardElements, Consumer)} but validates each record on the way
+     * through so the sink can filter or quarantine it, best with a lenient decoder. A line that is not a
+     * record is handed over as MALFORMED rather than thrown, so one bad line does not lose the rest.
+     *
+     * @return the number of lines handed to the sink, malformed ones included
+     */
+    public int decodeAllValidated(CharSequence src, StandardElements flyweight, ValidatedSink sink) {
+        return decodeAllValidated(src, 0, flyweight, sink);
+    }
+
+    /**
+     * As {@link #decodeAll(CharSequence, StandardElements, Consumer)} over the remaining bytes of src,
+     * which is left with its position at its limit.
+     */
+    public int decodeAll(ByteBuffer src, StandardElements flyweight, Consumer<? super StandardElements> sink) {
+        ascii.wrap(src);
+        try {
+            int count = decodeAll(ascii, src.position(), flyweight, sink);
+            src.position(src.limit());
+            return count;
+        } finally {
+            ascii.wrap(null);
+        }
+    }
+
+    /**
+     * As {@link #decodeAllValidated(CharSequence, StandardElements, ValidatedSink)} over the remaining bytes of src
+     */
+    public int decodeAllValidated(ByteBuffer src, StandardElements flyweight, ValidatedSink sink) {
+        ascii.wrap(src);
+        try {
+            int count = decodeAllValidated(ascii, src.position(), flyweight, sink);
+            src.position(src.limit());
+            return count;
+        } finally {
+            ascii.wrap(null);
+        }
+    }
+
+    private int decodeAll(CharSequence src, int offset, StandardElements flyweight, Consumer<? super StandardElements> sink) {
+        int count = 0;
+        int length = src.length();
+        while (offset < length) {
+            if (isLineBreak(src.charAt(offset))) {
+                offset++;
+                continue;
+            }
+            offset = decode(src, offset, flyweight);
+            sink.accept(flyweight);
+            count++;
+        }
+        return count;
+    }
+
+    private int decodeAllValidated(CharSequence src, int offset, StandardElements flyweight, ValidatedSink sink) {
+        int count = 0;
+        int length = src.length();
+        while (offset < length) {
+            if (isLineBreak(src.charAt(offset))) {
+                offset++;
+                continue;
+            }
+            if (isWellFormed(src, offset)) {
+                offset = decode(src, offset, flyweight);
+                sink.accept(flyweight, StandardElementsValidator.validate(flyweight));
+            } else {
+                offset = lineEnd(src, offset);
+                sink.accept(flyweight, ValidationError.MALFORMED.mask());
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Checks the shape of the record at offset without decoding it, so a malformed line costs a scan rather
+     * than an exception: ten fields of 1 to 16 hex characters, or the packed form, and an IPEID of six decimal
+     * digits then eight hex
+     */
+    private static boolean isWellFormed(CharSequence src, int offset) {
+        int end = lineEnd(src, offset);
+        int separator = offset;
+        while (separator < end && src.charAt(separator) != SEPARATOR) {
+            separator++;
+        }
+        if (separator == end) {
+            if (end - offset != PACKED_LENGTH) {
+                return false;
+            }
+            for (int field = 0; field < PACKED_WIDTHS.length; field++) {
+                if (!isWellFormedField(src, offset, offset + PACKED_WIDTHS[field], field)) {
+                    return false;
+                }
+                offset += PACKED_WIDTHS[field];
+            }
+            return true;
+        }
+        int field = 0;
+        for (int from = offset, i = offset; i <= end; i++) {
+            if (i == end || src.charAt(i) == SEPARATOR) {
+                if (field == PACKED_WIDTHS.length || !isWellFormedField(src, from, i, field)) {
+                    return false;
+                }
+                field++;
+                from = i + 1;
+            }
+        }
+        return field == PACKED_WIDTHS.length;
+    }
+
+    private static boolean isWellFormedField(CharSequence src, int from, int to, int field) {
+        if (field == 8) {
+            if (to - from != PACKED_WIDTHS[8]) {
+                return false;
+            }
+            for (int i = from; i < from + IIN_DIGITS; i++) {
+                if (src.charAt(i) < '0' || src.charAt(i) > '9') {
+                    return false;
+                }
+            }
+            from += IIN_DIGITS;
+        } else if (to - from < 1 || to - from > 16) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (!HexCodec.isHex(src.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lineEnd(CharSequence src, int offset) {
+        int length = src.length();
+        while (offset < length && !isLineBreak(src.charAt(offset))) {
+            offset++;
+        }
+        return offset;
+    }
+
+    private long hexField(CharSequence src, int field) {
+        int end = fieldEnd(src, field);
+        long value = HexCodec.parseHex(src, position, end);
+        skipTo(src, end);
+        return value;
+    }
+
+    private void ipeId(CharSequence src, StandardElements into) {
+        int end = fieldEnd(src, 8);
+        if (end - position != PACKED_WIDTHS[8]) {
+            throw new IllegalArgumentException("IPEID must be " + PACKED_WIDTHS[8] + " characters at " + position);
+        }
+        int p = position;
+        int iin = HexCodec.parseDecimal(src, p, p + IIN_DIGITS);
+        long oid = HexCodec.parseHex(src, p + IIN_DIGITS, p + IIN_DIGITS + 4);
+        int typ = (int) HexCodec.parseHex(src, p + IIN_DIGITS + 4, p + IIN_DIGITS + 6);
+        int ptyp = (int) HexCodec.parseHex(src, p + IIN_DIGITS + 6, p + IIN_DIGITS + 8);
+        if (lenient) {
+            into.setIpeIdUnchecked(iin, oid, typ, ptyp);
+        } else {
+            into.setIpeId(iin, oid, typ, ptyp);
+        }
+        skipTo(src, end);
+    }
+
+    private int fieldEnd(CharSequence src, int field) {
+        if (!delimited) {
+            return position + PACKED_WIDTHS[field];
+        }
+        int end = position;
+        while (end < recordEnd && src.charAt(end) != SEPARATOR) {
+            end++;
+        }
+        return end;
+    }
+
+    private void skipTo(CharSequence src, int end) {
+        position = delimited && end < recordEnd && src.charAt(end) == SEPARATOR ? end + 1 : end;
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    /**
+     * Read-only ASCII view over a ByteBuffer, indexed by absolute buffer position, so the
+     * CharSequence decode path can read buffer bytes without copying them.
+     */
+    private static final class AsciiSequence implements CharSequence {
+        private ByteBuffer buffer;
+
+        void wrap(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder chars = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                chars.append(charAt(i));
+            }
+            return chars;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package wood.mike.itso;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bulk validation that records failures in an int bitmask of {@link ValidationError}s instead of throwing,
+ * so dirty feeds do not pay for exception stack traces. Range checks are subtractions and sign bits
+ * rather than branches. The ranges are the same ones the setters and constructors enforce.
+ * <p>
+ * Records reach this unchecked through a lenient {@link StandardElementsDecoder}. An instance reuses
+ * its mask array from one batch to the next, so keep one per thread.
+ */
+public class StandardElementsValidator {
+
+    private static final int MAX_IIN = 999_999;
+    private static final long MAX_OID = 0x1FFF;
+
+    private int[] errors = new int[0];
+    private int size;
+
+    /**
+     * @return 0 if every field is in range, otherwise the {@link ValidationError} bits that failed
+     */
+    public static int validate(StandardElements record) {
+        int errors = validateKeys(record.getFvc(), record.getKsc(), record.getKvc());
+        IPEID ipeid = record.getIpeid();
+        if (ipeid == null) {
+            return errors | ValidationError.IPEID_MISSING.mask();
+        }
+        return errors | validateIpeId(ipeid.getIin(), ipeid.getOid(), ipeid.getTyp(), ipeid.getPtyp());
+    }
+
+    public static int validateKeys(int fvc, int ksc, int kvc) {
+        return outOfRange(fvc, 1, 255) << ValidationError.FVC.ordinal()
+                | outOfRange(ksc, 1, 255) << ValidationError.KSC.ordinal()
+                | outOfRange(kvc, 1, 255) << ValidationError.KVC.ordinal();
+    }
+
+    public static int validateIpeId(int iin, long oid, long typ, long ptyp) {
+        return outOfRange(iin, 0, MAX_IIN) << ValidationError.IIN.ordinal()
+                // OID has only ever had an upper bound
+                | above(oid, MAX_OID) << ValidationError.OID.ordinal()
+                | outOfRange(typ, 0x01, 0x1F) << ValidationError.TYP.ordinal()
+                | outOfRange(ptyp, 0x01, 0x1F) << ValidationError.PTYP.ordinal();
+    }
+
+    /**
+     * 1 if value is outside [min, max], taken from the sign bit of either difference
+     */
+    private static int outOfRange(long value, long min, long max) {
+        return (int) (((value - min) | (max - value)) >>> 63);
+    }
+
+    private static int above(long value, long max) {
+        return (int) ((max - value) >>> 63);
+    }
+
+    /**
+     * Validates every record of a batch, keeping the masks for {@link #errors(int)} and {@link #partition}
+     * @return the number of invalid records
+     */
+    public int validateAll(List<? extends StandardElements> batch) {
+        size = batch.size();
+        if (errors.length < size) {
+            errors = new int[Math.max(size, errors.length * 2)];
+        }
+        int invalid = 0;
+        for (int i = 0; i < size; i++) {
+            int mask = validate(batch.get(i));
+            errors[i] = mask;
+            invalid += (mask | -mask) >>> 31;
+        }
+        return invalid;
+    }
+
+    /**
+     * The mask of record index from the last {@link #validateAll(List)}
+     */
+    public int errors(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return errors[index];
+    }
+
+    /**
+     * Copies the masks of the last batch into dst, e.g. to keep them beside quarantined records
+     */
+    public int[] errors(int[] dst) {
+        int[] target = dst.length >= size ? dst : new int[size];
+        System.arraycopy(errors, 0, target, 0, size);
+        return target;
+    }
+
+    /**
+     * Splits the batch last passed to {@link #validateAll(List)} into valid and quarantined records, in order
+     */
+    public <T extends StandardElements> void partition(List<T> batch, List<? super T> valid, List<? super T> quarantine) {
+        if (batch.size() != size) {
+            throw new IllegalStateException("Batch of " + batch.size() + " does not match the " + size + " validated");
+        }
+        for (int i = 0; i < size; i++) {
+            if (errors[i] == 0) {
+                valid.add(batch.get(i));
+            } else {
+                quarantine.add(batch.get(i));
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(errors, 0, size, 0);
+        size = 0;
+    }
+}
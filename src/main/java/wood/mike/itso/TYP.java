@@ -1,17 +1,46 @@
 package wood.mike.itso;
 
 public class TYP implements ItsoElement {
+    static final int BITS = 5;
     private final long value;
 
     public TYP(long value) {
+        this.value = requireValid(value);
+    }
+
+    static long requireValid(long value) {
         if (value < 0x01 || value > 0x1F) {
             throw new IllegalArgumentException("TYP must be between 0x01 and 0x1F");
         }
-        this.value = value;
+        return value;
     }
 
     @Override
     public String toTransportFormat() {
         return new HexField(value, 2).toTransportFormat();
     }
+
+    public static TYP fromBits(BitReader in) {
+        return new TYP(in.read(BITS));
+    }
+
+    @Override
+    public int bitLength() {
+        return BITS;
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        out.write(value, BITS);
+    }
+
+    @Override
+    public int encodedLength() {
+        return HexCodec.hexLength(value, 2);
+    }
+
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        return HexCodec.writeHex(dst, offset, value, 2);
+    }
 }
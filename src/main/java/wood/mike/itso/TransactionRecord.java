@@ -14,4 +14,24 @@ public class TransactionRecord implements ItsoElement{
         return standardElements.toTransportFormat();
     }
 
+    @Override
+    public int bitLength() {
+        return standardElements.bitLength();
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        standardElements.writeBits(out);
+    }
+
+    @Override
+    public int encodedLength() {
+        return standardElements.encodedLength();
+    }
+
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        return standardElements.encodeTo(dst, offset);
+    }
+
 }
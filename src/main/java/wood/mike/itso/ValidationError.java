@@ -0,0 +1,42 @@
+package wood.mike.itso;
+
+import java.util.EnumSet;
+
+/**
+ * Range failures recorded by {@link StandardElementsValidator}, one bit per constant, and MALFORMED for a
+ * line {@link StandardElementsDecoder#decodeAllValidated} could not decode at all
+ */
+public enum ValidationError {
+    FVC,            // Bit 0
+    KSC,            // Bit 1
+    KVC,            // Bit 2
+    IIN,            // Bit 3
+    OID,            // Bit 4
+    TYP,            // Bit 5
+    PTYP,           // Bit 6
+    IPEID_MISSING,  // Bit 7
+    MALFORMED;      // Bit 8, bad hex or the wrong number or width of fields
+
+    private static final ValidationError[] VALUES = values();
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public boolean isSet(int errors) {
+        return (errors & mask()) != 0;
+    }
+
+    /**
+     * Expands a bitmask for reporting, the hot path should stay with the int
+     */
+    public static EnumSet<ValidationError> fromMask(int errors) {
+        EnumSet<ValidationError> set = EnumSet.noneOf(ValidationError.class);
+        for (ValidationError error : VALUES) {
+            if (error.isSet(errors)) {
+                set.add(error);
+            }
+        }
+        return set;
+    }
+}
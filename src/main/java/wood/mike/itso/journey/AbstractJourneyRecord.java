@@ -1,19 +1,76 @@
 package wood.mike.itso.journey;
 
+import wood.mike.itso.BitWriter;
 import wood.mike.itso.ItsoElement;
+import wood.mike.itso.StandardElements;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * The standard elements followed by the sections of a {@link RecordLayout}. Section values are
+ * flattened into primitive slots once at construction, encoding then just walks the layout.
+ */
 public abstract class AbstractJourneyRecord implements ItsoElement {
 
-    protected final List<ItsoElement> fields = new ArrayList<>();
+    protected final RecordLayout layout;
+    protected final StandardElements standard;
+    protected final long[] values;
+    protected final String[] raw;
+
+    protected AbstractJourneyRecord(RecordLayout layout, StandardElements standard, MessageData... sections) {
+        this.layout = layout;
+        this.standard = standard;
+        this.values = new long[layout.fieldCount()];
+        this.raw = new String[layout.fieldCount()];
+        layout.collect(sections, values, raw);
+    }
+
+    public RecordLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Value of a hex field by its slot, see {@link RecordLayout#indexOf(String)}
+     */
+    public long getValue(int field) {
+        return values[field];
+    }
+
+    /**
+     * The footer's ISAM sequence number, the natural key when storing journey records
+     */
+    public long getIpeIsamSequenceNumber() {
+        int field = layout.sequenceNumberField();
+        if (field < 0) {
+            throw new IllegalStateException("RFR " + layout.revision() + " has no " + JourneyFooter.SEQUENCE_NUMBER);
+        }
+        return values[field];
+    }
 
     @Override
     public String toTransportFormat() {
-        return fields.stream()
-                .map(ItsoElement::toTransportFormat)
-                .collect(Collectors.joining(","));
+        byte[] encoded = new byte[encodedLength()];
+        encodeTo(encoded, 0);
+        return new String(encoded, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public int bitLength() {
+        return layout.bitLength(standard, raw);
+    }
+
+    @Override
+    public void writeBits(BitWriter out) {
+        layout.writeBits(standard, values, raw, out);
+    }
+
+    @Override
+    public int encodedLength() {
+        return layout.encodedLength(standard, values, raw);
+    }
+
+    @Override
+    public int encodeTo(byte[] dst, int offset) {
+        return layout.encodeTo(standard, values, raw, dst, offset);
     }
-}
\ No newline at end of file
+}
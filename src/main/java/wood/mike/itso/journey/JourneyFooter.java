@@ -1,23 +1,43 @@
 package wood.mike.itso.journey;
 
-import wood.mike.itso.HexField;
-import wood.mike.itso.ItsoElement;
-import wood.mike.itso.RawHexField;
+import lombok.Getter;
 
 import java.util.List;
 
+@Getter
 public class JourneyFooter implements MessageData{
 
+    static final String SEQUENCE_NUMBER = "ipeIsamSequenceNumber";
+
+    static final RecordLayout.Section SECTION = new RecordLayout.Section(JourneyFooter.class, List.of(
+            RecordLayout.Field.hex("ipeIterationNumber", 4),
+            RecordLayout.Field.hex(SEQUENCE_NUMBER, 3),
+            RecordLayout.Field.raw("itsoShellReferenceNumberEncrypted")
+    ));
+
     private long ipeIterationNumber;
     private long ipeIsamSequenceNumber;
-    private String itsoShellReferenceNumberEncrypted;
+    private String itsoShellReferenceNumberEncrypted = "";
+
+    public JourneyFooter setIpeIterationNumber(long val) {
+        this.ipeIterationNumber = val;
+        return this;
+    }
+
+    public JourneyFooter setIpeIsamSequenceNumber(long val) {
+        this.ipeIsamSequenceNumber = val;
+        return this;
+    }
+
+    public JourneyFooter setItsoShellReferenceNumberEncrypted(String hex) {
+        this.itsoShellReferenceNumberEncrypted = hex;
+        return this;
+    }
 
     @Override
-    public List<ItsoElement> getFields() {
-        return List.of(
-                new HexField(ipeIterationNumber, 4),
-                new HexField(ipeIsamSequenceNumber, 3),
-                new RawHexField(itsoShellReferenceNumberEncrypted)
-        );
+    public void writeValues(long[] values, String[] raw, int index) {
+        values[index] = ipeIterationNumber;
+        values[index + 1] = ipeIsamSequenceNumber;
+        raw[index + 2] = itsoShellReferenceNumberEncrypted;
     }
 }
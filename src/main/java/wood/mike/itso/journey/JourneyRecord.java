@@ -0,0 +1,13 @@
+package wood.mike.itso.journey;
+
+import wood.mike.itso.StandardElements;
+
+/**
+ * A journey record of any revision, the sections must match those the layout was defined with
+ */
+public class JourneyRecord extends AbstractJourneyRecord {
+
+    public JourneyRecord(RecordLayout layout, StandardElements standard, MessageData... sections) {
+        super(layout, standard, sections);
+    }
+}
@@ -11,10 +11,11 @@ public class JourneyRecordRfr4 extends AbstractJourneyRecord{
             Rfr4EntryExtension entry,
             JourneyFooter footer
     ) {
-        fields.add(standard);
-        fields.addAll(core.getFields());
-        fields.addAll(rfr3.getFields());   // Added in RFR 3
-        fields.addAll(entry.getFields());  // Inserted in RFR 4
-        fields.addAll(footer.getFields()); // The "Common Footer"
+        super(RecordLayout.RFR4, standard,
+                core,
+                rfr3,   // Added in RFR 3
+                entry,  // Inserted in RFR 4
+                footer  // The "Common Footer"
+        );
     }
 }
@@ -1,10 +1,10 @@
 package wood.mike.itso.journey;
 
-import wood.mike.itso.ItsoElement;
-
-import java.util.List;
-
 public interface MessageData {
 
-    List<ItsoElement> getFields();
+    /**
+     * Copies this section's values into the slots starting at index,
+     * hex fields into values and raw fields into raw.
+     */
+    void writeValues(long[] values, String[] raw, int index);
 }
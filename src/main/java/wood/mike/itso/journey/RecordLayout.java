@@ -0,0 +1,214 @@
+package wood.mike.itso.journey;
+
+import wood.mike.itso.BitWriter;
+import wood.mike.itso.HexCodec;
+import wood.mike.itso.StandardElements;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The field layout of one journey record revision, compiled once from the {@link Section}s it lists
+ * into flat arrays so that encoding is a loop over primitives.
+ * Every journey record starts with the {@link StandardElements}, which are not part of the layout.
+ * <p>
+ * A new RFR revision is a new {@link #define(int, Section...)} call listing its sections, not a new subclass.
+ */
+public final class RecordLayout {
+
+    private static final byte SEPARATOR = ',';
+    private static final Map<Integer, RecordLayout> REVISIONS = new ConcurrentHashMap<>();
+
+    public static final RecordLayout RFR3 = define(3,
+            JourneyCore.SECTION,
+            Rfr3Extension.SECTION,
+            JourneyFooter.SECTION);
+
+    public static final RecordLayout RFR4 = define(4,
+            JourneyCore.SECTION,
+            Rfr3Extension.SECTION,
+            Rfr4EntryExtension.SECTION,  // Inserted in RFR 4
+            JourneyFooter.SECTION);
+
+    private final int revision;
+    private final Section[] sections;
+    private final int[] sectionStarts;
+    private final String[] names;
+    private final boolean[] raw;
+    private final int[] widths;
+    // Character offset of each field after the standard elements, -1 once a raw field makes it variable
+    private final int[] offsets;
+    private final int sequenceNumberField;
+
+    /**
+     * One kind of section: the {@link MessageData} class that fills it and its fields in transport order.
+     * A record is checked section by section against the classes, so sections with the same fields, or none
+     * yet, still cannot stand in for each other.
+     */
+    public record Section(Class<? extends MessageData> type, List<Field> fields) {
+    }
+
+    /**
+     * One field of a section, either a number written as hex or an already formatted hex string
+     */
+    public record Field(String name, boolean raw, int hexChars) {
+
+        public static Field hex(String name, int hexChars) {
+            return new Field(name, false, hexChars);
+        }
+
+        public static Field raw(String name) {
+            return new Field(name, true, 0);
+        }
+    }
+
+    private RecordLayout(int revision, Section... sections) {
+        this.revision = revision;
+        this.sections = sections.clone();
+        this.sectionStarts = new int[sections.length];
+
+        List<Field> fields = new ArrayList<>();
+        for (int s = 0; s < sections.length; s++) {
+            for (int t = 0; t < s; t++) {
+                if (sections[t].type() == sections[s].type()) {
+                    throw new IllegalArgumentException("Sections " + t + " and " + s + " of RFR " + revision + " are both " + sections[s].type().getSimpleName());
+                }
+            }
+            sectionStarts[s] = fields.size();
+            fields.addAll(sections[s].fields());
+        }
+
+        this.names = new String[fields.size()];
+        this.raw = new boolean[fields.size()];
+        this.widths = new int[fields.size()];
+        this.offsets = new int[fields.size()];
+        int offset = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            names[i] = field.name();
+            raw[i] = field.raw();
+            widths[i] = field.hexChars();
+            offsets[i] = offset;
+            offset = offset < 0 || field.raw() ? -1 : offset + 1 + field.hexChars();
+        }
+        this.sequenceNumberField = indexOf(JourneyFooter.SEQUENCE_NUMBER);
+    }
+
+    /**
+     * Compiles and registers the layout for an RFR revision from its sections in transport order
+     */
+    public static RecordLayout define(int revision, Section... sections) {
+        RecordLayout layout = new RecordLayout(revision, sections);
+        if (REVISIONS.putIfAbsent(revision, layout) != null) {
+            throw new IllegalStateException("RFR " + revision + " is already defined");
+        }
+        return layout;
+    }
+
+    public static RecordLayout forRevision(int revision) {
+        RecordLayout layout = REVISIONS.get(revision);
+        if (layout == null) {
+            throw new IllegalArgumentException("No layout defined for RFR " + revision);
+        }
+        return layout;
+    }
+
+    public int revision() {
+        return revision;
+    }
+
+    public int fieldCount() {
+        return widths.length;
+    }
+
+    public int sectionCount() {
+        return sections.length;
+    }
+
+    /**
+     * Slot of the named field, resolve once and keep the index rather than calling per record
+     * @return the slot or -1 if this revision has no such field
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Slot of the footer's ISAM sequence number, or -1 if this revision has no footer
+     */
+    public int sequenceNumberField() {
+        return sequenceNumberField;
+    }
+
+    /**
+     * Offset of a field within the transport format, counted from the separator after the
+     * standard elements, or -1 if an earlier raw field makes it variable
+     */
+    public int offsetOf(int field) {
+        return offsets[field];
+    }
+
+    /**
+     * Flattens the sections' values into the slots this layout gives them, checking each section
+     * is the one the layout was compiled from
+     */
+    void collect(MessageData[] data, long[] values, String[] rawValues) {
+        if (data.length != sections.length) {
+            throw new IllegalArgumentException("RFR " + revision + " needs " + sections.length + " sections but got " + data.length);
+        }
+        for (int s = 0; s < sections.length; s++) {
+            if (!sections[s].type().isInstance(data[s])) {
+                throw new IllegalArgumentException("Section " + s + " of RFR " + revision + " cannot be " + data[s].getClass().getSimpleName());
+            }
+            data[s].writeValues(values, rawValues, sectionStarts[s]);
+        }
+    }
+
+    public int encodedLength(StandardElements standard, long[] values, String[] rawValues) {
+        int length = standard.encodedLength() + widths.length;
+        for (int i = 0; i < widths.length; i++) {
+            length += raw[i] ? rawValues[i].length() : HexCodec.hexLength(values[i], widths[i]);
+        }
+        return length;
+    }
+
+    public int encodeTo(StandardElements standard, long[] values, String[] rawValues, byte[] dst, int offset) {
+        offset = standard.encodeTo(dst, offset);
+        for (int i = 0; i < widths.length; i++) {
+            dst[offset++] = SEPARATOR;
+            offset = raw[i]
+                    ? HexCodec.writeAscii(dst, offset, rawValues[i])
+                    : HexCodec.writeHex(dst, offset, values[i], widths[i]);
+        }
+        return offset;
+    }
+
+    public int bitLength(StandardElements standard, String[] rawValues) {
+        int bits = standard.bitLength();
+        for (int i = 0; i < widths.length; i++) {
+            bits += (raw[i] ? rawValues[i].length() : widths[i]) * 4;
+        }
+        return bits;
+    }
+
+    public void writeBits(StandardElements standard, long[] values, String[] rawValues, BitWriter out) {
+        standard.writeBits(out);
+        for (int i = 0; i < widths.length; i++) {
+            if (raw[i]) {
+                String hex = rawValues[i];
+                for (int c = 0; c < hex.length(); c++) {
+                    out.write(HexCodec.parseHex(hex, c, c + 1), 4);
+                }
+            } else {
+                out.write(values[i], widths[i] * 4);
+            }
+        }
+    }
+}
@@ -1,13 +1,13 @@
 package wood.mike.itso.journey;
 
-import wood.mike.itso.ItsoElement;
-
 import java.util.List;
 
 public class Rfr4EntryExtension implements MessageData{
 
+    static final RecordLayout.Section SECTION = new RecordLayout.Section(Rfr4EntryExtension.class, List.of());
+
     @Override
-    public List<ItsoElement> getFields() {
-        return List.of();
+    public void writeValues(long[] values, String[] raw, int index) {
+        // No fields defined yet
     }
 }
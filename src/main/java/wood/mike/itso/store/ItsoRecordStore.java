@@ -0,0 +1,200 @@
+package wood.mike.itso.store;
+
+import wood.mike.itso.ItsoElement;
+import wood.mike.itso.StandardElements;
+import wood.mike.itso.StandardElementsDecoder;
+import wood.mike.itso.journey.AbstractJourneyRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only store of encoded ITSO records in memory-mapped segment files, with random access by
+ * sequence number. Each entry is an int length + 1, the long sequence number and the transport format
+ * bytes. The length is written last and is never 0 for an entry, even an empty one, so a 0 marks the end
+ * of a segment's data. A length that is negative or runs past the segment also ends it on open, the entries
+ * before it are kept and new ones are written over it.
+ * <p>
+ * The sequence to location index is a primitive hash held in memory and rebuilt on open by walking the
+ * entry headers, payloads are never parsed. A repeated sequence number points at its latest entry.
+ * Methods are synchronized, reads hand back read-only views onto the mapped segments.
+ */
+public class ItsoRecordStore implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final LongLongIndex index = new LongLongIndex();
+    private final StandardElementsDecoder decoder = new StandardElementsDecoder();
+    private MappedByteBuffer current;
+
+    private ItsoRecordStore(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    public static ItsoRecordStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens or creates a store, indexing any existing segments. The segment size of an existing store
+     * is taken from its files.
+     */
+    public static ItsoRecordStore open(Path directory, int segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        ItsoRecordStore store = new ItsoRecordStore(directory, segmentSize);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Appends a journey record keyed on its footer's ISAM sequence number
+     */
+    public synchronized void append(AbstractJourneyRecord record) throws IOException {
+        append(record.getIpeIsamSequenceNumber(), record);
+    }
+
+    /**
+     * Appends a record, encoded straight into the mapped segment, under the given sequence number
+     */
+    public synchronized void append(long sequenceNumber, ItsoElement record) throws IOException {
+        int length = record.encodedLength();
+        if (HEADER_SIZE + length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes cannot fit a " + segmentSize + " byte segment");
+        }
+        if (current == null || current.remaining() < HEADER_SIZE + length) {
+            current = mapSegment(segments.size());
+            segments.add(current);
+        }
+
+        int start = current.position();
+        current.position(start + Integer.BYTES);
+        current.putLong(sequenceNumber);
+        record.encodeTo(current);
+        current.putInt(start, length + 1);
+
+        index.put(sequenceNumber, location(segments.size() - 1, start));
+    }
+
+    /**
+     * The stored transport format bytes, as a read-only view onto the segment, or null if not stored
+     */
+    public synchronized ByteBuffer get(long sequenceNumber) {
+        long location = index.get(sequenceNumber);
+        if (location == LongLongIndex.MISSING) {
+            return null;
+        }
+        ByteBuffer segment = segments.get((int) (location >>> 32));
+        int start = (int) location;
+        int length = segment.getInt(start) - 1;
+        return segment.slice(start + HEADER_SIZE, length).asReadOnlyBuffer();
+    }
+
+    public String getTransportFormat(long sequenceNumber) {
+        ByteBuffer bytes = get(sequenceNumber);
+        return bytes == null ? null : StandardCharsets.US_ASCII.decode(bytes).toString();
+    }
+
+    /**
+     * Decodes the leading standard elements of a stored record into the flyweight
+     * @return false if nothing is stored under the sequence number
+     */
+    public synchronized boolean read(long sequenceNumber, StandardElements into) {
+        ByteBuffer bytes = get(sequenceNumber);
+        if (bytes == null) {
+            return false;
+        }
+        decoder.decode(standardElementsOnly(bytes), into);
+        return true;
+    }
+
+    public synchronized boolean contains(long sequenceNumber) {
+        return index.get(sequenceNumber) != LongLongIndex.MISSING;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Flushes mapped segments to disk
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        force();
+        segments.clear();
+        index.clear();
+        current = null;
+    }
+
+    private void load() throws IOException {
+        for (int segment = 0; Files.exists(segmentPath(segment)); segment++) {
+            MappedByteBuffer buffer = mapSegment(segment);
+            segments.add(buffer);
+            int position = 0;
+            while (position + HEADER_SIZE <= buffer.limit()) {
+                int stored = buffer.getInt(position);
+                // 0 is the end of the data, anything else that does not fit the segment is a torn or corrupt header
+                if (stored <= 0 || (long) position + HEADER_SIZE + stored - 1 > buffer.limit()) {
+                    break;
+                }
+                int length = stored - 1;
+                index.put(buffer.getLong(position + Integer.BYTES), location(segment, position));
+                position += HEADER_SIZE + length;
+            }
+            buffer.position(position);
+            current = buffer;
+        }
+    }
+
+    private MappedByteBuffer mapSegment(int segment) throws IOException {
+        Path path = segmentPath(segment);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = Files.size(path) > 0 ? Files.size(path) : segmentSize;
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%08d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    /**
+     * Journey records carry their sections after the standard elements, trim to the first ten fields
+     */
+    private static ByteBuffer standardElementsOnly(ByteBuffer bytes) {
+        int separators = 0;
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            if (bytes.get(i) == ',' && ++separators == 10) {
+                return bytes.slice(bytes.position(), i - bytes.position());
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,101 @@
+package wood.mike.itso.store;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing long to long map held in two primitive arrays, no boxing and no per entry objects.
+ * Long.MIN_VALUE marks an empty slot, so that key is kept in a field of its own. Not thread-safe.
+ */
+class LongLongIndex {
+
+    static final long MISSING = -1;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+    // The entry for the key that means empty in the table
+    private boolean hasEmptyKey;
+    private long emptyKeyValue;
+
+    LongLongIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return the previous value or {@link #MISSING}
+     */
+    long put(long key, long value) {
+        if (key == EMPTY) {
+            long previous = hasEmptyKey ? emptyKeyValue : MISSING;
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return previous;
+        }
+        int slot = find(key);
+        if (keys[slot] == key) {
+            long previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Keep the load factor at or under a half so probe sequences stay short
+        if (++size > (mask + 1) >>> 1) {
+            grow();
+        }
+        return MISSING;
+    }
+
+    long get(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : MISSING;
+        }
+        int slot = find(key);
+        return keys[slot] == key ? values[slot] : MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasEmptyKey = false;
+    }
+
+    private int find(long key) {
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+}
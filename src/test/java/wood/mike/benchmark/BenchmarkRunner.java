@@ -0,0 +1,32 @@
+package wood.mike.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks matching the first argument (a regex, defaults to everything) with the
+ * GC profiler attached, so every result reports allocation per op (gc.alloc.rate.norm) next to throughput.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.include=wood.mike.itso}
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "wood.mike";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                // Classes are compiled with preview features, forked JVMs need the flag too
+                .jvmArgsAppend("--enable-preview")
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+
+        new Runner(options).run();
+    }
+}
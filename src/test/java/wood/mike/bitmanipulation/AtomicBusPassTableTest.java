@@ -0,0 +1,80 @@
+package wood.mike.bitmanipulation;
+
+import org.junit.jupiter.api.Test;
+import wood.mike.bitmanipulation.buspass.AtomicBusPassTable;
+import wood.mike.bitmanipulation.buspass.BusPass;
+import wood.mike.bitmanipulation.buspass.PassFeature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AtomicBusPassTableTest {
+
+    @Test
+    public void testGrantRevokeSetZone() {
+        AtomicBusPassTable table = new AtomicBusPassTable(new int[]{0b01110101100});
+        assertTrue(table.grant(0, PassFeature.IS_OAP));
+        assertFalse(table.grant(0, PassFeature.IS_OAP));
+        assertTrue(table.revoke(0, PassFeature.DOG_ALLOWED));
+        assertFalse(table.revoke(0, PassFeature.DOG_ALLOWED));
+        assertEquals(3, table.setZone(0, 5));
+
+        BusPass pass = table.getPass(0);
+        assertTrue(pass.isOap());
+        assertFalse(pass.isDogAllowed());
+        assertTrue(pass.isJunior());
+        assertEquals(5, pass.zoneId());
+        assertThrows(IllegalArgumentException.class, () -> table.setZone(0, 8));
+    }
+
+    @Test
+    public void testConcurrentUpdatesToOnePass() throws InterruptedException {
+        AtomicBusPassTable table = new AtomicBusPassTable(1);
+        PassFeature[] features = PassFeature.values();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        // One thread per feature flips its own bit while another keeps moving the zone,
+        // none of them may lose another's change
+        for (PassFeature feature : features) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                await(start);
+                for (int i = 0; i < 20_000; i++) {
+                    table.grant(0, feature);
+                    table.revoke(0, feature);
+                }
+                table.grant(0, feature);
+            }));
+        }
+        threads.add(Thread.ofPlatform().start(() -> {
+            await(start);
+            for (int i = 0; i < 20_000; i++) {
+                table.setZone(0, i % 8);
+            }
+            table.setZone(0, 6);
+        }));
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0xFF | 6 << 8, table.get(0));
+    }
+
+    @Test
+    public void testUpdate() {
+        AtomicBusPassTable table = new AtomicBusPassTable(2);
+        assertEquals(0b1001, table.update(1, pass -> pass | 0b1001));
+        assertArrayEquals(new int[]{0, 0b1001}, table.toArray());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package wood.mike.bitmanipulation;
+
+import org.junit.jupiter.api.Test;
+import wood.mike.bitmanipulation.buspass.BusPass;
+import wood.mike.bitmanipulation.buspass.BusPassMega;
+import wood.mike.bitmanipulation.buspass.PassFeature;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static wood.mike.bitmanipulation.buspass.PassFeature.*;
+
+public class BitLayoutTest {
+
+    private static final BitLayout<PassFeature> LAYOUT = BusPass.LAYOUT;
+    private static final BitLayout.Field ZONE = BusPass.ZONE;
+
+    @Test
+    public void testMatchesHandWrittenPass() {
+        int pass = 0b01110101100;
+        BusPass busPass = new BusPass(pass);
+        assertEquals(11, LAYOUT.bitWidth());
+        assertEquals(8, ZONE.shift());
+        assertEquals(busPass.zoneId(), LAYOUT.get(pass, ZONE));
+        assertEquals(busPass.isDogAllowed(), LAYOUT.isSet(pass, DOG_ALLOWED));
+        assertEquals(busPass.isOap(), LAYOUT.isSet(pass, IS_OAP));
+
+        long built = LAYOUT.with(LAYOUT.encode(EnumSet.of(DOG_ALLOWED, IS_CONCESSIONARY, IS_JUNIOR, WEEKEND_TRAVEL_ALLOWED)), ZONE, 3);
+        assertEquals(pass, built);
+    }
+
+    @Test
+    public void testSetClearWith() {
+        long word = LAYOUT.set(0, PEAK_TIME_ALLOWED);
+        word = LAYOUT.with(word, ZONE, 7);
+        word = LAYOUT.with(word, IS_OAP, true);
+        assertEquals(0b11101000001, word);
+
+        word = LAYOUT.clear(word, PEAK_TIME_ALLOWED);
+        word = LAYOUT.with(word, ZONE, 2);
+        assertEquals(2, LAYOUT.get(word, ZONE));
+        assertEquals(IS_OAP.mask(), LAYOUT.flagBits(word));
+        assertThrows(IllegalArgumentException.class, () -> LAYOUT.with(0, ZONE, 8));
+        assertThrows(IllegalArgumentException.class, () -> LAYOUT.with(0, ZONE, -1));
+    }
+
+    @Test
+    public void testEnumSetRoundTrip() {
+        for (int pass = 0; pass < 1 << LAYOUT.bitWidth(); pass++) {
+            EnumSet<PassFeature> features = LAYOUT.toEnumSet(pass);
+            assertEquals(LAYOUT.flagBits(pass), LAYOUT.encode(features));
+            assertEquals(pass & 0xFF, new BusPassMega(pass).encode());
+        }
+    }
+
+    @Test
+    public void testBuilderChecks() {
+        BitLayout.Builder<PassFeature> builder = BitLayout.builder(PassFeature.class).field("zone", 3);
+        assertThrows(IllegalArgumentException.class, () -> builder.field("zone", 2));
+        assertThrows(IllegalArgumentException.class, () -> builder.field("empty", 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.field("huge", 54));
+
+        BitLayout<PassFeature> layout = builder.field("operator", 53).build();
+        assertEquals(64, layout.bitWidth());
+        assertEquals((1L << 53) - 1, layout.get(-1L, layout.field("operator")));
+        assertThrows(IllegalArgumentException.class, () -> layout.field("missing"));
+    }
+}
@@ -2,6 +2,10 @@ package wood.mike.bitmanipulation;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static wood.mike.bitmanipulation.BitUtils.*;
 
@@ -18,4 +22,45 @@ public class BitUtilsTest {
         assertEquals(num, setBit(num, modBit));
         assertTrue(isBitSet(num, modBit));
     }
+
+    @Test
+    public void testRangesMatchBitSet() {
+        Random random = new Random(3);
+        long[] words = new long[40];
+        BitSet expected = new BitSet();
+        for (int i = 0; i < 500; i++) {
+            int from = random.nextInt(40 * 64);
+            int to = from + random.nextInt(40 * 64 - from + 1);
+            if (random.nextBoolean()) {
+                setRange(words, from, to);
+                expected.set(from, to);
+            } else {
+                clearRange(words, from, to);
+                expected.clear(from, to);
+            }
+            assertArrayEquals(expected.toLongArray(), Arrays.copyOf(words, expected.toLongArray().length));
+
+            int a = random.nextInt(40 * 64);
+            int b = a + random.nextInt(40 * 64 - a + 1);
+            assertEquals(expected.get(a, b).cardinality(), popcount(words, a, b));
+            assertEquals(expected.nextSetBit(a), nextSetBit(words, a));
+            assertEquals(expected.previousSetBit(a), prevSetBit(words, a));
+            assertEquals(expected.get(a), isBitSet(words, a));
+        }
+        assertEquals(-1, nextSetBit(words, 40 * 64));
+        assertEquals(expected.previousSetBit(40 * 64 - 1), prevSetBit(words, 100_000));
+        assertThrows(IndexOutOfBoundsException.class, () -> setRange(words, 5, 4));
+    }
+
+    @Test
+    public void testLogicalOperations() {
+        long[] a = {0b1100, 0b1010, -1L};
+        and(a, new long[]{0b0110, -1L});
+        assertArrayEquals(new long[]{0b0100, 0b1010, 0}, a);
+        or(a, new long[]{0b0001});
+        assertArrayEquals(new long[]{0b0101, 0b1010, 0}, a);
+        xor(a, new long[]{0b0101, 0b1111, 1});
+        assertArrayEquals(new long[]{0, 0b0101, 1}, a);
+        assertThrows(IllegalArgumentException.class, () -> or(new long[1], new long[2]));
+    }
 }
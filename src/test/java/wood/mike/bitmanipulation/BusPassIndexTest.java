@@ -0,0 +1,79 @@
+package wood.mike.bitmanipulation;
+
+import org.junit.jupiter.api.Test;
+import wood.mike.bitmanipulation.buspass.BusPass;
+import wood.mike.bitmanipulation.buspass.BusPassIndex;
+import wood.mike.bitmanipulation.buspass.PassFeature;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static wood.mike.bitmanipulation.buspass.PassFeature.*;
+
+public class BusPassIndexTest {
+
+    private static final int PASSES = 200_000;
+
+    @Test
+    public void testSelectMatchesScan() {
+        int[] passes = randomPasses(PASSES);
+        BusPassIndex index = BusPassIndex.build(passes);
+        assertEquals(PASSES, index.size());
+
+        Set<PassFeature> required = EnumSet.of(IS_CONCESSIONARY, IS_OAP, WEEKEND_TRAVEL_ALLOWED);
+        int[] expected = IntStream.range(0, PASSES).filter(id -> {
+            BusPass pass = new BusPass(passes[id]);
+            return pass.isConcessionary() && pass.isOap() && pass.weekendTravelAllowed() && !pass.isDogAllowed() && pass.zoneId() == 3;
+        }).toArray();
+
+        assertArrayEquals(expected, index.select(required, EnumSet.of(DOG_ALLOWED), 3).toArray());
+        assertEquals(expected.length, index.count(required, EnumSet.of(DOG_ALLOWED), 3));
+    }
+
+    @Test
+    public void testCounts() {
+        int[] passes = randomPasses(PASSES);
+        BusPassIndex index = BusPassIndex.build(passes);
+
+        long juniors = IntStream.of(passes).filter(pass -> new BusPass(pass).isJunior()).count();
+        assertEquals(juniors, index.countWithFeature(IS_JUNIOR));
+        assertEquals(juniors, index.count(EnumSet.of(IS_JUNIOR), EnumSet.noneOf(PassFeature.class), BusPassIndex.ANY_ZONE));
+
+        long zone7Juniors = IntStream.of(passes).filter(pass -> new BusPass(pass).isJunior() && new BusPass(pass).zoneId() == 7).count();
+        assertEquals(zone7Juniors, index.count(EnumSet.of(IS_JUNIOR), EnumSet.noneOf(PassFeature.class), 7));
+
+        long zone0 = IntStream.of(passes).filter(pass -> new BusPass(pass).zoneId() == 0).count();
+        assertEquals(zone0, index.countInZone(0));
+        assertThrows(IllegalArgumentException.class, () -> index.countInZone(8));
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        BusPassIndex index = BusPassIndex.build(new int[]{0b01110101100, 0b00001000});
+        assertEquals(1, index.count(EnumSet.of(IS_JUNIOR), EnumSet.noneOf(PassFeature.class), 3));
+
+        // Pass 0 moves to zone 1 and loses its junior status, pass 5 is new
+        index.put(0, 0b00100001100).put(5, 0b01000100000);
+        assertEquals(0, index.count(EnumSet.of(IS_JUNIOR), EnumSet.noneOf(PassFeature.class), 3));
+        assertArrayEquals(new int[]{0}, index.select(EnumSet.of(DOG_ALLOWED), EnumSet.noneOf(PassFeature.class), 1).toArray());
+        assertArrayEquals(new int[]{5}, index.select(EnumSet.of(IS_JUNIOR), EnumSet.noneOf(PassFeature.class), 2).toArray());
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertFalse(index.contains(1));
+        assertArrayEquals(new int[]{0}, index.select(EnumSet.of(IS_CONCESSIONARY), EnumSet.noneOf(PassFeature.class), BusPassIndex.ANY_ZONE).toArray());
+        assertEquals(2, index.size());
+    }
+
+    private static int[] randomPasses(int count) {
+        Random random = new Random(7);
+        int[] passes = new int[count];
+        for (int i = 0; i < count; i++) {
+            passes[i] = random.nextInt(1 << 11);
+        }
+        return passes;
+    }
+}
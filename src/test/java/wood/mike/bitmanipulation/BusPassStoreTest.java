@@ -0,0 +1,66 @@
+package wood.mike.bitmanipulation;
+
+import org.junit.jupiter.api.Test;
+import wood.mike.bitmanipulation.buspass.BusPass;
+import wood.mike.bitmanipulation.buspass.BusPassStore;
+import wood.mike.bitmanipulation.buspass.BusPassTuned;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static wood.mike.bitmanipulation.buspass.BusPassTuned.*;
+
+public class BusPassStoreTest {
+
+    // Not a multiple of any vector length, so the scalar tail is exercised too
+    private static final int PASSES = 100_003;
+
+    @Test
+    public void testScalar() {
+        assertQueries(new BusPassStore(16, false));
+    }
+
+    @Test
+    public void testVector() {
+        // Surefire adds jdk.incubator.vector, so this runs rather than skipping
+        assertTrue(BusPassStore.isVectorAvailable(), "Vector API needs --add-modules jdk.incubator.vector");
+        assertQueries(new BusPassStore(16, true));
+    }
+
+    @Test
+    public void testAddGetSet() {
+        BusPassStore store = new BusPassStore(1, false);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, store.add(i));
+        }
+        store.set(42, 0b01110101100);
+        assertEquals(100, store.size());
+        assertEquals(99, store.get(99));
+        assertEquals(3, new BusPass(store.get(42)).zoneId());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(100));
+        assertThrows(IllegalArgumentException.class, () -> store.filterZone(8));
+    }
+
+    private static void assertQueries(BusPassStore store) {
+        int[] passes = new Random(11).ints(PASSES, 0, 1 << 11).toArray();
+        for (int pass : passes) {
+            store.add(pass);
+        }
+
+        int required = IS_CONCESSIONARY | IS_OAP | WEEKEND_TRAVEL_ALLOWED;
+        long expected = IntStream.of(passes).filter(p -> {
+            BusPassTuned pass = new BusPassTuned(p);
+            return pass.isConcessionary() && pass.isOap() && pass.weekendTravelAllowed() && !pass.isDogAllowed();
+        }).count();
+        assertEquals(expected, store.countMatching(required, DOG_ALLOWED));
+        assertEquals(PASSES, store.countMatching(0, 0));
+        assertEquals(0, store.countMatching(IS_OAP, IS_OAP));
+
+        for (int zone = 0; zone < 8; zone++) {
+            int z = zone;
+            int[] ids = IntStream.range(0, PASSES).filter(id -> new BusPass(passes[id]).zoneId() == z).toArray();
+            assertArrayEquals(ids, store.filterZone(zone));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package wood.mike.bitmanipulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedBitmapTest {
+
+    @Test
+    public void testAddRemoveAcrossContainerTypes() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        // Past 4096 values a chunk switches to a bitmap, and back again when it empties
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(bitmap.add(i * 3));
+        }
+        assertFalse(bitmap.add(3));
+        assertEquals(5000, bitmap.cardinality());
+        assertTrue(bitmap.contains(14997));
+        assertFalse(bitmap.contains(14998));
+
+        for (int i = 0; i < 5000; i += 2) {
+            assertTrue(bitmap.remove(i * 3));
+        }
+        assertFalse(bitmap.remove(0));
+        assertEquals(2500, bitmap.cardinality());
+        assertTrue(bitmap.contains(3));
+        assertFalse(bitmap.contains(6));
+
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+        assertFalse(bitmap.contains(-1));
+    }
+
+    @Test
+    public void testOperationsMatchBitSet() {
+        Random random = new Random(42);
+        BitSet a = new BitSet();
+        BitSet b = new BitSet();
+        // A mix of sparse and dense chunks
+        fill(random, a, 0, 1 << 16, 0.5);
+        fill(random, a, 1 << 16, 2 << 16, 0.01);
+        fill(random, b, 0, 1 << 16, 0.02);
+        fill(random, b, 1 << 16, 2 << 16, 0.6);
+        fill(random, b, 3 << 16, 4 << 16, 0.1);
+
+        CompressedBitmap ca = of(a);
+        CompressedBitmap cb = of(b);
+        assertEquals(a.cardinality(), ca.cardinality());
+
+        BitSet and = (BitSet) a.clone();
+        and.and(b);
+        assertArrayEquals(and.stream().toArray(), CompressedBitmap.and(ca, cb).toArray());
+        assertEquals(and.cardinality(), CompressedBitmap.andCardinality(ca, cb));
+
+        BitSet or = (BitSet) a.clone();
+        or.or(b);
+        assertArrayEquals(or.stream().toArray(), CompressedBitmap.or(ca, cb).toArray());
+
+        BitSet andNot = (BitSet) a.clone();
+        andNot.andNot(b);
+        assertArrayEquals(andNot.stream().toArray(), CompressedBitmap.andNot(ca, cb).toArray());
+
+        // Arguments are left alone
+        assertArrayEquals(a.stream().toArray(), ca.toArray());
+    }
+
+    @Test
+    public void testBuilderRequiresAscendingValues() {
+        CompressedBitmap.Builder builder = new CompressedBitmap.Builder().add(1).add(70000);
+        assertThrows(IllegalArgumentException.class, () -> builder.add(70000));
+        assertArrayEquals(new int[]{1, 70000}, builder.build().toArray());
+        assertArrayEquals(new int[]{2, 5, 9}, CompressedBitmap.of(9, 2, 5, 2).toArray());
+    }
+
+    private static void fill(Random random, BitSet bits, int from, int to, double density) {
+        for (int i = from; i < to; i++) {
+            if (random.nextDouble() < density) {
+                bits.set(i);
+            }
+        }
+    }
+
+    private static CompressedBitmap of(BitSet bits) {
+        CompressedBitmap.Builder builder = new CompressedBitmap.Builder();
+        bits.stream().forEach(builder::add);
+        return builder.build();
+    }
+}
@@ -0,0 +1,78 @@
+package wood.mike.bitmanipulation;
+
+import org.junit.jupiter.api.Test;
+import wood.mike.bitmanipulation.buspass.BusPass;
+import wood.mike.bitmanipulation.buspass.FareRules;
+import wood.mike.bitmanipulation.buspass.PassValidator;
+import wood.mike.bitmanipulation.buspass.PassValidator.Decision;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PassValidatorTest {
+
+    private static final PassValidator VALIDATOR = PassValidator.compile(FareRules.STANDARD);
+
+    @Test
+    public void testTableMatchesRules() {
+        for (int pass = 0; pass < 1 << 11; pass++) {
+            BusPass busPass = new BusPass(pass);
+            for (int gateZone = 0; gateZone < 8; gateZone++) {
+                for (int peak = 0; peak < 2; peak++) {
+                    for (int weekend = 0; weekend < 2; weekend++) {
+                        for (int passengers = 0; passengers < 5; passengers++) {
+                            for (int dogs = 0; dogs < 5; dogs++) {
+                                FareRules.Journey journey = new FareRules.Journey(peak == 1, weekend == 1, Math.min(passengers, 3), Math.min(dogs, 3));
+                                Decision expected = FareRules.STANDARD.coversZone(busPass.zoneId(), gateZone)
+                                        ? FareRules.STANDARD.decide(busPass, journey)
+                                        : Decision.WRONG_ZONE;
+                                int index = PassValidator.journey(peak == 1, weekend == 1, passengers, dogs);
+                                assertEquals(expected, VALIDATOR.check(pass, gateZone, index));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGateDecisions() {
+        // Dog, concessionary, junior and weekend travel in zone 3
+        int pass = 0b01110101100;
+        LocalDateTime mondayMorning = LocalDateTime.of(2024, 3, 4, 8, 15);
+        LocalDateTime mondayLunch = LocalDateTime.of(2024, 3, 4, 12, 0);
+        LocalDateTime saturday = LocalDateTime.of(2024, 3, 9, 8, 15);
+
+        assertEquals(Decision.PEAK_NOT_ALLOWED, VALIDATOR.check(pass, 3, VALIDATOR.journey(mondayMorning, 0, 0)));
+        assertEquals(Decision.ACCEPT, VALIDATOR.check(pass, 3, VALIDATOR.journey(mondayLunch, 0, 1)));
+        assertEquals(Decision.ACCEPT, VALIDATOR.check(pass, 1, VALIDATOR.journey(saturday, 0, 0)));
+        assertEquals(Decision.WRONG_ZONE, VALIDATOR.check(pass, 4, VALIDATOR.journey(mondayLunch, 0, 0)));
+        assertEquals(Decision.PASSENGER_NOT_ALLOWED, VALIDATOR.check(pass, 3, VALIDATOR.journey(mondayLunch, 1, 0)));
+        assertEquals(Decision.DOG_NOT_ALLOWED, VALIDATOR.check(pass, 3, VALIDATOR.journey(mondayLunch, 0, 2)));
+        assertFalse(VALIDATOR.accepts(pass & ~(1 << 7), 3, VALIDATOR.journey(saturday, 0, 0)));
+    }
+
+    @Test
+    public void testPeakBoundaries() {
+        assertTrue(FareRules.STANDARD.isPeak(DayOfWeek.FRIDAY, LocalTime.of(6, 30)));
+        assertFalse(FareRules.STANDARD.isPeak(DayOfWeek.FRIDAY, LocalTime.of(9, 30)));
+        assertFalse(FareRules.STANDARD.isPeak(DayOfWeek.SUNDAY, LocalTime.of(8, 0)));
+        int journey = VALIDATOR.journey(DayOfWeek.FRIDAY, 16 * 60, 0, 0);
+        assertEquals(PassValidator.journey(true, false, 0, 0), journey);
+    }
+
+    @Test
+    public void testJourneyRanges() {
+        assertEquals(PassValidator.journey(false, false, 3, 3), VALIDATOR.journey(DayOfWeek.MONDAY, 0, 50, 7));
+        assertEquals(PassValidator.journey(false, true, 0, 0), VALIDATOR.journey(DayOfWeek.SUNDAY, 24 * 60 - 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> VALIDATOR.journey(DayOfWeek.MONDAY, -1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> VALIDATOR.journey(DayOfWeek.SUNDAY, 24 * 60, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> VALIDATOR.journey(DayOfWeek.MONDAY, 600, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> VALIDATOR.journey(DayOfWeek.MONDAY, 600, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> PassValidator.journey(false, false, Integer.MIN_VALUE, 0));
+    }
+}
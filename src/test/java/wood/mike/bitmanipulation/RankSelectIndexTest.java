@@ -0,0 +1,44 @@
+package wood.mike.bitmanipulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankSelectIndexTest {
+
+    @Test
+    public void testRankAndSelectMatchBitSet() {
+        Random random = new Random(5);
+        BitSet bits = new BitSet();
+        // Dense, empty and sparse stretches so blocks repeat running counts
+        for (int i = 0; i < 200_000; i++) {
+            double density = i < 50_000 ? 0.7 : i < 100_000 ? 0 : 0.01;
+            if (random.nextDouble() < density) {
+                bits.set(i);
+            }
+        }
+        RankSelectIndex index = new RankSelectIndex(bits.toLongArray());
+        assertEquals(bits.cardinality(), index.cardinality());
+
+        int rank = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            assertEquals(rank, index.rank(i));
+            assertEquals(i, index.select(rank));
+            rank++;
+        }
+        assertEquals(bits.get(0, 75_000).cardinality(), index.rank(75_000));
+        assertEquals(index.cardinality(), index.rank(Integer.MAX_VALUE));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.select(index.cardinality()));
+    }
+
+    @Test
+    public void testEmpty() {
+        RankSelectIndex index = new RankSelectIndex(new long[3]);
+        assertEquals(0, index.cardinality());
+        assertEquals(0, index.rank(100));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.select(0));
+    }
+}
@@ -0,0 +1,131 @@
+package wood.mike.bitmanipulation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import wood.mike.bitmanipulation.buspass.AtomicBusPassTable;
+import wood.mike.bitmanipulation.buspass.PassFeature;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entitlement writes from 1, 4 and 8 threads, all on one pass (every write contends) and spread over a
+ * million passes (almost none do), against the same writes under a lock.
+ * JMH sums throughput over the threads, so flat scores as threads are added mean writes are serialising.
+ * Needs at least 8 cores to say anything about contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AtomicBusPassTableBenchmark {
+
+    private static final int PASSES = 1 << 20;
+    private static final PassFeature[] FEATURES = PassFeature.values();
+
+    @State(Scope.Benchmark)
+    public static class Table {
+        final AtomicBusPassTable atomic = new AtomicBusPassTable(PASSES);
+        final int[] locked = new int[PASSES];
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        int i;
+
+        @Setup
+        public void setup() {
+            i = ThreadLocalRandom.current().nextInt();
+        }
+
+        PassFeature feature() {
+            return FEATURES[++i & (FEATURES.length - 1)];
+        }
+
+        int spreadIdx() {
+            return (i * 0x9E3779B9) & (PASSES - 1);
+        }
+    }
+
+    private static int hot(AtomicBusPassTable table, Writer writer, int passIdx) {
+        PassFeature feature = writer.feature();
+        table.grant(passIdx, feature);
+        table.revoke(passIdx, feature);
+        return table.setZone(passIdx, writer.i & 7);
+    }
+
+    private static int hotLocked(int[] passes, Writer writer, int passIdx) {
+        int mask = writer.feature().mask();
+        synchronized (passes) {
+            passes[passIdx] |= mask;
+            passes[passIdx] &= ~mask;
+            int zone = (passes[passIdx] >>> 8) & 7;
+            passes[passIdx] = (passes[passIdx] & ~(7 << 8)) | (writer.i & 7) << 8;
+            return zone;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int contended1(Table table, Writer writer) {
+        return hot(table.atomic, writer, 0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int contended4(Table table, Writer writer) {
+        return hot(table.atomic, writer, 0);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int contended8(Table table, Writer writer) {
+        return hot(table.atomic, writer, 0);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int spread1(Table table, Writer writer) {
+        return hot(table.atomic, writer, writer.spreadIdx());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int spread4(Table table, Writer writer) {
+        return hot(table.atomic, writer, writer.spreadIdx());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int spread8(Table table, Writer writer) {
+        return hot(table.atomic, writer, writer.spreadIdx());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int locked1(Table table, Writer writer) {
+        return hotLocked(table.locked, writer, writer.spreadIdx());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int locked4(Table table, Writer writer) {
+        return hotLocked(table.locked, writer, writer.spreadIdx());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int locked8(Table table, Writer writer) {
+        return hotLocked(table.locked, writer, writer.spreadIdx());
+    }
+}
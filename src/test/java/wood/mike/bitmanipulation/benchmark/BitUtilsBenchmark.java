@@ -0,0 +1,149 @@
+package wood.mike.bitmanipulation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wood.mike.bitmanipulation.BitUtils;
+import wood.mike.bitmanipulation.RankSelectIndex;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The long[] toolkit in BitUtils against java.util.BitSet over a million bit occupancy map,
+ * with a per-bit loop alongside where BitSet has no bulk equivalent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitUtilsBenchmark {
+
+    private static final int BITS = 1 << 20;
+    private static final int FROM = 1_001;
+    private static final int TO = BITS - 999;
+
+    private long[] words;
+    private long[] other;
+    private long[] scratch;
+    private BitSet bitSet;
+    private BitSet otherBitSet;
+    private RankSelectIndex index;
+    private int rankProbe;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        bitSet = new BitSet(BITS);
+        otherBitSet = new BitSet(BITS);
+        for (int i = 0; i < BITS; i++) {
+            if (random.nextInt(4) == 0) {
+                bitSet.set(i);
+            }
+            if (random.nextBoolean()) {
+                otherBitSet.set(i);
+            }
+        }
+        words = bitSet.toLongArray();
+        other = otherBitSet.toLongArray();
+        scratch = new long[BITS / 64];
+        index = new RankSelectIndex(words);
+    }
+
+    @Benchmark
+    public long[] setRangeBitUtils() {
+        BitUtils.setRange(scratch, FROM, TO);
+        BitUtils.clearRange(scratch, FROM, TO);
+        return scratch;
+    }
+
+    @Benchmark
+    public BitSet setRangeBitSet() {
+        BitSet bits = new BitSet(BITS);
+        bits.set(FROM, TO);
+        bits.clear(FROM, TO);
+        return bits;
+    }
+
+    @Benchmark
+    public int popcountBitUtils() {
+        return BitUtils.popcount(words, FROM, TO);
+    }
+
+    @Benchmark
+    public int popcountBitSet() {
+        // BitSet can only count a range by copying it out
+        return bitSet.get(FROM, TO).cardinality();
+    }
+
+    @Benchmark
+    public int popcountPerBit() {
+        int count = 0;
+        for (int i = FROM; i < TO; i++) {
+            if (BitUtils.isBitSet(words, i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long iterateBitUtils() {
+        long sum = 0;
+        for (int i = BitUtils.nextSetBit(words, 0); i >= 0; i = BitUtils.nextSetBit(words, i + 1)) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long iterateBitSet() {
+        long sum = 0;
+        for (int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1)) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long[] andBitUtils() {
+        System.arraycopy(words, 0, scratch, 0, words.length);
+        BitUtils.and(scratch, other);
+        return scratch;
+    }
+
+    @Benchmark
+    public BitSet andBitSet() {
+        BitSet bits = (BitSet) bitSet.clone();
+        bits.and(otherBitSet);
+        return bits;
+    }
+
+    @Benchmark
+    public int rankIndexed() {
+        rankProbe = (rankProbe + 7919) & (BITS - 1);
+        return index.rank(rankProbe);
+    }
+
+    @Benchmark
+    public int rankBitSet() {
+        rankProbe = (rankProbe + 7919) & (BITS - 1);
+        return bitSet.get(0, rankProbe).cardinality();
+    }
+
+    @Benchmark
+    public int selectIndexed() {
+        rankProbe = (rankProbe + 7919) % index.cardinality();
+        return index.select(rankProbe);
+    }
+}
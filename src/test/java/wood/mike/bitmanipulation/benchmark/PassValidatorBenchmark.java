@@ -0,0 +1,68 @@
+package wood.mike.bitmanipulation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wood.mike.bitmanipulation.buspass.BusPass;
+import wood.mike.bitmanipulation.buspass.FareRules;
+import wood.mike.bitmanipulation.buspass.PassValidator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A gate check through the compiled tables against evaluating the rules with BusPass accessors,
+ * over a random spread of passes, gates and journeys so neither gets well predicted branches.
+ * The journey is worked out before the check in both cases, a gate does that once per tap from its clock.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PassValidatorBenchmark {
+
+    private static final int SAMPLES = 1 << 12;
+
+    private final PassValidator validator = PassValidator.compile(FareRules.STANDARD);
+    private final int[] passes = new int[SAMPLES];
+    private final int[] gateZones = new int[SAMPLES];
+    private final int[] journeyIndexes = new int[SAMPLES];
+    private final FareRules.Journey[] journeys = new FareRules.Journey[SAMPLES];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(9);
+        for (int i = 0; i < SAMPLES; i++) {
+            passes[i] = random.nextInt(1 << 11);
+            gateZones[i] = random.nextInt(8);
+            journeys[i] = new FareRules.Journey(random.nextBoolean(), random.nextBoolean(), random.nextInt(2), random.nextInt(2));
+            journeyIndexes[i] = PassValidator.journey(journeys[i].peak(), journeys[i].weekend(), journeys[i].passengers(), journeys[i].dogs());
+        }
+    }
+
+    @Benchmark
+    public PassValidator.Decision table() {
+        int i = next++ & (SAMPLES - 1);
+        return validator.check(passes[i], gateZones[i], journeyIndexes[i]);
+    }
+
+    @Benchmark
+    public PassValidator.Decision accessors() {
+        int i = next++ & (SAMPLES - 1);
+        BusPass pass = new BusPass(passes[i]);
+        if (!FareRules.STANDARD.coversZone(pass.zoneId(), gateZones[i])) {
+            return PassValidator.Decision.WRONG_ZONE;
+        }
+        return FareRules.STANDARD.decide(pass, journeys[i]);
+    }
+}
@@ -0,0 +1,118 @@
+package wood.mike.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaderboardMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(99));
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        assertEquals(10_001, histogram.count());
+        assertEquals(10_000, histogram.max());
+        assertEquals(5_000, histogram.mean(), 1);
+        // Within 1/64th of the true value, and never below it
+        assertEquals(5_000, histogram.percentile(50), 5_000 / 64);
+        assertTrue(histogram.percentile(50) >= 5_000);
+        assertEquals(9_900, histogram.percentile(99), 9_900 / 64);
+        assertEquals(0, histogram.percentile(0));
+        assertEquals(10_000, histogram.percentile(100));
+        // Small values are exact
+        Histogram small = new Histogram();
+        small.record(3);
+        small.record(100);
+        assertEquals(3, small.percentile(50));
+        assertEquals(100, small.percentile(100));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(101));
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    @Test
+    public void testLeaderboardReportsToInstrumentation() {
+        LeaderboardMetrics metrics = new LeaderboardMetrics();
+        Leaderboard leaderboard = new Leaderboard(metrics);
+        leaderboard.updatePlayerScore("alice", 10);
+        leaderboard.updatePlayerScore("bob", 10);
+        leaderboard.updatePlayerScore("carol", 20);
+        int dave = leaderboard.registerPlayer("dave");
+        int erin = leaderboard.registerPlayer("erin");
+        leaderboard.applyBatch(new int[]{dave, erin, dave}, new int[]{5, 10, 5});
+        leaderboard.getTopNPlayers(2);
+
+        assertEquals(3, metrics.getUpdateLatencyNanos().getCount());
+        assertEquals(1, metrics.getBatchLatencyNanos().getCount());
+        assertEquals(3, metrics.getBatchEventCount());
+        assertEquals(5, metrics.getScoreChangeCount());
+        assertEquals(1, metrics.getTopNLatencyNanos().getCount());
+        assertTrue(metrics.getTopNLatencyNanos().getMax() > 0);
+        assertEquals(0, metrics.getCasRetryCount());
+        assertEquals(0, metrics.getScoreGroupEpoch());
+
+        // carol alone on 20, then alice, bob, dave and erin all on 10
+        LeaderboardSnapshot snapshot = leaderboard.publishSnapshot();
+        assertEquals(snapshot.epoch(), metrics.getScoreGroupEpoch());
+        assertEquals(1, metrics.getSnapshotPublishLatencyNanos().getCount());
+        LeaderboardMetricsMXBean.Summary groups = metrics.getScoreGroupSizes();
+        assertEquals(2, groups.getCount());
+        assertEquals(4, groups.getMax());
+        assertEquals(2.5, groups.getMean());
+
+        metrics.reset();
+        assertEquals(0, metrics.getUpdateLatencyNanos().getCount());
+        assertEquals(0, metrics.getScoreChangeCount());
+        assertEquals(2, metrics.getScoreGroupSizes().getCount());
+    }
+
+    @Test
+    public void testShardsShareInstrumentation() {
+        LeaderboardMetrics metrics = new LeaderboardMetrics();
+        ShardedLeaderboard sharded = new ShardedLeaderboard(4, metrics);
+        for (int i = 0; i < 100; i++) {
+            sharded.updatePlayerScore("p" + i, i);
+        }
+        assertEquals(100, metrics.getUpdateLatencyNanos().getCount());
+    }
+
+    @Test
+    public void testMetricsOverJmx() throws Exception {
+        LeaderboardMetrics metrics = new LeaderboardMetrics();
+        Leaderboard leaderboard = new Leaderboard(metrics);
+        ObjectName name = metrics.register("jmx-test");
+        try {
+            leaderboard.updatePlayerScore("alice", 10);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(LeaderboardMetrics.objectName("jmx-test"), name);
+
+            CompositeData updates = (CompositeData) server.getAttribute(name, "UpdateLatencyNanos");
+            assertEquals(1L, updates.get("count"));
+            assertTrue((Long) updates.get("p99") > 0);
+            assertEquals(1L, server.getAttribute(name, "ScoreChangeCount"));
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "ScoreChangeCount"));
+            assertThrows(InstanceAlreadyExistsException.class, () -> metrics.register("jmx-test"));
+        } finally {
+            LeaderboardMetrics.unregister(name);
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
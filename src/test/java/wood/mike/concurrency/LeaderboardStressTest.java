@@ -0,0 +1,120 @@
+package wood.mike.concurrency;
+
+import org.junit.jupiter.api.RepeatedTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Races writers over a few hot players and a narrow range of scores, so that players keep colliding on the
+ * same score, and moves are left pending for the rank index by one writer and made by another or by a reader,
+ * while batches run alongside them and readers check every view they get.
+ */
+public class LeaderboardStressTest {
+
+    private static final int PLAYERS = 16;
+    private static final int SCORES = 6;
+    private static final int WRITERS = 4;
+    private static final int READERS = 2;
+    private static final int UPDATES_PER_WRITER = 2_500;
+
+    @RepeatedTest(3)
+    public void testNoPhantomOrDuplicatedPlayers() throws Exception {
+        Leaderboard leaderboard = new Leaderboard();
+        List<String> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add("p" + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                boolean batches = w == 0;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int[] indices = new int[4];
+                    int[] deltas = new int[4];
+                    for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                        if (batches) {
+                            for (int j = 0; j < indices.length; j++) {
+                                indices[j] = leaderboard.registerPlayer(players.get(random.nextInt(PLAYERS)));
+                                deltas[j] = random.nextInt(-1, 2);
+                            }
+                            leaderboard.applyBatch(indices, deltas);
+                        } else {
+                            leaderboard.updatePlayerScore(players.get(random.nextInt(PLAYERS)), random.nextInt(SCORES));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < READERS; r++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        List<String> top = leaderboard.getTopNPlayers(Integer.MAX_VALUE);
+                        assertEquals(top.size(), new HashSet<>(top).size(), "Duplicated player in " + top);
+                        assertTrue(players.containsAll(top), "Phantom player in " + top);
+                        List<String> ranked = leaderboard.getPlayersInRankRange(1, PLAYERS * 2);
+                        assertEquals(ranked.size(), new HashSet<>(ranked).size(), "Duplicated player in " + ranked);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertQuiescentState(leaderboard, players);
+
+        // Last write wins once the storm is over
+        for (int i = 0; i < PLAYERS; i++) {
+            leaderboard.updatePlayerScore(players.get(i), i);
+        }
+        assertQuiescentState(leaderboard, players);
+        assertEquals(players.reversed(), leaderboard.getTopNPlayers(PLAYERS));
+    }
+
+    /**
+     * Every player once, in score then ID order, agreeing with their score and rank, and nobody lost from the index
+     */
+    private static void assertQuiescentState(Leaderboard leaderboard, List<String> players) {
+        List<String> top = leaderboard.getTopNPlayers(Integer.MAX_VALUE);
+        assertEquals(Set.copyOf(players), Set.copyOf(top));
+        assertEquals(PLAYERS, top.size());
+        assertEquals(PLAYERS, leaderboard.getTotalPlayers());
+        assertEquals(PLAYERS, leaderboard.indexedPlayerCount());
+        assertEquals(top, leaderboard.getPlayersInRankRange(1, PLAYERS));
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(i + 1, leaderboard.getRank(top.get(i)));
+            if (i > 0) {
+                int previous = leaderboard.getPlayerScore(top.get(i - 1));
+                int current = leaderboard.getPlayerScore(top.get(i));
+                assertTrue(previous > current || (previous == current && top.get(i - 1).compareTo(top.get(i)) < 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package wood.mike.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaderboardTest {
+
+    @Test
+    public void testRanks() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.updatePlayerScore("carol", 50);
+        leaderboard.updatePlayerScore("alice", 80);
+        leaderboard.updatePlayerScore("bob", 50);
+        leaderboard.updatePlayerScore("dave", 10);
+
+        assertEquals(1, leaderboard.getRank("alice"));
+        // Ties are ranked by player ID
+        assertEquals(2, leaderboard.getRank("bob"));
+        assertEquals(3, leaderboard.getRank("carol"));
+        assertEquals(4, leaderboard.getRank("dave"));
+        assertEquals(0, leaderboard.getRank("nobody"));
+
+        leaderboard.updatePlayerScore("dave", 90);
+        assertEquals(List.of("dave", "alice", "bob", "carol"), leaderboard.getPlayersInRankRange(1, 10));
+        assertEquals(leaderboard.getTopNPlayers(4), leaderboard.getPlayersInRankRange(1, 4));
+        assertEquals(List.of("alice", "bob"), leaderboard.getPlayersInRankRange(2, 3));
+        assertEquals(List.of(), leaderboard.getPlayersInRankRange(5, 6));
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.getPlayersInRankRange(0, 2));
+
+        assertEquals(List.of("alice", "bob", "carol"), leaderboard.getPlayersAroundMe("bob", 1));
+        assertEquals(List.of("dave", "alice"), leaderboard.getPlayersAroundMe("dave", 1));
+        assertEquals(List.of(), leaderboard.getPlayersAroundMe("nobody", 1));
+
+        leaderboard.clear();
+        assertEquals(0, leaderboard.getRank("dave"));
+    }
+
+    @Test
+    public void testRanksMatchSortedScores() {
+        Leaderboard leaderboard = new Leaderboard();
+        Random random = new Random(17);
+        Map<String, Integer> scores = new TreeMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            String player = "p" + random.nextInt(1_000);
+            int score = random.nextInt(300);
+            scores.put(player, score);
+            leaderboard.updatePlayerScore(player, score);
+        }
+
+        List<String> expected = new ArrayList<>(scores.keySet());
+        expected.sort(Comparator.comparing((String p) -> -scores.get(p)).thenComparing(p -> p));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i + 1, leaderboard.getRank(expected.get(i)));
+        }
+        assertEquals(expected.subList(99, 150), leaderboard.getPlayersInRankRange(100, 150));
+        assertEquals(expected.subList(495, 506), leaderboard.getPlayersAroundMe(expected.get(500), 5));
+    }
+
+    @Test
+    public void testRankQueriesDuringUpdates() throws Exception {
+        Leaderboard leaderboard = new Leaderboard();
+        for (int i = 0; i < 200; i++) {
+            leaderboard.updatePlayerScore("p" + i, i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 2_000; i++) {
+                        leaderboard.updatePlayerScore("p" + random.nextInt(200), random.nextInt(1_000));
+                    }
+                }));
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        int rank = leaderboard.getRank("p7");
+                        assertTrue(rank >= 1 && rank <= 200);
+                        assertEquals(10, leaderboard.getPlayersInRankRange(50, 59).size());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(200, leaderboard.getPlayersInRankRange(1, 1_000).size());
+    }
+
+    @Test
+    public void testApplyBatch() {
+        Leaderboard leaderboard = new Leaderboard();
+        int alice = leaderboard.registerPlayer("alice");
+        int bob = leaderboard.registerPlayer("bob");
+        int carol = leaderboard.registerPlayer("carol");
+        assertEquals(alice, leaderboard.registerPlayer("alice"));
+        assertEquals(0, leaderboard.getTotalPlayers());
+
+        leaderboard.updatePlayerScore("bob", 40);
+        // Deltas for the same player are coalesced, and carol's cancel out but still add her at 0
+        leaderboard.applyBatch(new int[]{alice, bob, alice, carol, carol}, new int[]{10, 5, 20, 7, -7});
+        assertEquals(30, leaderboard.getPlayerScore("alice"));
+        assertEquals(45, leaderboard.getPlayerScore("bob"));
+        assertEquals(List.of("bob", "alice", "carol"), leaderboard.getTopNPlayers(3));
+        assertEquals(List.of("bob", "alice", "carol"), leaderboard.getPlayersInRankRange(1, 3));
+
+        // Only the first count entries are read
+        leaderboard.applyBatch(new int[]{carol, alice}, new int[]{100, 100}, 1);
+        assertEquals(1, leaderboard.getRank("carol"));
+        assertEquals(30, leaderboard.getPlayerScore("alice"));
+
+        // A bad index rejects the whole batch
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.applyBatch(new int[]{alice, 99}, new int[]{1, 1}));
+        assertEquals(30, leaderboard.getPlayerScore("alice"));
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.applyBatch(new int[]{alice}, new int[]{1, 1}));
+    }
+
+    @Test
+    public void testConcurrentBatchesLoseNoDeltas() throws Exception {
+        Leaderboard leaderboard = new Leaderboard();
+        int players = 50;
+        int[] indices = new int[players];
+        for (int p = 0; p < players; p++) {
+            indices[p] = leaderboard.registerPlayer("p" + p);
+        }
+        int threads = 4;
+        int batches = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    int[] batch = new int[100];
+                    int[] ones = new int[100];
+                    Arrays.fill(ones, 1);
+                    for (int b = 0; b < batches; b++) {
+                        for (int i = 0; i < batch.length; i++) {
+                            batch[i] = indices[random.nextInt(players)];
+                        }
+                        leaderboard.applyBatch(batch, ones);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int total = 0;
+        List<String> top = leaderboard.getTopNPlayers(players);
+        for (int i = 0; i < top.size(); i++) {
+            total += leaderboard.getPlayerScore(top.get(i));
+            assertEquals(i + 1, leaderboard.getRank(top.get(i)));
+        }
+        assertEquals(threads * batches * 100, total);
+    }
+
+    @Test
+    public void testSnapshots() {
+        Leaderboard leaderboard = new Leaderboard();
+        assertEquals(0, leaderboard.snapshot().epoch());
+        assertEquals(0, leaderboard.snapshot().size());
+
+        Random random = new Random(20);
+        for (int i = 0; i < 2_000; i++) {
+            leaderboard.updatePlayerScore("p" + random.nextInt(300), random.nextInt(100));
+        }
+        LeaderboardSnapshot first = leaderboard.publishSnapshot();
+        assertSame(first, leaderboard.snapshot());
+        assertEquals(1, first.epoch());
+        assertSnapshotMatches(leaderboard, first);
+
+        // Later snapshots merge in just the changes, earlier ones stay as they were
+        List<String> firstTop = first.getTopNPlayers(300);
+        int player = leaderboard.registerPlayer("p0");
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                leaderboard.updatePlayerScore("p" + random.nextInt(320), random.nextInt(100));
+            }
+            leaderboard.applyBatch(new int[]{player, player}, new int[]{3, 4});
+            assertSnapshotMatches(leaderboard, leaderboard.publishSnapshot());
+        }
+        assertEquals(6, leaderboard.snapshot().epoch());
+        assertEquals(firstTop, first.getTopNPlayers(300));
+
+        LeaderboardSnapshot snapshot = leaderboard.snapshot();
+        assertEquals(snapshot.playerId(1), leaderboard.getTopNPlayers(1).getFirst());
+        assertArrayEquals(new int[]{snapshot.score(1), snapshot.score(2)}, snapshot.topScores(2));
+        assertEquals(leaderboard.registerPlayer(snapshot.playerId(2)), snapshot.topPlayerIndices(2)[1]);
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.score(0));
+
+        leaderboard.clear();
+        leaderboard.updatePlayerScore("solo", 1);
+        assertEquals(List.of("solo"), leaderboard.publishSnapshot().getTopNPlayers(10));
+    }
+
+    @Test
+    public void testSnapshotsSeeWholeBatches() throws Exception {
+        Leaderboard leaderboard = new Leaderboard();
+        int players = 40;
+        int[] indices = new int[players];
+        int[] ones = new int[players];
+        for (int p = 0; p < players; p++) {
+            indices[p] = leaderboard.registerPlayer("p" + p);
+            ones[p] = 1;
+        }
+        leaderboard.applyBatch(indices, ones);
+
+        // Every batch raises every player by one, so any consistent view has them all level, the first
+        // snapshot, built while batches are landing, included
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int b = 0; b < 2_000; b++) {
+                    leaderboard.applyBatch(indices, ones);
+                }
+            });
+            Future<?> publisher = executor.submit(() -> {
+                while (!writer.isDone()) {
+                    LeaderboardSnapshot snapshot = leaderboard.publishSnapshot();
+                    assertEquals(players, snapshot.size());
+                    assertEquals(snapshot.score(1), snapshot.score(players), "Partial batch in epoch " + snapshot.epoch());
+                }
+            });
+            writer.get();
+            publisher.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2_001, leaderboard.publishSnapshot().score(players));
+    }
+
+    private static void assertSnapshotMatches(Leaderboard leaderboard, LeaderboardSnapshot snapshot) {
+        assertEquals(leaderboard.getTotalPlayers(), snapshot.size());
+        assertEquals(leaderboard.getTopNPlayers(snapshot.size()), snapshot.getTopNPlayers(snapshot.size() + 1));
+        for (int rank = 1; rank <= snapshot.size(); rank++) {
+            assertEquals(leaderboard.getPlayerScore(snapshot.playerId(rank)), snapshot.score(rank));
+        }
+    }
+}
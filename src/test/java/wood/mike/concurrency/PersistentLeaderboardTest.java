@@ -0,0 +1,148 @@
+package wood.mike.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentLeaderboardTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRecoversFromLog() throws Exception {
+        List<String> top;
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            leaderboard.updatePlayerScore("alice", 50);
+            leaderboard.updatePlayerScore("bob", 70);
+            leaderboard.updatePlayerScore("alice", 90);
+            int carol = leaderboard.registerPlayer("carol");
+            int bob = leaderboard.registerPlayer("bob");
+            leaderboard.applyBatch(new int[]{carol, bob, carol}, new int[]{30, 5, 30});
+            top = leaderboard.getTopNPlayers(10);
+        }
+        assertEquals(List.of("alice", "bob", "carol"), top);
+
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            assertEquals(top, leaderboard.getTopNPlayers(10));
+            assertEquals(75, leaderboard.getPlayerScore("bob"));
+            assertEquals(60, leaderboard.getPlayerScore("carol"));
+            assertEquals(3, leaderboard.getRank("carol"));
+        }
+    }
+
+    @Test
+    public void testRecoversFromSnapshotAndLogTail() throws Exception {
+        Random random = new Random(23);
+        List<String> top;
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            for (int i = 0; i < 2_000; i++) {
+                leaderboard.updatePlayerScore("p" + random.nextInt(500), random.nextInt(1_000));
+            }
+            leaderboard.checkpoint();
+            for (int i = 0; i < 200; i++) {
+                leaderboard.updatePlayerScore("p" + random.nextInt(600), random.nextInt(1_000));
+            }
+            top = leaderboard.getTopNPlayers(1_000);
+        }
+        // Only the latest snapshot and the log since are kept
+        assertTrue(Files.exists(tempDir.resolve("00000001.snap")));
+        assertFalse(Files.exists(tempDir.resolve("00000000.wal")));
+
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            assertEquals(top, leaderboard.getTopNPlayers(1_000));
+            for (int i = 0; i < top.size(); i++) {
+                assertEquals(i + 1, leaderboard.getRank(top.get(i)));
+            }
+            leaderboard.checkpoint();
+            leaderboard.updatePlayerScore("p0", 5_000);
+        }
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            assertEquals("p0", leaderboard.getTopNPlayers(1).getFirst());
+            assertEquals(top.size(), leaderboard.getTotalPlayers() - (top.contains("p0") ? 0 : 1));
+        }
+    }
+
+    @Test
+    public void testDropsTornRecord() throws Exception {
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            leaderboard.updatePlayerScore("alice", 10);
+            leaderboard.updatePlayerScore("bob", 20);
+        }
+        // A crash part way through the next record
+        Files.write(tempDir.resolve("00000000.wal"), new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 0, 0}, StandardOpenOption.APPEND);
+
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            assertEquals(List.of("bob", "alice"), leaderboard.getTopNPlayers(10));
+            leaderboard.updatePlayerScore("carol", 30);
+        }
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            assertEquals(List.of("carol", "bob", "alice"), leaderboard.getTopNPlayers(10));
+        }
+    }
+
+    @Test
+    public void testClosedLeaderboardTakesNoUpdates() throws Exception {
+        PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir);
+        leaderboard.updatePlayerScore("alice", 10);
+        int bob = leaderboard.registerPlayer("bob");
+        leaderboard.close();
+        // The log refuses the record, so nothing reaches the leaderboard
+        assertThrows(IOException.class, () -> leaderboard.updatePlayerScore("alice", 20));
+        assertEquals(10, leaderboard.getPlayerScore("alice"));
+
+        assertThrows(IOException.class, () -> leaderboard.updatePlayerScore("carol", 30));
+        assertThrows(IOException.class, () -> leaderboard.applyBatch(new int[]{bob}, new int[]{5}));
+        assertThrows(IOException.class, leaderboard::checkpoint);
+        assertEquals(0, leaderboard.getPlayerScore("carol"));
+        assertEquals(0, leaderboard.getRank("bob"));
+        assertEquals(1, leaderboard.getTotalPlayers());
+        leaderboard.close();
+
+        try (PersistentLeaderboard reopened = PersistentLeaderboard.open(tempDir)) {
+            assertEquals(10, reopened.getPlayerScore("alice"));
+        }
+    }
+
+    @Test
+    public void testConcurrentUpdatesShareCommits() throws Exception {
+        List<String> top;
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int seed = t;
+                    futures.add(executor.submit(() -> {
+                        Random random = new Random(seed);
+                        for (int i = 0; i < 250; i++) {
+                            leaderboard.updatePlayerScore("p" + random.nextInt(100), random.nextInt(1_000));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            top = leaderboard.getTopNPlayers(100);
+        }
+        try (PersistentLeaderboard leaderboard = PersistentLeaderboard.open(tempDir)) {
+            assertEquals(top, leaderboard.getTopNPlayers(100));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package wood.mike.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedLeaderboardTest {
+
+    @Test
+    public void testMergedTopNMatchesSingleLeaderboard() {
+        for (int shardCount : new int[]{1, 3, 16}) {
+            ShardedLeaderboard sharded = new ShardedLeaderboard(shardCount);
+            Leaderboard single = new Leaderboard();
+            Random random = new Random(21);
+            for (int i = 0; i < 3_000; i++) {
+                String player = "p" + random.nextInt(500);
+                int score = random.nextInt(200);
+                sharded.updatePlayerScore(player, score);
+                single.updatePlayerScore(player, score);
+            }
+            assertEquals(single.getTotalPlayers(), sharded.getTotalPlayers());
+            assertEquals(single.getTopNPlayers(10), sharded.getTopNPlayers(10));
+            assertEquals(single.getTopNPlayers(1_000), sharded.getTopNPlayers(1_000));
+            assertEquals(single.getPlayerScore("p7"), sharded.getPlayerScore("p7"));
+        }
+    }
+
+    @Test
+    public void testApplyBatch() {
+        ShardedLeaderboard sharded = new ShardedLeaderboard(4);
+        String[] players = {"alice", "bob", "carol", "dave", "erin"};
+        int[] indices = new int[players.length];
+        for (int i = 0; i < players.length; i++) {
+            indices[i] = sharded.registerPlayer(players[i]);
+        }
+        assertEquals(indices[2], sharded.registerPlayer("carol"));
+
+        sharded.applyBatch(
+                new int[]{indices[0], indices[1], indices[2], indices[3], indices[4], indices[0]},
+                new int[]{10, 20, 30, 40, 50, 45});
+        assertEquals(55, sharded.getPlayerScore("alice"));
+        assertEquals(List.of("alice", "erin", "dave", "carol", "bob"), sharded.getTopNPlayers(5));
+
+        // A bad index in any shard rejects the whole batch
+        int unregistered = indices[0] + 4 * 1_000;
+        assertThrows(IllegalArgumentException.class,
+                () -> sharded.applyBatch(new int[]{indices[1], unregistered}, new int[]{1, 1}));
+        assertEquals(20, sharded.getPlayerScore("bob"));
+
+        sharded.clear();
+        assertEquals(0, sharded.getTotalPlayers());
+        assertThrows(IllegalArgumentException.class, () -> new ShardedLeaderboard(0));
+    }
+}
@@ -0,0 +1,144 @@
+package wood.mike.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WindowedLeaderboardTest {
+
+    /**
+     * A clock the test moves by hand
+     */
+    private static final class ManualClock extends Clock {
+        private volatile Instant now = Instant.parse("2026-10-18T09:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @Test
+    public void testRollingHourlyWindow() {
+        ManualClock clock = new ManualClock();
+        WindowedLeaderboard hourly = WindowedLeaderboard.hourly(clock);
+
+        hourly.addScore("alice", 10);
+        hourly.addScore("bob", 5);
+        clock.advance(Duration.ofMinutes(30));
+        hourly.addScore("bob", 20);
+        hourly.addScore("alice", 1);
+        assertEquals(11, hourly.getPlayerScore("alice"));
+        assertEquals(List.of("bob", "alice"), hourly.getTopNPlayers(2));
+
+        // Expiry waits for the schedule, then takes the first bucket off
+        clock.advance(Duration.ofMinutes(30));
+        assertEquals(25, hourly.getPlayerScore("bob"));
+        hourly.expire();
+        assertEquals(1, hourly.getPlayerScore("alice"));
+        assertEquals(20, hourly.getPlayerScore("bob"));
+        assertEquals(2, hourly.getRank("alice"));
+        assertEquals(2, hourly.publishSnapshot().size());
+
+        // Players with nothing left in the window leave the board, and the next snapshot
+        clock.advance(Duration.ofMinutes(30));
+        hourly.expire();
+        assertEquals(0, hourly.getPlayerScore("bob"));
+        assertEquals(0, hourly.getRank("bob"));
+        assertEquals(List.of(), hourly.getTopNPlayers(2));
+        assertEquals(0, hourly.publishSnapshot().size());
+    }
+
+    @Test
+    public void testLateAndEarlyPoints() {
+        ManualClock clock = new ManualClock();
+        WindowedLeaderboard daily = WindowedLeaderboard.daily(clock);
+        Instant now = clock.instant();
+
+        assertTrue(daily.addScore("alice", 3, now.minus(Duration.ofHours(23))));
+        assertFalse(daily.addScore("alice", 100, now.minus(Duration.ofHours(25))));
+        // Points from ahead of the clock count as now
+        assertTrue(daily.addScore("alice", 4, now.plus(Duration.ofDays(3))));
+        assertEquals(7, daily.getPlayerScore("alice"));
+
+        clock.advance(Duration.ofHours(2));
+        daily.expire();
+        assertEquals(4, daily.getPlayerScore("alice"));
+    }
+
+    @Test
+    public void testSlotReuseExpiresWithoutSchedule() {
+        ManualClock clock = new ManualClock();
+        WindowedLeaderboard board = new WindowedLeaderboard(Duration.ofMinutes(3), Duration.ofMinutes(1), clock);
+        board.addScore("alice", 10);
+        clock.advance(Duration.ofMinutes(3));
+        // Needs the slot the first bucket is in, so it goes first
+        board.addScore("bob", 1);
+        assertEquals(0, board.getPlayerScore("alice"));
+        assertEquals(0, board.getRank("alice"));
+        assertEquals(List.of("bob"), board.getTopNPlayers(2));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new WindowedLeaderboard(Duration.ofMinutes(10), Duration.ofMinutes(3), clock));
+    }
+
+    @Test
+    public void testPlayersAtZeroLeaveAndReturn() {
+        ManualClock clock = new ManualClock();
+        WindowedLeaderboard board = new WindowedLeaderboard(Duration.ofMinutes(2), Duration.ofMinutes(1), clock);
+        board.addScore("alice", 5);
+        board.addScore("bob", 3);
+        board.addScore("bob", -3);
+        assertEquals(List.of("alice"), board.getTopNPlayers(3));
+        assertEquals(1, board.publishSnapshot().size());
+
+        clock.advance(Duration.ofMinutes(2));
+        board.expire();
+        assertEquals(0, board.getRank("alice"));
+        board.addScore("alice", 2);
+        board.addScore("bob", 4);
+        assertEquals(List.of("bob", "alice"), board.getTopNPlayers(3));
+        assertEquals(2, board.getRank("alice"));
+        assertEquals(List.of("bob", "alice"), board.publishSnapshot().getTopNPlayers(3));
+    }
+
+    @Test
+    public void testScheduledExpiry() throws Exception {
+        WindowedLeaderboard board = new WindowedLeaderboard(Duration.ofMillis(200), Duration.ofMillis(50), Clock.systemUTC());
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            board.scheduleExpiry(scheduler);
+            board.addScore("alice", 10);
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (board.getPlayerScore("alice") != 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, board.getPlayerScore("alice"));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
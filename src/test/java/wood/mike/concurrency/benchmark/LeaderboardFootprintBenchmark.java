@@ -0,0 +1,192 @@
+package wood.mike.concurrency.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wood.mike.concurrency.Leaderboard;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Heap retained per player by the Leaderboard's primitive layout, against models of the layouts before it:
+ * <ul>
+ * <li>baselineLayout, the original two maps: a ConcurrentHashMap of boxed scores and a ConcurrentSkipListMap of
+ * scores to TreeSets of player IDs.</li>
+ * <li>intermediateLayout, the versioned design that came between: a registry map of boxed indices, a map of
+ * current entries, skip-list score buckets and a treap of node objects found through a hash map.</li>
+ * </ul>
+ * All are filled with the same players and scores, and the retained heap is the difference in used heap, after
+ * full GCs, before and after building. The ID strings exist beforehand so are left out of all of them, only the
+ * references to them count.
+ * <p>
+ * The result that matters is the bytesPerPlayer counter, the time is just how long building took. 10 million
+ * players needs the heap the fork is given; for a smaller run pass e.g. {@code -p players=1000000} to
+ * {@code org.openjdk.jmh.Main}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:+UseSerialGC"})
+public class LeaderboardFootprintBenchmark {
+
+    private static final int BATCH_SIZE = 4096;
+    private static final int MAX_SCORE = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Players {
+        @Param({"10000000"})
+        int players;
+
+        String[] ids;
+        int[] scores;
+
+        @Setup
+        public void setup() {
+            ids = new String[players];
+            scores = new int[players];
+            SplittableRandom random = new SplittableRandom(42);
+            for (int i = 0; i < players; i++) {
+                ids[i] = "User_" + (i + 1);
+                scores[i] = random.nextInt(MAX_SCORE);
+            }
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public double bytesPerPlayer;
+    }
+
+    @Benchmark
+    public Object baselineLayout(Players players, Footprint footprint) {
+        long before = usedHeap();
+        BaselineLayout layout = new BaselineLayout();
+        for (int i = 0; i < players.players; i++) {
+            layout.put(players.ids[i], players.scores[i]);
+        }
+        footprint.bytesPerPlayer = (double) (usedHeap() - before) / players.players;
+        return layout;
+    }
+
+    @Benchmark
+    public Object intermediateLayout(Players players, Footprint footprint) {
+        long before = usedHeap();
+        IntermediateLayout layout = new IntermediateLayout();
+        for (int i = 0; i < players.players; i++) {
+            layout.put(players.ids[i], players.scores[i]);
+        }
+        footprint.bytesPerPlayer = (double) (usedHeap() - before) / players.players;
+        return layout;
+    }
+
+    @Benchmark
+    public Object primitiveLayout(Players players, Footprint footprint) {
+        long before = usedHeap();
+        Leaderboard leaderboard = new Leaderboard();
+        int[] indices = new int[BATCH_SIZE];
+        int[] deltas = new int[BATCH_SIZE];
+        for (int from = 0; from < players.players; from += BATCH_SIZE) {
+            int count = Math.min(BATCH_SIZE, players.players - from);
+            for (int i = 0; i < count; i++) {
+                indices[i] = leaderboard.registerPlayer(players.ids[from + i]);
+                deltas[i] = players.scores[from + i];
+            }
+            leaderboard.applyBatch(indices, deltas, count);
+        }
+        footprint.bytesPerPlayer = (double) (usedHeap() - before) / players.players;
+        return leaderboard;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * The original Leaderboard's two maps, filled as its updatePlayerScore filled them
+     */
+    static final class BaselineLayout {
+        final ConcurrentHashMap<String, Integer> playerCurrentScores = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<Integer, Set<String>> scoreToPlayers = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+
+        void put(String playerId, int score) {
+            playerCurrentScores.put(playerId, score);
+            scoreToPlayers.computeIfAbsent(score, k -> new TreeSet<>()).add(playerId);
+        }
+    }
+
+    /**
+     * The objects the versioned, map-based Leaderboard kept per player, with the same fields, without its behaviour
+     */
+    static final class IntermediateLayout {
+        record Entry(String playerId, int index, int score, long version) {
+        }
+
+        static final class Bucket {
+            final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(Comparator.comparing(Entry::playerId));
+            final AtomicBoolean closed = new AtomicBoolean();
+        }
+
+        static final class Node {
+            final String player;
+            final int score;
+            long version;
+            final int priority;
+            int size = 1;
+            Node left;
+            Node right;
+
+            Node(String player, int score, long version, int priority) {
+                this.player = player;
+                this.score = score;
+                this.version = version;
+                this.priority = priority;
+            }
+        }
+
+        final ConcurrentHashMap<String, Integer> indices = new ConcurrentHashMap<>();
+        String[] ids = new String[64];
+        final ConcurrentHashMap<String, Entry> current = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<Integer, Bucket> buckets = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+        final Map<String, Node> nodes = new HashMap<>();
+
+        void put(String playerId, int score) {
+            int index = indices.size();
+            indices.put(playerId, index);
+            if (index == ids.length) {
+                ids = Arrays.copyOf(ids, index * 2);
+            }
+            ids[index] = playerId;
+            Entry entry = new Entry(playerId, index, score, 1);
+            current.put(playerId, entry);
+            buckets.computeIfAbsent(score, k -> new Bucket()).entries.add(entry);
+            // Links between nodes cost nothing extra, every node has both fields either way
+            nodes.put(playerId, new Node(playerId, score, 1, playerId.hashCode()));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package wood.mike.concurrency.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import wood.mike.concurrency.ShardedLeaderboard;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LeaderboardSimulator high-volume workload, batches of score events over 100k players, from 4 threads
+ * against 1, 4 and 16 shards, with the top 100 read alongside. Batch throughput is per batch of
+ * {@value #BATCH_SIZE} events. Needs at least 4 cores to say anything about contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedLeaderboardBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_SCORE_INCREASE = 50;
+
+    @State(Scope.Benchmark)
+    public static class Board {
+        @Param({"1", "4", "16"})
+        int shards;
+
+        ShardedLeaderboard leaderboard;
+        int[] userIndices;
+
+        @Setup
+        public void setup() {
+            leaderboard = new ShardedLeaderboard(shards);
+            userIndices = new int[USERS];
+            for (int i = 0; i < USERS; i++) {
+                userIndices[i] = leaderboard.registerPlayer("User_" + (i + 1));
+            }
+            // Everyone starts on the board, as in the simulator
+            int[] initialScores = new int[USERS];
+            for (int i = 0; i < USERS; i++) {
+                initialScores[i] = ThreadLocalRandom.current().nextInt(100);
+            }
+            leaderboard.applyBatch(userIndices, initialScores);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        final int[] players = new int[BATCH_SIZE];
+        final int[] deltas = new int[BATCH_SIZE];
+
+        void fill(int[] userIndices) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                players[i] = userIndices[random.nextInt(USERS)];
+                deltas[i] = random.nextInt(MAX_SCORE_INCREASE) + 1;
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void applyBatch(Board board, Batch batch) {
+        batch.fill(board.userIndices);
+        board.leaderboard.applyBatch(batch.players, batch.deltas);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<String> top100(Board board) {
+        return board.leaderboard.getTopNPlayers(100);
+    }
+}
@@ -0,0 +1,70 @@
+package wood.mike.itso;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DtsCodecTest {
+
+    private static final LocalDateTime ITSO_EPOCH = LocalDateTime.of(2028, 11, 24, 20, 16, 0);
+
+    @Test
+    public void testMatchesDurationArithmetic() {
+        LocalDateTime[] samples = {
+                ITSO_EPOCH,
+                ITSO_EPOCH.minusSeconds(30),
+                ITSO_EPOCH.plusSeconds(30),
+                ITSO_EPOCH.minusMinutes(1).minusNanos(1),
+                LocalDateTime.of(2017, Month.APRIL, 29, 17, 59, 45),
+                LocalDateTime.of(2060, Month.FEBRUARY, 29, 23, 59, 59),
+                LocalDateTime.of(1990, Month.JANUARY, 1, 0, 0)
+        };
+        for (LocalDateTime sample : samples) {
+            int expected = (int) Duration.between(ITSO_EPOCH, sample).toMinutes() & 0xFFFFFF;
+            assertEquals(expected, DtsCodec.toDts(sample), sample.toString());
+        }
+    }
+
+    @Test
+    public void testEpochMinutesRoundTrip() {
+        assertEquals(0, DtsCodec.toDts(DtsCodec.ITSO_EPOCH_MINUTES));
+        assertEquals(0xFFFFFF, DtsCodec.toDts(DtsCodec.ITSO_EPOCH_MINUTES - 1));
+        assertEquals(DtsCodec.ITSO_EPOCH_MINUTES - 1, DtsCodec.toEpochMinutes(0xFFFFFF));
+
+        int minutes = DtsCodec.toEpochMinutes(LocalDateTime.of(2017, Month.APRIL, 29, 17, 59));
+        assertEquals(0xA31E97, DtsCodec.toDts(minutes));
+        assertEquals(minutes, DtsCodec.toEpochMinutes(0xA31E97));
+        assertEquals(LocalDateTime.of(2017, Month.APRIL, 29, 17, 59), DtsMaterializer.UTC.toLocalDateTime(minutes));
+    }
+
+    @Test
+    public void testEpochMinutesRange() {
+        LocalDateTime last = LocalDateTime.ofEpochSecond(Integer.MAX_VALUE * 60L, 0, ZoneOffset.UTC);
+        LocalDateTime first = LocalDateTime.ofEpochSecond(Integer.MIN_VALUE * 60L, 0, ZoneOffset.UTC);
+        assertEquals(Integer.MAX_VALUE, DtsCodec.toEpochMinutes(last));
+        assertEquals(Integer.MIN_VALUE, DtsCodec.toEpochMinutes(first));
+        assertThrows(IllegalArgumentException.class, () -> DtsCodec.toEpochMinutes(last.plusMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> DtsCodec.toEpochMinutes(first.minusMinutes(1)));
+
+        // Encoding straight to a DTS wraps however far out the date is, as the Duration arithmetic did
+        for (LocalDateTime sample : new LocalDateTime[]{last, last.plusMinutes(1), first.minusMinutes(1), LocalDateTime.MAX, LocalDateTime.MIN}) {
+            int expected = (int) Duration.between(ITSO_EPOCH, sample).toMinutes() & 0xFFFFFF;
+            assertEquals(expected, DtsCodec.toDts(sample), sample.toString());
+        }
+    }
+
+    @Test
+    public void testZoneAwareMaterializer() {
+        DtsMaterializer london = new DtsMaterializer(ZoneId.of("Europe/London"));
+        int summer = DtsCodec.toEpochMinutes(LocalDateTime.of(2017, Month.JULY, 1, 12, 0));
+        assertEquals(LocalDateTime.of(2017, Month.JULY, 1, 13, 0), london.toLocalDateTime(summer));
+        assertSame(london.toLocalDateTime(summer), london.toLocalDateTime(summer));
+        assertEquals(LocalDateTime.of(2017, Month.JULY, 1, 12, 0), DateTimeField.ofEpochMinutes(summer).getValue());
+    }
+}
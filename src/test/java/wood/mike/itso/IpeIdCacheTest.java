@@ -0,0 +1,59 @@
+package wood.mike.itso;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IpeIdCacheTest {
+
+    @Test
+    public void testInternReturnsSharedInstance() {
+        IpeIdCache cache = new IpeIdCache(64);
+        IPEID first = cache.intern("633597", 128, 22, 14);
+        IPEID second = cache.intern("633597", 128, 22, 14);
+        IPEID other = cache.intern("633597", 129, 22, 14);
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals("6335970080160E", second.toTransportFormat());
+        assertEquals(new IPEID("633597", 128, 22, 14).toTransportFormat(), first.toTransportFormat());
+    }
+
+    @Test
+    public void testBoundedWithEvictions() {
+        IpeIdCache cache = new IpeIdCache(4);
+        for (int oid = 0; oid < 100; oid++) {
+            assertEquals(oid, cache.intern("633597", oid, 1, 1).getOid());
+        }
+        assertEquals(4, cache.capacity());
+        assertEquals(100, cache.missCount());
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    @Test
+    public void testInvalidValuesStillRejected() {
+        IpeIdCache cache = new IpeIdCache(64);
+        assertThrows(IllegalArgumentException.class, () -> cache.intern("63359", 128, 22, 14));
+        assertThrows(IllegalArgumentException.class, () -> cache.intern("63359X", 128, 22, 14));
+        assertThrows(IllegalArgumentException.class, () -> cache.intern("633597", 0x2000, 22, 14));
+        assertThrows(IllegalArgumentException.class, () -> cache.intern("633597", 128, 0, 14));
+        assertThrows(IllegalArgumentException.class, () -> cache.intern("633597", 128, 22, 0x20));
+    }
+
+    @Test
+    public void testDecoderDoesNotMutateInternedIpeId() {
+        StandardElements standardElements = new StandardElements()
+                .setTransactionDts(0)
+                .setFvc(1).setKsc(1).setKvc(1)
+                .setIpeId("633597", 128, 22, 14);
+        IPEID interned = standardElements.getIpeid();
+
+        new StandardElementsDecoder().decode("04,A31E97,00,00000000,00,07,04,01,0123451FFF1F01,00", 0, standardElements);
+
+        assertNotSame(interned, standardElements.getIpeid());
+        assertEquals("6335970080160E", interned.toTransportFormat());
+        assertSame(interned, IpeIdCache.shared().intern("633597", 128, 22, 14));
+    }
+}
@@ -0,0 +1,78 @@
+package wood.mike.itso;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItsoBatchEncoderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEncodeToFileChannelKeepsOrder() throws Exception {
+        List<TransactionRecord> records = generateRecords(10_001);
+        String expected = expected(records);
+
+        Path file = tempDir.resolve("batch.txt");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long written = new ItsoBatchEncoder(pool, 100).encode(records, channel);
+            assertEquals(expected.length(), written);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(expected, Files.readString(file, StandardCharsets.US_ASCII));
+
+        StandardElements flyweight = new StandardElements();
+        int decoded = new StandardElementsDecoder().decodeAll(Files.readString(file), flyweight, record -> {});
+        assertEquals(records.size(), decoded);
+    }
+
+    @Test
+    public void testEncodeToOutputStream() throws Exception {
+        List<TransactionRecord> records = generateRecords(777);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ItsoBatchEncoder encoder = new ItsoBatchEncoder(ForkJoinPool.commonPool(), 50);
+        encoder.encode(records, out);
+        encoder.encode(List.of(), out);
+        encoder.encode(records.subList(0, 3), out);
+
+        assertEquals(expected(records) + expected(records.subList(0, 3)), out.toString(StandardCharsets.US_ASCII));
+    }
+
+    private static String expected(List<TransactionRecord> records) {
+        StringBuilder expected = new StringBuilder();
+        for (TransactionRecord record : records) {
+            expected.append(record.toTransportFormat()).append('\n');
+        }
+        return expected.toString();
+    }
+
+    private static List<TransactionRecord> generateRecords(int count) {
+        List<TransactionRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new TransactionRecord().setStandarElements(new StandardElements()
+                    .setRecordFormatRevision(4)
+                    .setTransactionDts(i)
+                    .setStaffId(i)
+                    .setFvc(7)
+                    .setKsc(4)
+                    .setKvc(1)
+                    .setIpeId("633597", i % 0x2000, 22, 14)));
+        }
+        return records;
+    }
+}
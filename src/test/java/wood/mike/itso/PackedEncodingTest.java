@@ -0,0 +1,89 @@
+package wood.mike.itso;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedEncodingTest {
+
+    @Test
+    public void testBitWriterReaderRoundTrip() {
+        byte[] packed = new byte[32];
+        BitWriter out = new BitWriter(packed, 1);
+        out.write(1, 1).write(0x1FFF, 13).write(0, 5).write(0xABCDEF, 24).write(-1L, 64).write(5, 3);
+        assertEquals(110, out.bitPosition());
+        assertEquals(1 + 14, out.finish());
+
+        BitReader in = new BitReader(packed, 1);
+        assertEquals(1, in.read(1));
+        assertEquals(0x1FFF, in.read(13));
+        assertEquals(0, in.read(5));
+        assertEquals(0xABCDEF, in.read(24));
+        assertEquals(-1L, in.read(64));
+        assertEquals(5, in.read(3));
+        assertEquals(110, in.bitPosition());
+    }
+
+    @Test
+    public void testValueTooWideForField() {
+        BitWriter out = new BitWriter(new byte[8], 0);
+        assertThrows(IllegalArgumentException.class, () -> out.write(0x2000, 13));
+        assertThrows(IllegalArgumentException.class, () -> new HexField(0x100, 2).writeBits(out));
+    }
+
+    @Test
+    public void testBitLengths() {
+        assertEquals(13, new OID(128).bitLength());
+        assertEquals(5, new TYP(22).bitLength());
+        assertEquals(5, new PTYP(14).bitLength());
+        assertEquals(24, new DateTimeField(LocalDateTime.now()).bitLength());
+        assertEquals(24, IIN.standard().bitLength());
+        assertEquals(12, new HexField(0xABC, 3).bitLength());
+        assertEquals(47, new IPEID("633597", 128, 22, 14).bitLength());
+        assertEquals(159, getStandardElements().bitLength());
+    }
+
+    @Test
+    public void testElementRoundTrips() {
+        assertEquals("1FFF", OID.fromBits(reader(new OID(0x1FFF))).toTransportFormat());
+        assertEquals("16", TYP.fromBits(reader(new TYP(22))).toTransportFormat());
+        assertEquals("0E", PTYP.fromBits(reader(new PTYP(14))).toTransportFormat());
+        assertEquals("012345", IIN.fromBits(reader(new IIN("012345"))).toTransportFormat());
+        assertEquals("00ABC", HexField.fromBits(reader(new HexField(0xABC, 5)), 5).toTransportFormat());
+        assertEquals("6335970080160E", IPEID.fromBits(reader(new IPEID("633597", 128, 22, 14))).toTransportFormat());
+
+        DateTimeField dateTime = new DateTimeField(LocalDateTime.of(2017, Month.APRIL, 29, 17, 59));
+        assertEquals(dateTime.getValue(), DateTimeField.fromBits(reader(dateTime)).getValue());
+    }
+
+    @Test
+    public void testStandardElementsRoundTrip() {
+        StandardElements standardElements = getStandardElements();
+        byte[] packed = new TransactionRecord().setStandarElements(standardElements).toPackedFormat();
+        assertEquals(20, packed.length);
+
+        StandardElements decoded = new StandardElements().readBits(new BitReader(packed, 0));
+        assertEquals(standardElements.toTransportFormat(), decoded.toTransportFormat());
+    }
+
+    private static BitReader reader(ItsoElement element) {
+        return new BitReader(element.toPackedFormat(), 0);
+    }
+
+    private static StandardElements getStandardElements() {
+        return new StandardElements()
+                .setRecordFormatRevision(4)
+                .setTransactionDateTime(LocalDateTime.of(2017, Month.APRIL, 29, 17, 59))
+                .setTransactionInformation(0)
+                .setStaffId(0xCAFEBABEL)
+                .setSupplementalInformation(0)
+                .setFvc(7)
+                .setKsc(4)
+                .setKvc(1)
+                .setIpeId("633597", 128, 22, 14)
+                .setShellIterationNumber(0xFF);
+    }
+}
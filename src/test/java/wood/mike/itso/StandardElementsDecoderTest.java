@@ -0,0 +1,74 @@
+package wood.mike.itso;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardElementsDecoderTest {
+
+    private static final String DELIMITED = "04,A31E97,00,00000000,00,07,04,01,6335970080160E,00";
+
+    @Test
+    public void testDecodeDelimited() {
+        StandardElements into = new StandardElements();
+        assertEquals(DELIMITED.length(), new StandardElementsDecoder().decode(DELIMITED, 0, into));
+
+        assertEquals(4, into.getRecordFormatRevision());
+        assertEquals(LocalDateTime.of(2017, Month.APRIL, 29, 17, 59), into.getTransactionDateTime());
+        assertEquals(7, into.getFvc());
+        assertEquals(4, into.getKsc());
+        assertEquals(1, into.getKvc());
+        assertEquals(633597, into.getIpeid().getIin());
+        assertEquals(128, into.getIpeid().getOid());
+        assertEquals(22, into.getIpeid().getTyp());
+        assertEquals(14, into.getIpeid().getPtyp());
+        assertEquals(DELIMITED, into.toTransportFormat());
+    }
+
+    @Test
+    public void testDecodePacked() {
+        String packed = DELIMITED.replace(",", "");
+        assertEquals(StandardElementsDecoder.PACKED_LENGTH, packed.length());
+
+        StandardElements into = new StandardElements();
+        assertEquals(packed.length(), new StandardElementsDecoder().decode(packed, 0, into));
+        assertEquals(DELIMITED, into.toTransportFormat());
+    }
+
+    @Test
+    public void testDecodeByteBufferReusesFlyweight() {
+        String lines = DELIMITED + "\r\n" + DELIMITED.replace(",", "").replace("6335970080160E", "0123451FFF1F01") + "\n";
+        ByteBuffer buffer = ByteBuffer.allocateDirect(lines.length());
+        buffer.put(lines.getBytes(StandardCharsets.US_ASCII)).flip();
+
+        StandardElements flyweight = new StandardElements();
+        List<String> records = new ArrayList<>();
+        List<IPEID> ipeIds = new ArrayList<>();
+        int count = new StandardElementsDecoder().decodeAll(buffer, flyweight, record -> {
+            records.add(record.toTransportFormat());
+            ipeIds.add(record.getIpeid());
+        });
+
+        assertEquals(2, count);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(DELIMITED, records.get(0));
+        assertEquals("04,A31E97,00,00000000,00,07,04,01,0123451FFF1F01,00", records.get(1));
+        assertSame(ipeIds.get(0), ipeIds.get(1));
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        StandardElementsDecoder decoder = new StandardElementsDecoder();
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("04,A31E97", 0, new StandardElements()));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(DELIMITED.replace(",07,", ",00,"), 0, new StandardElements()));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(DELIMITED.replace("0E,00", "0G,00"), 0, new StandardElements()));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(DELIMITED.replace(",", "") + "0", 0, new StandardElements()));
+    }
+}
@@ -3,6 +3,7 @@ package wood.mike.itso;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.Month;
 
@@ -26,4 +27,40 @@ public class StandardElementsTest {
         String transportFormat = standardElements.toTransportFormat();
         Assertions.assertEquals("04,A31E97,00,00000000,00,07,04,01,6335970080160E,00", transportFormat);
     }
+
+    @Test
+    public void testEncodeToMatchesTransportFormat() {
+        StandardElements standardElements = new StandardElements()
+                .setRecordFormatRevision(0x1234)
+                .setTransactionDateTime(LocalDateTime.of(2031, Month.JANUARY, 2, 3, 4))
+                .setTransactionInformation(0xAB)
+                .setStaffId(0xDEADBEEFL)
+                .setSupplementalInformation(0)
+                .setFvc(255)
+                .setKsc(16)
+                .setKvc(1)
+                .setIpeId("012345", 0x1FFF, 0x1F, 0x01)
+                .setShellIterationNumber(-1);
+        String transportFormat = standardElements.toTransportFormat();
+
+        byte[] encoded = new byte[standardElements.encodedLength() + 2];
+        int end = standardElements.encodeTo(encoded, 1);
+
+        Assertions.assertEquals(transportFormat.length(), standardElements.encodedLength());
+        Assertions.assertEquals(encoded.length - 1, end);
+        Assertions.assertEquals(transportFormat, new String(encoded, 1, end - 1, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testHexFieldEncodeTo() {
+        long[] values = {0, 1, 0xF, 0x10, 0xABC, 0x12345, Long.MAX_VALUE, -1};
+        for (long value : values) {
+            for (int hexChars = 1; hexChars <= 9; hexChars++) {
+                HexField field = new HexField(value, hexChars);
+                byte[] encoded = new byte[field.encodedLength()];
+                field.encodeTo(encoded, 0);
+                Assertions.assertEquals(field.toTransportFormat(), new String(encoded, StandardCharsets.US_ASCII));
+            }
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package wood.mike.itso;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardElementsValidatorTest {
+
+    private static final String VALID = "04,A31E97,00,00000000,00,07,04,01,6335970080160E,00";
+    // FVC 00 and a PTYP of 0x20, which the strict decoder rejects
+    private static final String INVALID = "04,A31E97,00,00000000,00,00,04,01,63359700801620,00";
+
+    @Test
+    public void testValidRecord() {
+        StandardElements record = new StandardElements();
+        new StandardElementsDecoder().decode(VALID, 0, record);
+        assertEquals(0, StandardElementsValidator.validate(record));
+    }
+
+    @Test
+    public void testRangeBoundaries() {
+        assertEquals(0, StandardElementsValidator.validateKeys(1, 255, 128));
+        assertEquals(ValidationError.FVC.mask(), StandardElementsValidator.validateKeys(0, 1, 1));
+        assertEquals(ValidationError.KSC.mask() | ValidationError.KVC.mask(), StandardElementsValidator.validateKeys(1, 256, -1));
+
+        assertEquals(0, StandardElementsValidator.validateIpeId(999_999, 0x1FFF, 0x1F, 0x01));
+        assertEquals(ValidationError.IIN.mask(), StandardElementsValidator.validateIpeId(1_000_000, 0, 1, 1));
+        assertEquals(ValidationError.OID.mask(), StandardElementsValidator.validateIpeId(0, 0x2000, 1, 1));
+        assertEquals(ValidationError.TYP.mask() | ValidationError.PTYP.mask(), StandardElementsValidator.validateIpeId(0, 0, 0, 0x20));
+    }
+
+    @Test
+    public void testMissingIpeId() {
+        StandardElements record = new StandardElements().setFvc(1).setKsc(1).setKvc(1);
+        assertEquals(EnumSet.of(ValidationError.IPEID_MISSING), ValidationError.fromMask(StandardElementsValidator.validate(record)));
+    }
+
+    @Test
+    public void testLenientDecodeDefersErrors() {
+        assertThrows(IllegalArgumentException.class, () -> new StandardElementsDecoder().decode(INVALID, 0, new StandardElements()));
+
+        List<String> valid = new ArrayList<>();
+        List<Integer> errors = new ArrayList<>();
+        int count = new StandardElementsDecoder(true).decodeAllValidated(VALID + "\n" + INVALID + "\n", new StandardElements(), (record, mask) -> {
+            if (mask == 0) {
+                valid.add(record.toTransportFormat());
+            } else {
+                errors.add(mask);
+            }
+        });
+
+        assertEquals(2, count);
+        assertEquals(List.of(VALID), valid);
+        assertEquals(EnumSet.of(ValidationError.FVC, ValidationError.PTYP), ValidationError.fromMask(errors.get(0)));
+    }
+
+    @Test
+    public void testMalformedLinesDoNotStopTheBatch() {
+        String batch = String.join("\n",
+                VALID,
+                VALID.replace("A31E97", "A31G97"),
+                "04,A31E97,00",
+                VALID + ",00",
+                VALID.replace("6335970080160E", "63359700801"),
+                VALID.replace(",", "") + "0",
+                INVALID,
+                VALID.replace(",", ""));
+        int malformed = ValidationError.MALFORMED.mask();
+        List<Integer> expected = List.of(0, malformed, malformed, malformed, malformed, malformed,
+                ValidationError.FVC.mask() | ValidationError.PTYP.mask(), 0);
+
+        StandardElementsDecoder decoder = new StandardElementsDecoder(true);
+        List<Integer> errors = new ArrayList<>();
+        List<String> valid = new ArrayList<>();
+        StandardElementsDecoder.ValidatedSink sink = (record, mask) -> {
+            errors.add(mask);
+            if (mask == 0) {
+                valid.add(record.toTransportFormat());
+            }
+        };
+        assertEquals(8, decoder.decodeAllValidated(batch, new StandardElements(), sink));
+        assertEquals(expected, errors);
+        assertEquals(List.of(VALID, VALID), valid);
+
+        errors.clear();
+        ByteBuffer buffer = ByteBuffer.wrap(batch.getBytes(StandardCharsets.US_ASCII));
+        assertEquals(8, decoder.decodeAllValidated(buffer, new StandardElements(), sink));
+        assertEquals(expected, errors);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testPartitionBatch() {
+        StandardElementsDecoder decoder = new StandardElementsDecoder(true);
+        List<StandardElements> batch = new ArrayList<>();
+        for (String line : List.of(VALID, INVALID, VALID)) {
+            StandardElements record = new StandardElements();
+            decoder.decode(line, 0, record);
+            batch.add(record);
+        }
+
+        StandardElementsValidator validator = new StandardElementsValidator();
+        assertEquals(1, validator.validateAll(batch));
+        assertEquals(0, validator.errors(0));
+        assertTrue(ValidationError.PTYP.isSet(validator.errors(1)));
+
+        List<StandardElements> valid = new ArrayList<>();
+        List<StandardElements> quarantine = new ArrayList<>();
+        validator.partition(batch, valid, quarantine);
+        assertEquals(List.of(batch.get(0), batch.get(2)), valid);
+        assertEquals(List.of(batch.get(1)), quarantine);
+
+        assertThrows(IllegalStateException.class, () -> validator.partition(batch.subList(0, 1), valid, quarantine));
+    }
+}
@@ -2,8 +2,14 @@ package wood.mike.itso;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TransactionRecordTest {
 
@@ -15,6 +21,34 @@ public class TransactionRecordTest {
         System.out.println(record.toTransportFormat());
     }
 
+    @Test
+    public void testEncodeToByteBuffer() {
+        TransactionRecord record = new TransactionRecord();
+        record.setStandarElements(getStandardElements());
+        String expected = record.toTransportFormat();
+
+        for (ByteBuffer buffer : List.of(ByteBuffer.allocate(128), ByteBuffer.allocateDirect(128))) {
+            buffer.put((byte) '>');
+            record.encodeTo(buffer);
+            assertEquals(1 + expected.length(), buffer.position());
+
+            buffer.flip().get();
+            byte[] encoded = new byte[buffer.remaining()];
+            buffer.get(encoded);
+            assertEquals(expected, new String(encoded, StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void testEncodeToBufferTooSmall() {
+        TransactionRecord record = new TransactionRecord();
+        record.setStandarElements(getStandardElements());
+
+        ByteBuffer buffer = ByteBuffer.allocate(record.encodedLength() - 1);
+        assertThrows(BufferOverflowException.class, () -> record.encodeTo(buffer));
+        assertEquals(0, buffer.position());
+    }
+
     private StandardElements getStandardElements() {
         return new StandardElements()
                 .setRecordFormatRevision(4)
@@ -0,0 +1,64 @@
+package wood.mike.itso.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wood.mike.itso.DateTimeField;
+import wood.mike.itso.DtsCodec;
+import wood.mike.itso.DtsMaterializer;
+import wood.mike.itso.StandardElements;
+import wood.mike.itso.StandardElementsDecoder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode direction: DTS to a time, in hex and primitive form, and whole StandardElements records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtsDecodeBenchmark {
+
+    private static final String DTS_HEX = "A31E97";
+    private static final String RECORD = "04,A31E97,00,00000000,00,07,04,01,6335970080160E,00";
+
+    private static final int DTS = 0xA31E97;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final StandardElementsDecoder decoder = new StandardElementsDecoder();
+    private final StandardElements flyweight = new StandardElements();
+    private int minute;
+
+    @Benchmark
+    public LocalDateTime dtsFromHex() {
+        return DateTimeField.fromHex(DTS_HEX).getValue();
+    }
+
+    @Benchmark
+    public int dtsToEpochMinutes() {
+        return DtsCodec.toEpochMinutes(DTS);
+    }
+
+    @Benchmark
+    public LocalDateTime dtsMaterialize() {
+        // Walk through a day of minutes so the cache sees realistic reuse rather than one hot entry
+        minute = (minute + 1) % MINUTES_PER_DAY;
+        return DtsMaterializer.UTC.fromDts(DTS + minute);
+    }
+
+    @Benchmark
+    public StandardElements standardElementsDecode() {
+        decoder.decode(RECORD, 0, flyweight);
+        return flyweight;
+    }
+}
@@ -0,0 +1,168 @@
+package wood.mike.itso.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wood.mike.itso.BitWriter;
+import wood.mike.itso.DateTimeField;
+import wood.mike.itso.HexField;
+import wood.mike.itso.IIN;
+import wood.mike.itso.IPEID;
+import wood.mike.itso.OID;
+import wood.mike.itso.PTYP;
+import wood.mike.itso.RawHexField;
+import wood.mike.itso.StandardElements;
+import wood.mike.itso.TYP;
+import wood.mike.itso.TransactionRecord;
+import wood.mike.itso.journey.JourneyCore;
+import wood.mike.itso.journey.JourneyFooter;
+import wood.mike.itso.journey.JourneyRecordRfr4;
+import wood.mike.itso.journey.Rfr3Extension;
+import wood.mike.itso.journey.Rfr4EntryExtension;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode cost of every ItsoElement, as a String via toTransportFormat() and into a reused buffer via
+ * encodeTo(), so the String path can be compared with the allocation-free one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItsoEncodingBenchmark {
+
+    private HexField hexField;
+    private DateTimeField dateTimeField;
+    private IIN iin;
+    private OID oid;
+    private TYP typ;
+    private PTYP ptyp;
+    private IPEID ipeid;
+    private RawHexField rawHexField;
+    private StandardElements standardElements;
+    private TransactionRecord transactionRecord;
+    private JourneyRecordRfr4 journeyRecord;
+
+    private final byte[] buffer = new byte[256];
+    private final BitWriter bitWriter = new BitWriter(buffer, 0);
+
+    @Setup
+    public void setUp() {
+        hexField = new HexField(0xCAFEBABEL, 8);
+        dateTimeField = new DateTimeField(LocalDateTime.of(2017, Month.APRIL, 29, 17, 59));
+        iin = IIN.standard();
+        oid = new OID(128);
+        typ = new TYP(22);
+        ptyp = new PTYP(14);
+        ipeid = new IPEID("633597", 128, 22, 14);
+        rawHexField = new RawHexField("DEADBEEF");
+        standardElements = new StandardElements()
+                .setRecordFormatRevision(4)
+                .setTransactionDateTime(LocalDateTime.of(2017, Month.APRIL, 29, 17, 59))
+                .setFvc(7)
+                .setKsc(4)
+                .setKvc(1)
+                .setIpeId("633597", 128, 22, 14);
+        transactionRecord = new TransactionRecord().setStandarElements(standardElements);
+        journeyRecord = new JourneyRecordRfr4(standardElements, new JourneyCore(), new Rfr3Extension(), new Rfr4EntryExtension(),
+                new JourneyFooter().setIpeIterationNumber(1).setIpeIsamSequenceNumber(0x123).setItsoShellReferenceNumberEncrypted("DEADBEEF"));
+    }
+
+    @Benchmark
+    public String hexFieldString() {
+        return hexField.toTransportFormat();
+    }
+
+    @Benchmark
+    public int hexFieldEncode() {
+        return hexField.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public String dateTimeFieldString() {
+        return dateTimeField.toTransportFormat();
+    }
+
+    @Benchmark
+    public int dateTimeFieldEncode() {
+        return dateTimeField.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public int iinEncode() {
+        return iin.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public int oidEncode() {
+        return oid.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public int typEncode() {
+        return typ.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public int ptypEncode() {
+        return ptyp.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public String ipeIdString() {
+        return ipeid.toTransportFormat();
+    }
+
+    @Benchmark
+    public int ipeIdEncode() {
+        return ipeid.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public int rawHexFieldEncode() {
+        return rawHexField.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public String standardElementsString() {
+        return standardElements.toTransportFormat();
+    }
+
+    @Benchmark
+    public int standardElementsEncode() {
+        return standardElements.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public int standardElementsPacked() {
+        standardElements.writeBits(bitWriter.wrap(buffer, 0));
+        return bitWriter.finish();
+    }
+
+    @Benchmark
+    public int transactionRecordEncode() {
+        return transactionRecord.encodeTo(buffer, 0);
+    }
+
+    @Benchmark
+    public String journeyRecordString() {
+        return journeyRecord.toTransportFormat();
+    }
+
+    @Benchmark
+    public int journeyRecordEncode() {
+        return journeyRecord.encodeTo(buffer, 0);
+    }
+}
@@ -0,0 +1,80 @@
+package wood.mike.itso.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wood.mike.itso.BitWriter;
+import wood.mike.itso.StandardElements;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hex transport path against the bit-packed path, encoding varied standard elements into reused buffers,
+ * one record per op cycling through {@value #RECORDS} of them so field values are not all the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackedEncodingBenchmark {
+
+    private static final int RECORDS = 1024;
+
+    private StandardElements[] records;
+    private byte[] hex;
+    private byte[] packed;
+    private BitWriter writer;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3);
+        LocalDateTime start = LocalDateTime.of(2024, Month.JANUARY, 1, 0, 0);
+        records = new StandardElements[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            records[i] = new StandardElements()
+                    .setRecordFormatRevision(4)
+                    .setTransactionDateTime(start.plusMinutes(random.nextInt(1_000_000)))
+                    .setTransactionInformation(random.nextInt(256))
+                    .setStaffId(random.nextLong(0x1_0000_0000L))
+                    .setSupplementalInformation(0)
+                    .setFvc(random.nextInt(1, 256))
+                    .setKsc(random.nextInt(1, 256))
+                    .setKvc(random.nextInt(1, 256))
+                    .setIpeId("633597", random.nextInt(0x2000), random.nextInt(1, 32), random.nextInt(1, 32))
+                    .setShellIterationNumber(random.nextInt(256));
+        }
+        hex = new byte[records[0].encodedLength()];
+        packed = new byte[(records[0].bitLength() + 7) >>> 3];
+        writer = new BitWriter(packed, 0);
+    }
+
+    private StandardElements nextRecord() {
+        StandardElements record = records[next];
+        next = (next + 1) & (RECORDS - 1);
+        return record;
+    }
+
+    @Benchmark
+    public int hex() {
+        return nextRecord().encodeTo(hex, 0);
+    }
+
+    @Benchmark
+    public int packed() {
+        nextRecord().writeBits(writer.wrap(packed, 0));
+        return writer.finish();
+    }
+}
@@ -0,0 +1,75 @@
+package wood.mike.itso.journey;
+
+import org.junit.jupiter.api.Test;
+import wood.mike.itso.HexField;
+import wood.mike.itso.ItsoElement;
+import wood.mike.itso.RawHexField;
+import wood.mike.itso.StandardElements;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JourneyRecordTest {
+
+    @Test
+    public void testRfr4MatchesFieldByFieldFormat() {
+        StandardElements standard = getStandardElements();
+        JourneyCore core = new JourneyCore();
+        Rfr3Extension rfr3 = new Rfr3Extension();
+        Rfr4EntryExtension entry = new Rfr4EntryExtension();
+        JourneyFooter footer = new JourneyFooter()
+                .setIpeIterationNumber(0x12)
+                .setIpeIsamSequenceNumber(0xABC)
+                .setItsoShellReferenceNumberEncrypted("DEADBEEF");
+
+        // The footer's fields as elements, the sections before it have none yet
+        List<ItsoElement> fields = List.of(standard, new HexField(0x12, 4), new HexField(0xABC, 3), new RawHexField("DEADBEEF"));
+        String expected = fields.stream().map(ItsoElement::toTransportFormat).collect(Collectors.joining(","));
+
+        JourneyRecordRfr4 record = new JourneyRecordRfr4(standard, core, rfr3, entry, footer);
+        assertEquals(expected, record.toTransportFormat());
+        assertEquals(standard.toTransportFormat() + ",0012,ABC,DEADBEEF", expected);
+        assertEquals(standard.bitLength() + 16 + 12 + 32, record.bitLength());
+    }
+
+    @Test
+    public void testLayoutAsData() {
+        assertSame(RecordLayout.RFR3, RecordLayout.forRevision(3));
+        assertEquals(3, RecordLayout.RFR4.fieldCount());
+        assertEquals(0, RecordLayout.RFR4.offsetOf(0));
+        assertEquals(5, RecordLayout.RFR4.offsetOf(1));
+        assertEquals(9, RecordLayout.RFR4.offsetOf(2));
+
+        JourneyRecord rfr3 = new JourneyRecord(RecordLayout.RFR3, getStandardElements(),
+                new JourneyCore(), new Rfr3Extension(), new JourneyFooter().setIpeIsamSequenceNumber(7));
+        assertTrue(rfr3.toTransportFormat().endsWith(",0000,007,"));
+
+        assertThrows(IllegalArgumentException.class, () -> new JourneyRecord(RecordLayout.RFR3, getStandardElements(),
+                new JourneyCore(), new Rfr3Extension(), new Rfr4EntryExtension()));
+        assertThrows(IllegalStateException.class, () -> RecordLayout.define(4, JourneyFooter.SECTION));
+    }
+
+    @Test
+    public void testMisplacedEmptySectionRejected() {
+        // Every section here has no fields yet, so only the section's class tells them apart
+        assertThrows(IllegalArgumentException.class, () -> new JourneyRecord(RecordLayout.RFR3, getStandardElements(),
+                new JourneyCore(), new Rfr4EntryExtension(), new JourneyFooter()));
+        assertThrows(IllegalArgumentException.class, () -> new JourneyRecord(RecordLayout.RFR4, getStandardElements(),
+                new Rfr3Extension(), new JourneyCore(), new Rfr4EntryExtension(), new JourneyFooter()));
+        assertThrows(IllegalArgumentException.class, () -> RecordLayout.define(99, JourneyCore.SECTION, JourneyCore.SECTION));
+    }
+
+    private static StandardElements getStandardElements() {
+        return new StandardElements()
+                .setRecordFormatRevision(4)
+                .setTransactionDateTime(LocalDateTime.of(2017, Month.APRIL, 29, 17, 59))
+                .setFvc(7)
+                .setKsc(4)
+                .setKvc(1)
+                .setIpeId("633597", 128, 22, 14);
+    }
+}
@@ -0,0 +1,142 @@
+package wood.mike.itso.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import wood.mike.itso.RawHexField;
+import wood.mike.itso.StandardElements;
+import wood.mike.itso.TransactionRecord;
+import wood.mike.itso.journey.JourneyCore;
+import wood.mike.itso.journey.JourneyFooter;
+import wood.mike.itso.journey.JourneyRecordRfr4;
+import wood.mike.itso.journey.Rfr3Extension;
+import wood.mike.itso.journey.Rfr4EntryExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItsoRecordStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRandomAccessAcrossSegmentsAndReopen() throws Exception {
+        int count = 500;
+        try (ItsoRecordStore store = ItsoRecordStore.open(tempDir, 4096)) {
+            for (int i = 0; i < count; i++) {
+                store.append(i * 3L, record(i));
+            }
+            assertEquals(count, store.size());
+            assertEquals(record(123).toTransportFormat(), store.getTransportFormat(369));
+            assertNull(store.get(1));
+        }
+        assertTrue(Files.exists(tempDir.resolve("00000007.seg")));
+
+        try (ItsoRecordStore store = ItsoRecordStore.open(tempDir, 4096)) {
+            assertEquals(count, store.size());
+            for (int i = count - 1; i >= 0; i--) {
+                assertEquals(record(i).toTransportFormat(), store.getTransportFormat(i * 3L));
+            }
+
+            StandardElements flyweight = new StandardElements();
+            assertTrue(store.read(30, flyweight));
+            assertEquals(10, flyweight.getStaffId());
+
+            store.append(3, record(999));
+            assertEquals(record(999).toTransportFormat(), store.getTransportFormat(3));
+            assertEquals(count, store.size());
+        }
+    }
+
+    @Test
+    public void testJourneyRecordsKeyedOnSequenceNumber() throws Exception {
+        JourneyRecordRfr4 journey = new JourneyRecordRfr4(standardElements(1), new JourneyCore(), new Rfr3Extension(),
+                new Rfr4EntryExtension(), new JourneyFooter().setIpeIsamSequenceNumber(0x123).setItsoShellReferenceNumberEncrypted("ABCD"));
+
+        try (ItsoRecordStore store = ItsoRecordStore.open(tempDir)) {
+            store.append(journey);
+            assertEquals(journey.toTransportFormat(), store.getTransportFormat(0x123));
+
+            StandardElements flyweight = new StandardElements();
+            assertTrue(store.read(0x123, flyweight));
+            assertEquals(standardElements(1).toTransportFormat(), flyweight.toTransportFormat());
+        }
+    }
+
+    @Test
+    public void testMinValueSequenceNumberSurvivesReopen() throws Exception {
+        try (ItsoRecordStore store = ItsoRecordStore.open(tempDir, 4096)) {
+            assertNull(store.get(Long.MIN_VALUE));
+            store.append(Long.MIN_VALUE, record(1));
+            store.append(7, record(2));
+            assertEquals(record(1).toTransportFormat(), store.getTransportFormat(Long.MIN_VALUE));
+        }
+
+        try (ItsoRecordStore store = ItsoRecordStore.open(tempDir, 4096)) {
+            assertEquals(2, store.size());
+            assertEquals(record(1).toTransportFormat(), store.getTransportFormat(Long.MIN_VALUE));
+            assertEquals(record(2).toTransportFormat(), store.getTransportFormat(7));
+        }
+    }
+
+    @Test
+    public void testEmptyRecordSurvivesReopen() throws Exception {
+        try (ItsoRecordStore store = ItsoRecordStore.open(tempDir, 4096)) {
+            store.append(1, record(1));
+            store.append(2, new RawHexField(""));
+            store.append(3, record(3));
+        }
+
+        try (ItsoRecordStore store = ItsoRecordStore.open(tempDir, 4096)) {
+            assertEquals(3, store.size());
+            assertEquals("", store.getTransportFormat(2));
+            assertEquals(record(3).toTransportFormat(), store.getTransportFormat(3));
+            store.append(4, record(4));
+            assertEquals(record(3).toTransportFormat(), store.getTransportFormat(3));
+        }
+    }
+
+    @Test
+    public void testCorruptHeaderEndsSegmentOnReopen() throws Exception {
+        for (int stored : new int[]{-11, Integer.MAX_VALUE, 4096}) {
+            Path directory = Files.createTempDirectory(tempDir, "corrupt");
+            try (ItsoRecordStore store = ItsoRecordStore.open(directory, 4096)) {
+                store.append(1, record(1));
+                store.append(2, record(2));
+                store.append(3, record(3));
+            }
+            // Overwrite the second entry's length
+            try (FileChannel channel = FileChannel.open(directory.resolve("00000000.seg"), StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, stored), 12 + record(1).encodedLength());
+            }
+
+            try (ItsoRecordStore store = ItsoRecordStore.open(directory, 4096)) {
+                assertEquals(1, store.size(), "length " + stored);
+                assertEquals(record(1).toTransportFormat(), store.getTransportFormat(1));
+                assertFalse(store.contains(3));
+                store.append(4, record(4));
+                assertEquals(record(4).toTransportFormat(), store.getTransportFormat(4));
+            }
+        }
+    }
+
+    private static TransactionRecord record(int i) {
+        return new TransactionRecord().setStandarElements(standardElements(i));
+    }
+
+    private static StandardElements standardElements(int i) {
+        return new StandardElements()
+                .setRecordFormatRevision(4)
+                .setTransactionDts(i)
+                .setStaffId(i)
+                .setFvc(7)
+                .setKsc(4)
+                .setKvc(1)
+                .setIpeId("633597", i % 0x2000, 22, 14);
+    }
+}